@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.customlinks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sonia.scm.store.InMemoryBlobStoreFactory;
+import sonia.scm.store.InMemoryConfigurationStoreFactory;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CustomLinkCollectionRenderBenchmark {
+
+  private static final URI BASE_URI = URI.create("https://scm.hitchhiker.com/scm/api/");
+  private static final String VERSION = "1";
+
+  @Param({"10", "1000"})
+  private int linkCount;
+
+  @Param({"false", "true"})
+  private boolean mayManageLinks;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private List<CustomLink> links;
+  private CustomLinkCollectionMapper collectionMapper;
+  private CustomLinkCollectionRenderer collectionRenderer;
+
+  @Setup
+  public void createLinks() {
+    links = new ArrayList<>();
+    for (int i = 0; i < linkCount; i++) {
+      links.add(new CustomLink("link-" + i, "https://scm-manager.org/" + i));
+    }
+    // the counter reads only the click counts, which are empty
+    CustomLinkClickCounter clickCounter = new CustomLinkClickCounter(
+      new InMemoryBlobStoreFactory(),
+      new InMemoryConfigurationStoreFactory(),
+      mock(CustomLinkConfigStore.class, withSettings().stubOnly()),
+      new CustomLinksSettings(new Properties())
+    );
+    collectionMapper = new CustomLinkCollectionMapper(new CustomLinkUrls(), new CustomLinkHealth(), clickCounter);
+    collectionRenderer = new CustomLinkCollectionRenderer(new CustomLinkCollectionMapper(new CustomLinkUrls(), new CustomLinkHealth(), clickCounter), objectMapper);
+  }
+
+  @Benchmark
+  public byte[] serializeHalRepresentation() throws Exception {
+    return objectMapper.writeValueAsBytes(collectionMapper.map(BASE_URI, VERSION, links, mayManageLinks, CustomLinkLanguages.DEFAULT));
+  }
+
+  @Benchmark
+  public byte[] preRendered() {
+    return collectionRenderer.render(BASE_URI, VERSION, links, mayManageLinks, CustomLinkLanguages.DEFAULT);
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+package com.cloudogu.customlinks;
+
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBElement;
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Marshaller;
+import jakarta.xml.bind.Unmarshaller;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares loading the links from a file in the layout of the xml configuration entry store, parsed entry by entry
+ * with JAXB like the store does, with loading them from the compact format. Run it with the gc profiler
+ * (enabled in the build) to compare the heap allocated per load, see <code>gc.alloc.rate.norm</code>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CustomLinkStorageBenchmark {
+
+  private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+  private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+  private static final QName VALUE = new QName("value");
+
+  @Param({"1000", "10000"})
+  private int linkCount;
+
+  @Param({"xml", "compact"})
+  private String format;
+
+  private JAXBContext context;
+  private Path file;
+
+  @Setup
+  public void setUp() throws IOException, JAXBException, XMLStreamException {
+    List<CustomLink> links = new ArrayList<>();
+    for (int i = 0; i < linkCount; i++) {
+      links.add(new CustomLink("link-" + i, "https://scm-manager.org/" + i));
+    }
+    context = JAXBContext.newInstance(CustomLink.class);
+    file = Files.createTempFile("custom-links", "." + format);
+    try (OutputStream output = Files.newOutputStream(file)) {
+      if ("xml".equals(format)) {
+        writeXml(output, links);
+      } else {
+        CompactCustomLinkFormat.write(output, links);
+      }
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  @Benchmark
+  public List<CustomLink> load() throws IOException, JAXBException, XMLStreamException {
+    try (InputStream input = Files.newInputStream(file)) {
+      if ("xml".equals(format)) {
+        return readXml(input);
+      }
+      return CompactCustomLinkFormat.read(input);
+    }
+  }
+
+  private void writeXml(OutputStream output, List<CustomLink> links) throws JAXBException, XMLStreamException {
+    Marshaller marshaller = context.createMarshaller();
+    marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+    XMLStreamWriter writer = XML_OUTPUT_FACTORY.createXMLStreamWriter(output, "UTF-8");
+    writer.writeStartDocument();
+    writer.writeStartElement("configuration");
+    for (CustomLink link : links) {
+      writer.writeStartElement("entry");
+      writer.writeStartElement("key");
+      writer.writeCharacters(link.getName());
+      writer.writeEndElement();
+      marshaller.marshal(new JAXBElement<>(VALUE, CustomLink.class, link), writer);
+      writer.writeEndElement();
+    }
+    writer.writeEndElement();
+    writer.writeEndDocument();
+    writer.close();
+  }
+
+  private List<CustomLink> readXml(InputStream input) throws JAXBException, XMLStreamException {
+    Unmarshaller unmarshaller = context.createUnmarshaller();
+    XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(input);
+    Map<String, CustomLink> links = new LinkedHashMap<>();
+    // configuration
+    reader.nextTag();
+    while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+      // key
+      reader.nextTag();
+      String name = reader.getElementText();
+      // value
+      reader.nextTag();
+      links.put(name, unmarshaller.unmarshal(reader, CustomLink.class).getValue());
+      if (reader.getEventType() != XMLStreamConstants.END_ELEMENT) {
+        reader.nextTag();
+      }
+    }
+    reader.close();
+    return new ArrayList<>(links.values());
+  }
+}
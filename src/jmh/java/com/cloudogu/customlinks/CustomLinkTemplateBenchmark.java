@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.customlinks;
+
+import com.google.common.escape.Escaper;
+import com.google.common.net.UrlEscapers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the expansion of the precompiled templates of all links of a request with replacing the placeholders in
+ * the raw urls.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CustomLinkTemplateBenchmark {
+
+  private static final Escaper PATH_SEGMENT_ESCAPER = UrlEscapers.urlPathSegmentEscaper();
+
+  private static final String USERNAME = "trillian";
+  private static final String NAMESPACE = "hitchhiker";
+  private static final String REPOSITORY = "heart-of-gold";
+
+  @Param({"10", "1000"})
+  private int linkCount;
+
+  // share of the links with placeholders in percent
+  @Param({"10", "100"})
+  private int templatePercentage;
+
+  private List<CustomLink> links;
+
+  @Setup
+  public void createLinks() {
+    links = new ArrayList<>();
+    for (int i = 0; i < linkCount; i++) {
+      if (i * 100 < linkCount * templatePercentage) {
+        links.add(new CustomLink("link-" + i, "https://ci.hitchhiker.com/{namespace}/{repository}/builds?user={username}&n=" + i));
+      } else {
+        links.add(new CustomLink("link-" + i, "https://scm-manager.org/" + i));
+      }
+    }
+  }
+
+  @Benchmark
+  public void compiledTemplates(Blackhole blackhole) {
+    CustomLinkTemplate.Values values = CustomLinkTemplate.Values.of(USERNAME, NAMESPACE, REPOSITORY);
+    for (CustomLink link : links) {
+      blackhole.consume(link.getTemplate().expand(values));
+    }
+  }
+
+  @Benchmark
+  public void stringReplace(Blackhole blackhole) {
+    String username = PATH_SEGMENT_ESCAPER.escape(USERNAME);
+    String namespace = PATH_SEGMENT_ESCAPER.escape(NAMESPACE);
+    String repository = PATH_SEGMENT_ESCAPER.escape(REPOSITORY);
+    for (CustomLink link : links) {
+      blackhole.consume(
+        link.getUrl()
+          .replace("{username}", username)
+          .replace("{namespace}", namespace)
+          .replace("{repository}", repository)
+      );
+    }
+  }
+
+  @Benchmark
+  public void compileAndExpand(Blackhole blackhole) {
+    // the costs of the template, if it would be parsed for every request
+    CustomLinkTemplate.Values values = CustomLinkTemplate.Values.of(USERNAME, NAMESPACE, REPOSITORY);
+    for (CustomLink link : links) {
+      blackhole.consume(CustomLinkTemplate.compile(link.getUrl()).expand(values));
+    }
+  }
+}
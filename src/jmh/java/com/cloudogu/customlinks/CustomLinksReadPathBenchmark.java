@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.customlinks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.otto.edison.hal.HalRepresentation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.authz.AuthorizationInfo;
+import org.apache.shiro.authz.SimpleAuthorizationInfo;
+import org.apache.shiro.mgt.DefaultSecurityManager;
+import org.apache.shiro.realm.AuthorizingRealm;
+import org.apache.shiro.subject.PrincipalCollection;
+import org.apache.shiro.subject.SimplePrincipalCollection;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.util.ThreadContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import sonia.scm.api.v2.resources.HalAppender;
+import sonia.scm.api.v2.resources.HalEnricherContext;
+import sonia.scm.event.ScmEventBus;
+import sonia.scm.store.ConfigurationEntryStore;
+import sonia.scm.store.ConfigurationEntryStoreFactory;
+import sonia.scm.store.ConfigurationStoreFactory;
+import sonia.scm.store.InMemoryBlobStoreFactory;
+import sonia.scm.store.InMemoryConfigurationEntryStoreFactory;
+import sonia.scm.store.InMemoryConfigurationStoreFactory;
+import sonia.scm.web.MockScmPathInfoStore;
+
+import jakarta.servlet.http.HttpServletRequest;
+import java.net.URI;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Measures the read path of the custom links for different numbers of links, once for an anonymous user and once
+ * for a user who may manage the links.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CustomLinksReadPathBenchmark {
+
+  private static final URI BASE_URI = URI.create("https://scm.hitchhiker.com/scm/api/");
+
+  @Param({"10", "1000", "10000"})
+  private int linkCount;
+
+  @Param({"anonymous", "manager"})
+  private String subject;
+
+  private ConfigurationEntryStoreFactory storeFactory;
+  private ConfigurationStoreFactory revisionStoreFactory;
+  private CustomLinksMetrics metrics;
+  private ScmEventBus eventBus;
+  private CustomLinkConfigStore configStore;
+  private CustomLinkCollectionMapper collectionMapper;
+  private CustomLinkCollectionRenderer collectionRenderer;
+  private IndexLinkEnricher enricher;
+  private HalAppender appender;
+  private HttpServletRequest request;
+
+  @Setup
+  public void setUp() {
+    DefaultSecurityManager securityManager = new DefaultSecurityManager(new BenchmarkRealm());
+    Subject benchmarkSubject = new Subject.Builder(securityManager)
+      .principals(new SimplePrincipalCollection(subject, "benchmark"))
+      .authenticated(true)
+      .buildSubject();
+    ThreadContext.bind(securityManager);
+    ThreadContext.bind(benchmarkSubject);
+
+    storeFactory = new InMemoryConfigurationEntryStoreFactory();
+    revisionStoreFactory = new InMemoryConfigurationStoreFactory();
+    ConfigurationEntryStore<CustomLink> store = storeFactory.withType(CustomLink.class)
+      .withName(XmlCustomLinkStorage.STORE_NAME)
+      .build();
+    for (int i = 0; i < linkCount; i++) {
+      store.put("link-" + i, new CustomLink("link-" + i, "https://scm-manager.org/" + i));
+    }
+
+    metrics = new CustomLinksMetrics(new SimpleMeterRegistry());
+    eventBus = mock(ScmEventBus.class, withSettings().stubOnly());
+    configStore = createStore();
+    CustomLinkClickCounter clickCounter = new CustomLinkClickCounter(
+      new InMemoryBlobStoreFactory(), revisionStoreFactory, configStore, new CustomLinksSettings(new Properties())
+    );
+    collectionMapper = new CustomLinkCollectionMapper(new CustomLinkUrls(), new CustomLinkHealth(), clickCounter);
+    collectionRenderer = new CustomLinkCollectionRenderer(new CustomLinkCollectionMapper(new CustomLinkUrls(), new CustomLinkHealth(), clickCounter), new ObjectMapper());
+    enricher = new IndexLinkEnricher(
+      MockScmPathInfoStore.forUri(BASE_URI.toString()),
+      () -> request,
+      configStore,
+      new CustomLinkCollectionMapper(new CustomLinkUrls(), new CustomLinkHealth(), clickCounter),
+      new CustomLinkUrls(),
+      new CustomLinksSettings(new Properties())
+    );
+    // stub only, so that the mock does not record every invocation
+    appender = mock(HalAppender.class, withSettings().stubOnly());
+    request = mock(HttpServletRequest.class, withSettings().stubOnly());
+    // a new enumeration for every invocation, because an enumeration can only be consumed once
+    when(request.getLocales()).thenAnswer(invocation -> Collections.enumeration(List.of(Locale.ENGLISH)));
+  }
+
+  private CustomLinkConfigStore createStore() {
+    return new CustomLinkConfigStore(
+      new XmlCustomLinkStorage(storeFactory, revisionStoreFactory),
+      new CustomLinkJournal(new InMemoryBlobStoreFactory()),
+      revisionStoreFactory,
+      metrics,
+      eventBus,
+      new CustomLinksSettings(new Properties())
+    );
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    ThreadContext.unbindSubject();
+    ThreadContext.unbindSecurityManager();
+  }
+
+  @Benchmark
+  public Collection<CustomLink> loadLinksFromStore() {
+    return createStore().getAllLinks();
+  }
+
+  @Benchmark
+  public Collection<CustomLink> getAllLinks() {
+    return configStore.getAllLinks();
+  }
+
+  @Benchmark
+  public HalRepresentation mapLinksToDtos() {
+    boolean mayManageLinks = PermissionCheck.mayManageCustomLinks();
+    return collectionMapper.map(BASE_URI, configStore.getVersion(), configStore.getAllLinks(), mayManageLinks, CustomLinkLanguages.DEFAULT);
+  }
+
+  @Benchmark
+  public byte[] renderLinks() {
+    boolean mayManageLinks = PermissionCheck.mayManageCustomLinks();
+    return collectionRenderer.render(BASE_URI, configStore.getVersion(), configStore.getAllLinks(), mayManageLinks, CustomLinkLanguages.DEFAULT);
+  }
+
+  @Benchmark
+  public HalAppender enrichIndex() {
+    enricher.enrich(HalEnricherContext.of(), appender);
+    return appender;
+  }
+
+  private static class BenchmarkRealm extends AuthorizingRealm {
+
+    @Override
+    protected AuthorizationInfo doGetAuthorizationInfo(PrincipalCollection principals) {
+      SimpleAuthorizationInfo info = new SimpleAuthorizationInfo();
+      if ("manager".equals(principals.getPrimaryPrincipal())) {
+        info.addStringPermission("configuration:manageCustomLinks");
+      }
+      return info;
+    }
+
+    @Override
+    protected AuthenticationInfo doGetAuthenticationInfo(AuthenticationToken token) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+package com.cloudogu.customlinks;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip compressed json with all links in their order, e.g.
+ * <code>{"version":2,"links":[["SCM-Manager","https://scm-manager.org/"],["Docs","/docs",{"de":"Doku"}]]}</code>.
+ * The links are written as arrays of name, url and the optional display names, so that no field names are repeated.
+ * Version 1 without display names can still be read.
+ */
+final class CompactCustomLinkFormat {
+
+  static final int VERSION = 2;
+  private static final int VERSION_WITHOUT_DISPLAY_NAMES = 1;
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  private CompactCustomLinkFormat() {
+  }
+
+  static void write(OutputStream output, List<CustomLink> links) throws IOException {
+    try (JsonGenerator generator = JSON_FACTORY.createGenerator(new GZIPOutputStream(output))) {
+      generator.writeStartObject();
+      generator.writeNumberField("version", VERSION);
+      generator.writeArrayFieldStart("links");
+      for (CustomLink link : links) {
+        generator.writeStartArray();
+        generator.writeString(link.getName());
+        generator.writeString(link.getUrl());
+        Map<String, String> displayNames = link.getDisplayNames();
+        if (displayNames != null) {
+          generator.writeStartObject();
+          for (Map.Entry<String, String> displayName : displayNames.entrySet()) {
+            generator.writeStringField(displayName.getKey(), displayName.getValue());
+          }
+          generator.writeEndObject();
+        }
+        generator.writeEndArray();
+      }
+      generator.writeEndArray();
+      generator.writeEndObject();
+    }
+  }
+
+  static List<CustomLink> read(InputStream input) throws IOException {
+    try (JsonParser parser = JSON_FACTORY.createParser(new GZIPInputStream(input))) {
+      expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+      List<CustomLink> links = new ArrayList<>();
+      boolean versionRead = false;
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        parser.nextToken();
+        if ("version".equals(field)) {
+          if (parser.getIntValue() != VERSION && parser.getIntValue() != VERSION_WITHOUT_DISPLAY_NAMES) {
+            throw new IOException("unsupported version " + parser.getIntValue() + " of custom links");
+          }
+          versionRead = true;
+        } else if ("links".equals(field) && versionRead) {
+          expect(parser, parser.currentToken(), JsonToken.START_ARRAY);
+          readLinks(parser, links);
+        } else {
+          throw new IOException("unexpected field " + field + " in custom links");
+        }
+      }
+      if (!versionRead) {
+        throw new IOException("missing version of custom links");
+      }
+      return links;
+    }
+  }
+
+  private static void readLinks(JsonParser parser, List<CustomLink> links) throws IOException {
+    while (parser.nextToken() == JsonToken.START_ARRAY) {
+      String name = parser.nextTextValue();
+      String url = parser.nextTextValue();
+      Map<String, String> displayNames = null;
+      if (parser.nextToken() == JsonToken.START_OBJECT) {
+        displayNames = new HashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          String language = parser.getCurrentName();
+          displayNames.put(language, parser.nextTextValue());
+        }
+        expect(parser, parser.currentToken(), JsonToken.END_OBJECT);
+        parser.nextToken();
+      }
+      expect(parser, parser.currentToken(), JsonToken.END_ARRAY);
+      links.add(new CustomLink(name, url, displayNames));
+    }
+    expect(parser, parser.currentToken(), JsonToken.END_ARRAY);
+  }
+
+  private static void expect(JsonParser parser, JsonToken token, JsonToken expected) throws IOException {
+    if (token != expected) {
+      throw new IOException("expected " + expected + " but found " + token + " at " + parser.getCurrentLocation());
+    }
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+package com.cloudogu.customlinks;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.store.Blob;
+import sonia.scm.store.BlobStore;
+import sonia.scm.store.BlobStoreFactory;
+import sonia.scm.store.StoreException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Stores all links in a single blob using the {@link CompactCustomLinkFormat}. If the blob does not exist yet, the
+ * links are migrated from the xml storage. The xml storage is left untouched, so it does not contain later changes
+ * and switching back to it loses them.
+ */
+class CompactCustomLinkStorage implements CustomLinkStorage {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CompactCustomLinkStorage.class);
+
+  static final String STORE_NAME = "custom-links-compact";
+  static final String BLOB_ID = "links";
+
+  private final BlobStoreFactory blobStoreFactory;
+  private final CustomLinkStorage migrationSource;
+
+  CompactCustomLinkStorage(BlobStoreFactory blobStoreFactory, CustomLinkStorage migrationSource) {
+    this.blobStoreFactory = blobStoreFactory;
+    this.migrationSource = migrationSource;
+  }
+
+  @Override
+  public List<CustomLink> read() {
+    Blob blob = getStore().get(BLOB_ID);
+    if (blob == null) {
+      return migrate();
+    }
+    try (InputStream input = blob.getInputStream()) {
+      return CompactCustomLinkFormat.read(input);
+    } catch (IOException e) {
+      throw new StoreException("failed to read custom links", e);
+    }
+  }
+
+  private List<CustomLink> migrate() {
+    List<CustomLink> links = migrationSource.read();
+    write(links);
+    LOG.info("migrated {} custom links to compact storage", links.size());
+    return links;
+  }
+
+  @Override
+  public void write(List<CustomLink> links) {
+    BlobStore store = getStore();
+    Blob blob = store.get(BLOB_ID);
+    if (blob == null) {
+      blob = store.create(BLOB_ID);
+    }
+    try {
+      try (OutputStream output = blob.getOutputStream()) {
+        CompactCustomLinkFormat.write(output, links);
+      }
+      blob.commit();
+    } catch (IOException e) {
+      throw new StoreException("failed to write custom links", e);
+    }
+  }
+
+  private BlobStore getStore() {
+    return blobStoreFactory.withName(STORE_NAME).build();
+  }
+}
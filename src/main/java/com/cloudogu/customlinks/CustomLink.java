@@ -19,9 +19,16 @@ package com.cloudogu.customlinks;
 import com.cloudogu.conveyor.GenerateDto;
 import com.cloudogu.conveyor.Include;
 import com.cloudogu.jaxrstie.GenerateLinkBuilder;
+import com.google.common.base.Strings;
 
 import jakarta.validation.constraints.NotEmpty;
+import java.util.Map;
+import java.util.Objects;
 
+/**
+ * A stored link. Everything, which is computed for a response, e.g. the name to show in the language of the request,
+ * is added by the {@link CustomLinkCollectionMapper} with a {@link CustomLinkDetailsDto}.
+ */
 @GenerateDto
 @GenerateLinkBuilder(className = "RestAPI")
 public class CustomLink {
@@ -31,13 +38,24 @@ public class CustomLink {
   @Include
   @NotEmpty
   private String url;
+  // optional names to show instead of the name by language, e.g. "de"
+  @Include
+  @SupportedDisplayNames
+  private Map<String, String> displayNames;
+  // the url parsed once, when the link is created or loaded
+  private transient CustomLinkTemplate template = CustomLinkTemplate.compile(null);
 
   CustomLink() {
   }
 
   public CustomLink(String name, String url) {
+    this(name, url, null);
+  }
+
+  public CustomLink(String name, String url, Map<String, String> displayNames) {
     this.name = name;
-    this.url = url;
+    setUrl(url);
+    setDisplayNames(displayNames);
   }
 
   public String getName() {
@@ -54,5 +72,40 @@ public class CustomLink {
 
   public void setUrl(String url) {
     this.url = url;
+    this.template = CustomLinkTemplate.compile(url);
+  }
+
+  CustomLinkTemplate getTemplate() {
+    return template;
+  }
+
+  public Map<String, String> getDisplayNames() {
+    return displayNames;
+  }
+
+  public void setDisplayNames(Map<String, String> displayNames) {
+    // links without display names are the common case, so we do not keep empty maps
+    this.displayNames = displayNames == null || displayNames.isEmpty() ? null : displayNames;
+  }
+
+  /**
+   * Returns the name to show for the given language, which is the name itself, if there is no display name for the
+   * language.
+   */
+  String resolveDisplayName(String language) {
+    if (displayNames == null) {
+      return name;
+    }
+    String localized = displayNames.get(language);
+    return Strings.isNullOrEmpty(localized) ? name : localized;
+  }
+
+  /**
+   * Returns {@code true}, if the other link has the same stored content, that is name, url and display names.
+   */
+  boolean isSameAs(CustomLink other) {
+    return name.equals(other.name)
+      && Objects.equals(url, other.url)
+      && Objects.equals(displayNames, other.displayNames);
   }
 }
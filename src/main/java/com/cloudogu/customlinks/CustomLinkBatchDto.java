@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.customlinks;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import java.util.ArrayList;
+import java.util.List;
+
+public class CustomLinkBatchDto {
+
+  private boolean replace;
+  @Valid
+  @NotNull
+  private List<CustomLinkDto> add = new ArrayList<>();
+  @NotNull
+  private List<@NotEmpty String> remove = new ArrayList<>();
+
+  public boolean isReplace() {
+    return replace;
+  }
+
+  public void setReplace(boolean replace) {
+    this.replace = replace;
+  }
+
+  public List<CustomLinkDto> getAdd() {
+    return add;
+  }
+
+  public void setAdd(List<CustomLinkDto> add) {
+    this.add = add;
+  }
+
+  public List<String> getRemove() {
+    return remove;
+  }
+
+  public void setRemove(List<String> remove) {
+    this.remove = remove;
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.customlinks;
+
+/**
+ * Result of a change of a single link. The version lets clients tell their own changes apart from the changes of
+ * others, which are announced by events.
+ */
+public class CustomLinkChangeDto {
+
+  private final String version;
+  private final Integer position;
+  private final CustomLinkDetailsDto customLink;
+
+  CustomLinkChangeDto(String version, Integer position, CustomLinkDetailsDto customLink) {
+    this.version = version;
+    this.position = position;
+    this.customLink = customLink;
+  }
+
+  public String getVersion() {
+    return version;
+  }
+
+  /**
+   * Position of the changed link, {@code null} if it has been removed.
+   */
+  public Integer getPosition() {
+    return position;
+  }
+
+  public CustomLinkDetailsDto getCustomLink() {
+    return customLink;
+  }
+}
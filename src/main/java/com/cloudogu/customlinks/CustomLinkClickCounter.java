@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+package com.cloudogu.customlinks;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.store.Blob;
+import sonia.scm.store.BlobStore;
+import sonia.scm.store.BlobStoreFactory;
+import sonia.scm.store.ConfigurationStoreFactory;
+import sonia.scm.store.StoreException;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the clicks on the custom links. A click only increments an in-memory counter, which is striped to avoid
+ * contention between concurrent clicks. A flush adds the clicks counted since the last flush to the counts of this
+ * node, which are stored in a blob of their own. Nodes sharing the same store never write the blob of another node,
+ * so no click gets lost, and the totals are the sum of the counts of all nodes.
+ */
+@Singleton
+public class CustomLinkClickCounter {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CustomLinkClickCounter.class);
+
+  @VisibleForTesting
+  static final String STORE_NAME = "custom-links-clicks";
+  // the counts of the single store, which has been written by all nodes before
+  @VisibleForTesting
+  static final String MIGRATED_BLOB_ID = "migrated";
+  private static final String NODE_BLOB_PREFIX = "node-";
+
+  private final BlobStoreFactory blobStoreFactory;
+  private final ConfigurationStoreFactory storeFactory;
+  private final CustomLinkConfigStore configStore;
+  private final String blobId;
+
+  // clicks since the last flush by link name
+  private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+  private final AtomicLong generation = new AtomicLong();
+
+  // stored counts of this node, only accessed during a flush
+  private Map<String, Long> own;
+  // totals of all nodes at the last flush, which are shown to the users
+  private volatile Map<String, Long> flushed;
+
+  @Inject
+  public CustomLinkClickCounter(BlobStoreFactory blobStoreFactory,
+                                ConfigurationStoreFactory storeFactory,
+                                CustomLinkConfigStore configStore,
+                                CustomLinksSettings settings) {
+    this.blobStoreFactory = blobStoreFactory;
+    this.storeFactory = storeFactory;
+    this.configStore = configStore;
+    this.blobId = NODE_BLOB_PREFIX + settings.getClickNodeId().replaceAll("[^A-Za-z0-9._-]", "_");
+  }
+
+  /**
+   * Counts a click on the link with the given name.
+   *
+   * @return {@code false}, if there is no link with the given name
+   */
+  public boolean click(String name) {
+    if (!configStore.containsLink(name)) {
+      return false;
+    }
+    LongAdder counter = counters.get(name);
+    if (counter == null) {
+      counter = counters.computeIfAbsent(name, n -> new LongAdder());
+    }
+    counter.increment();
+    return true;
+  }
+
+  /**
+   * Returns the number of clicks at the last flush.
+   */
+  public long getClicks(String name) {
+    return getFlushed().getOrDefault(name, 0L);
+  }
+
+  /**
+   * Changes with every flush, which changed any count.
+   */
+  public long getGeneration() {
+    return generation.get();
+  }
+
+  /**
+   * Adds the clicks since the last flush to the stored counts of this node and sums up the counts of all nodes.
+   * Counts of links, which no longer exist, are dropped.
+   */
+  public synchronized void flush() {
+    Map<String, Long> current = getFlushed();
+    counters.keySet().removeIf(name -> !configStore.containsLink(name));
+
+    if (own == null) {
+      own = read(getStore().get(blobId));
+    }
+    Map<String, Long> counts = new HashMap<>(own);
+    counts.keySet().removeIf(name -> !configStore.containsLink(name));
+    Map<String, Long> clicks = new HashMap<>();
+    counters.forEach((name, counter) -> {
+      long sum = counter.sum();
+      if (sum > 0) {
+        clicks.put(name, sum);
+        counts.merge(name, sum, Long::sum);
+      }
+    });
+    if (!counts.equals(own)) {
+      write(counts);
+      own = ImmutableMap.copyOf(counts);
+    }
+    // subtracts instead of resetting the counters, so that clicks counted during the flush are kept for the next one
+    clicks.forEach((name, sum) -> counters.get(name).add(-sum));
+
+    // the counts of the other nodes are read again, because they may have added their clicks in the meantime
+    Map<String, Long> changed = readTotals();
+    if (!changed.equals(current)) {
+      flushed = changed;
+      generation.incrementAndGet();
+    }
+  }
+
+  private Map<String, Long> getFlushed() {
+    Map<String, Long> current = flushed;
+    if (current == null) {
+      return load();
+    }
+    return current;
+  }
+
+  private synchronized Map<String, Long> load() {
+    if (flushed == null) {
+      migrate();
+      flushed = readTotals();
+    }
+    return flushed;
+  }
+
+  // the same counts are written by every node, which starts before the migrated blob exists
+  private void migrate() {
+    BlobStore store = getStore();
+    if (store.get(MIGRATED_BLOB_ID) != null) {
+      return;
+    }
+    CustomLinkClicks stored = storeFactory.withType(CustomLinkClicks.class).withName(STORE_NAME).build().get();
+    if (stored != null && !stored.getClicks().isEmpty()) {
+      LOG.info("moving the click counts of custom links to the counts by node");
+      write(store, MIGRATED_BLOB_ID, stored.getClicks());
+    }
+  }
+
+  private Map<String, Long> readTotals() {
+    Map<String, Long> totals = new HashMap<>();
+    for (Blob blob : getStore().getAll()) {
+      read(blob).forEach((name, count) -> {
+        if (configStore.containsLink(name)) {
+          totals.merge(name, count, Long::sum);
+        }
+      });
+    }
+    return ImmutableMap.copyOf(totals);
+  }
+
+  private static Map<String, Long> read(Blob blob) {
+    if (blob == null) {
+      return ImmutableMap.of();
+    }
+    Properties properties = new Properties();
+    try (InputStream input = blob.getInputStream()) {
+      properties.load(input);
+    } catch (IOException e) {
+      throw new StoreException("failed to read click counts of custom links from " + blob.getId(), e);
+    }
+    Map<String, Long> counts = new HashMap<>();
+    properties.stringPropertyNames().forEach(name -> counts.put(name, Long.parseLong(properties.getProperty(name))));
+    return ImmutableMap.copyOf(counts);
+  }
+
+  private void write(Map<String, Long> counts) {
+    write(getStore(), blobId, counts);
+  }
+
+  private static void write(BlobStore store, String id, Map<String, Long> counts) {
+    Properties properties = new Properties();
+    counts.forEach((name, count) -> properties.setProperty(name, String.valueOf(count)));
+    Blob blob = store.get(id);
+    if (blob == null) {
+      blob = store.create(id);
+    }
+    try {
+      try (OutputStream output = blob.getOutputStream()) {
+        properties.store(output, null);
+      }
+      blob.commit();
+    } catch (IOException e) {
+      throw new StoreException("failed to write click counts of custom links", e);
+    }
+  }
+
+  private BlobStore getStore() {
+    return blobStoreFactory.withName(STORE_NAME).build();
+  }
+}
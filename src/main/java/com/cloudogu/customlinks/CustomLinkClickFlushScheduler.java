@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+package com.cloudogu.customlinks;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.plugin.Extension;
+
+import jakarta.inject.Inject;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the click counts periodically and once more on shutdown.
+ */
+@Extension
+public class CustomLinkClickFlushScheduler implements ServletContextListener {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CustomLinkClickFlushScheduler.class);
+
+  private final CustomLinkClickCounter clickCounter;
+  private final CustomLinksSettings settings;
+
+  private ScheduledExecutorService executor;
+
+  @Inject
+  public CustomLinkClickFlushScheduler(CustomLinkClickCounter clickCounter, CustomLinksSettings settings) {
+    this.clickCounter = clickCounter;
+    this.settings = settings;
+  }
+
+  @Override
+  public void contextInitialized(ServletContextEvent event) {
+    long interval = settings.getClickFlushInterval();
+    executor = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder().setNameFormat("CustomLinkClickFlush").setDaemon(true).build()
+    );
+    executor.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  private void flush() {
+    try {
+      clickCounter.flush();
+    } catch (RuntimeException e) {
+      // an exception would cancel all further flushes
+      LOG.warn("failed to write click counts of custom links", e);
+    }
+  }
+
+  @Override
+  public void contextDestroyed(ServletContextEvent event) {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+    flush();
+  }
+}
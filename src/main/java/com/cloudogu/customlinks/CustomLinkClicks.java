@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+package com.cloudogu.customlinks;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Number of clicks by link name, as written by former versions of all nodes to a single store. These counts are only
+ * read once to move them to the {@link CustomLinkClickCounter counts by node}.
+ */
+@XmlRootElement(name = "custom-links-clicks")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class CustomLinkClicks {
+
+  private Map<String, Long> clicks = new HashMap<>();
+
+  CustomLinkClicks() {
+  }
+
+  public CustomLinkClicks(Map<String, Long> clicks) {
+    this.clicks = new HashMap<>(clicks);
+  }
+
+  public Map<String, Long> getClicks() {
+    return clicks;
+  }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+package com.cloudogu.customlinks;
+
+import de.otto.edison.hal.Embedded;
+import de.otto.edison.hal.HalRepresentation;
+import de.otto.edison.hal.Links;
+
+@SuppressWarnings("java:S2160") // we do not need equals for dto
+public class CustomLinkCollectionDto extends HalRepresentation {
+
+  private final int page;
+  private final int pageTotal;
+
+  CustomLinkCollectionDto(Links links, Embedded embedded, int page, int pageTotal) {
+    super(links, embedded);
+    this.page = page;
+    this.pageTotal = pageTotal;
+  }
+
+  public int getPage() {
+    return page;
+  }
+
+  public int getPageTotal() {
+    return pageTotal;
+  }
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.customlinks;
+
+import de.otto.edison.hal.Embedded;
+import de.otto.edison.hal.HalRepresentation;
+import de.otto.edison.hal.Link;
+import de.otto.edison.hal.Links;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+@Singleton
+class CustomLinkCollectionMapper {
+
+  // used for the shared dtos, links with the username are mapped for each request with the actual values
+  private static final CustomLinkTemplate.Values STATIC_VALUES = CustomLinkTemplate.Values.of(null, null, null);
+
+  private final CustomLinkUrls urls;
+  private final CustomLinkHealth health;
+  private final CustomLinkClickCounter clickCounter;
+
+  // dtos without any permission dependent links, shared by all requests for the same version and language
+  private volatile ReadOnlyDtos readOnlyDtos;
+
+  @Inject
+  CustomLinkCollectionMapper(CustomLinkUrls urls, CustomLinkHealth health, CustomLinkClickCounter clickCounter) {
+    this.urls = urls;
+    this.health = health;
+    this.clickCounter = clickCounter;
+  }
+
+  /**
+   * Changes whenever the manage view changes without a new revision of the links, that is after a changed result of
+   * the health check or after new clicks have been written.
+   */
+  long getManageGeneration() {
+    // both generations only grow, so does their sum
+    return health.getGeneration() + clickCounter.getGeneration();
+  }
+
+  /**
+   * Maps all links. The read only view shows the display names of the given language, one of
+   * {@link CustomLinkLanguages#SUPPORTED}, the manage view contains the display names of all languages.
+   */
+  HalRepresentation map(URI baseUri, String version, Collection<CustomLink> customLinks, boolean mayManageLinks, String language) {
+    List<CustomLinkDto> linkDtos;
+    if (mayManageLinks) {
+      linkDtos = mapCustomLinksToDtosWithManageLinks(baseUri, customLinks);
+    } else {
+      linkDtos = getReadOnlyDtos(version, customLinks, CustomLinkTemplate.Values.forCurrentUser(), language);
+    }
+    return new HalRepresentation(createCollectionLinks(baseUri, mayManageLinks), Embedded.embedded("customLinks", linkDtos));
+  }
+
+  /**
+   * Maps a single page of the given links, which are expected to be in the order to show.
+   */
+  HalRepresentation mapPage(URI baseUri,
+                            List<CustomLink> customLinks,
+                            int page,
+                            int pageSize,
+                            String namePrefix,
+                            boolean mayManageLinks,
+                            String language) {
+    int pageTotal = Math.max(1, (customLinks.size() + pageSize - 1) / pageSize);
+    int from = (int) Math.min((long) page * pageSize, customLinks.size());
+    int to = Math.min(from + pageSize, customLinks.size());
+    List<CustomLink> linksOfPage = customLinks.subList(from, to);
+
+    List<CustomLinkDto> linkDtos;
+    if (mayManageLinks) {
+      linkDtos = mapCustomLinksToDtosWithManageLinks(baseUri, linksOfPage);
+    } else {
+      CustomLinkTemplate.Values values = CustomLinkTemplate.Values.forCurrentUser();
+      linkDtos = linksOfPage.stream()
+        .map(customLink -> readOnlyDto(customLink, values, language))
+        .collect(Collectors.toList());
+    }
+
+    Links.Builder builder = collectionLinksBuilder(baseUri, mayManageLinks)
+      .single(Link.link("self", urls.page(baseUri, page, pageSize, namePrefix)))
+      .single(Link.link("first", urls.page(baseUri, 0, pageSize, namePrefix)))
+      .single(Link.link("last", urls.page(baseUri, pageTotal - 1, pageSize, namePrefix)));
+    if (page > 0) {
+      builder.single(Link.link("prev", urls.page(baseUri, Math.min(page, pageTotal) - 1, pageSize, namePrefix)));
+    }
+    if (page < pageTotal - 1) {
+      builder.single(Link.link("next", urls.page(baseUri, page + 1, pageSize, namePrefix)));
+    }
+
+    return new CustomLinkCollectionDto(builder.build(), Embedded.embedded("customLinks", linkDtos), page, pageTotal);
+  }
+
+  private Links createCollectionLinks(URI baseUri, boolean mayManageLinks) {
+    return collectionLinksBuilder(baseUri, mayManageLinks)
+      .single(Link.link("self", urls.collection(baseUri)))
+      .build();
+  }
+
+  private Links.Builder collectionLinksBuilder(URI baseUri, boolean mayManageLinks) {
+    // all collection operations share the same url
+    String collectionUrl = urls.collection(baseUri);
+    Links.Builder builder = Links.linkingTo();
+    builder.single(Link.link("events", urls.events(baseUri)));
+    if (mayManageLinks) {
+      builder.single(Link.link("addLink", collectionUrl));
+      builder.single(Link.link("applyBatch", collectionUrl));
+      builder.single(Link.link("export", urls.exportLinks(baseUri)));
+      builder.single(Link.link("import", urls.importLinks(baseUri)));
+    }
+    return builder;
+  }
+
+  /**
+   * Returns the links without any permission dependent links, e.g. to embed them into other resources.
+   */
+  List<HalRepresentation> mapReadOnly(String version, Collection<CustomLink> customLinks, String language) {
+    return Collections.unmodifiableList(
+      getReadOnlyDtos(version, customLinks, CustomLinkTemplate.Values.forCurrentUser(), language)
+    );
+  }
+
+  /**
+   * Like {@link #mapReadOnly(String, Collection, String)} but without sharing the dtos, for links which are not part
+   * of a version, e.g. the links of a repository.
+   */
+  List<HalRepresentation> mapReadOnly(Collection<CustomLink> customLinks, CustomLinkTemplate.Values values, String language) {
+    return customLinks.stream()
+      .map(customLink -> readOnlyDto(customLink, values, language))
+      .collect(Collectors.toUnmodifiableList());
+  }
+
+  /**
+   * Returns {@code true}, if the read only view of the given version differs from user to user, because at least
+   * one url contains the {@code {username}} placeholder.
+   */
+  boolean isUserDependent(String version, Collection<CustomLink> customLinks) {
+    return getReadOnlyDtos(version, customLinks).userDependent;
+  }
+
+  /**
+   * Maps the links of a namespace or a repository. Only the links of the scope itself can be managed here, the
+   * optional resolved links contain all links to show for the scope, including the global ones.
+   */
+  HalRepresentation mapScope(String scopeUrl,
+                             List<CustomLink> scopeLinks,
+                             List<CustomLink> resolvedLinks,
+                             boolean mayManageLinks,
+                             CustomLinkTemplate.Values values,
+                             String language) {
+    Links.Builder links = Links.linkingTo().single(Link.link("self", scopeUrl));
+    List<CustomLinkDto> linkDtos;
+    if (mayManageLinks) {
+      links.single(Link.link("addLink", scopeUrl));
+      linkDtos = scopeLinks.stream()
+        .map(customLink -> CustomLinkDto.from(
+          customLink,
+          Links.linkingTo().single(Link.link("delete", urls.scopedLink(scopeUrl, customLink))).build()
+        ))
+        .collect(Collectors.toList());
+    } else {
+      linkDtos = scopeLinks.stream()
+        .map(customLink -> readOnlyDto(customLink, values, language))
+        .collect(Collectors.toList());
+    }
+    Embedded.Builder embedded = Embedded.embeddedBuilder().with("customLinks", linkDtos);
+    if (resolvedLinks != null) {
+      embedded.with("resolvedLinks", mapReadOnly(resolvedLinks, values, language));
+    }
+    return new HalRepresentation(links.build(), embedded.build());
+  }
+
+  private List<CustomLinkDto> getReadOnlyDtos(String version,
+                                              Collection<CustomLink> customLinks,
+                                              CustomLinkTemplate.Values values,
+                                              String language) {
+    ReadOnlyDtos current = getReadOnlyDtos(version, customLinks);
+    List<CustomLinkDto> shared = current.byLanguage.computeIfAbsent(
+      language,
+      l -> customLinks.stream()
+        .map(customLink -> readOnlyDto(customLink, STATIC_VALUES, l))
+        .collect(Collectors.toUnmodifiableList())
+    );
+    if (!current.userDependent) {
+      return shared;
+    }
+    // only the links with the username are mapped for each request, all others are shared
+    List<CustomLinkDto> dtos = new ArrayList<>(shared);
+    int index = 0;
+    for (CustomLink customLink : customLinks) {
+      if (customLink.getTemplate().contains(CustomLinkTemplate.Placeholder.USERNAME)) {
+        dtos.set(index, readOnlyDto(customLink, values, language));
+      }
+      index++;
+    }
+    return dtos;
+  }
+
+  private ReadOnlyDtos getReadOnlyDtos(String version, Collection<CustomLink> customLinks) {
+    ReadOnlyDtos current = readOnlyDtos;
+    if (current == null || !current.version.equals(version)) {
+      boolean userDependent = customLinks.stream()
+        .anyMatch(customLink -> customLink.getTemplate().contains(CustomLinkTemplate.Placeholder.USERNAME));
+      current = new ReadOnlyDtos(version, userDependent);
+      readOnlyDtos = current;
+    }
+    return current;
+  }
+
+  // the read only views contain only the name to show and the expanded url, the manage view shows the templates and
+  // the display names of all languages to edit them
+  private static CustomLinkDto readOnlyDto(CustomLink customLink, CustomLinkTemplate.Values values, String language) {
+    CustomLinkDetailsDto dto = CustomLinkDetailsDto.of(customLink, Links.emptyLinks());
+    dto.setDisplayNames(null);
+    dto.setDisplayName(customLink.resolveDisplayName(language));
+    CustomLinkTemplate template = customLink.getTemplate();
+    if (!template.isStatic()) {
+      dto.setUrl(template.expand(values));
+    }
+    return dto;
+  }
+
+  private List<CustomLinkDto> mapCustomLinksToDtosWithManageLinks(URI baseUri, Collection<CustomLink> customLinks) {
+    return customLinks.stream()
+      .map(customLink -> manageDto(baseUri, customLink))
+      .collect(Collectors.toList());
+  }
+
+  /**
+   * Maps a single link for users, who may manage the links.
+   */
+  CustomLinkDetailsDto manageDto(URI baseUri, CustomLink customLink) {
+    CustomLinkDetailsDto dto = CustomLinkDetailsDto.of(
+      customLink,
+      Links.linkingTo()
+        .single(Link.link("delete", urls.link(baseUri, customLink)))
+        .single(Link.link("move", urls.move(baseUri, customLink)))
+        .build()
+    );
+    // the results of the health check and the clicks are only of interest for users, who manage the links
+    dto.setStatus(health.getStatus(customLink.getUrl()));
+    dto.setClicks(clickCounter.getClicks(customLink.getName()));
+    return dto;
+  }
+
+  private static final class ReadOnlyDtos {
+    private final String version;
+    private final boolean userDependent;
+    // computed on the first request for a language, there is at most one entry per supported language
+    private final Map<String, List<CustomLinkDto>> byLanguage = new ConcurrentHashMap<>();
+
+    private ReadOnlyDtos(String version, boolean userDependent) {
+      this.version = version;
+      this.userDependent = userDependent;
+    }
+  }
+}
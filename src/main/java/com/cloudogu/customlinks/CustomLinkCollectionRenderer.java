@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.customlinks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import java.net.URI;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the serialized custom link collections for the read only and the manage view per base uri. The serialized
+ * collections are only rebuilt after the links have changed, the manage view also after its generation has changed.
+ */
+@Singleton
+class CustomLinkCollectionRenderer {
+
+  // the base uri is derived from the request, so we have to limit the number of cached entries
+  private static final int MAX_BASE_URIS = 16;
+  // views for links with the username are cached for the most active users only
+  private static final int MAX_USERS = 1024;
+
+  private final CustomLinkCollectionMapper collectionMapper;
+  private final ObjectMapper objectMapper;
+
+  private final Cache<URI, RenderedCollections> cache = CacheBuilder.newBuilder()
+    .maximumSize(MAX_BASE_URIS)
+    .build();
+
+  @Inject
+  CustomLinkCollectionRenderer(CustomLinkCollectionMapper collectionMapper, ObjectMapper objectMapper) {
+    this.collectionMapper = collectionMapper;
+    this.objectMapper = objectMapper;
+  }
+
+  /**
+   * Returns the serialized links. The language is one of {@link CustomLinkLanguages#SUPPORTED} and only used for
+   * the read only view.
+   */
+  byte[] render(URI baseUri, String version, Collection<CustomLink> customLinks, boolean mayManageLinks, String language) {
+    RenderedCollections rendered = cache.getIfPresent(baseUri);
+    if (rendered == null || !rendered.version.equals(version)) {
+      rendered = new RenderedCollections(version);
+      cache.put(baseUri, rendered);
+    }
+
+    if (mayManageLinks) {
+      long generation = collectionMapper.getManageGeneration();
+      RenderedView manage = rendered.manage;
+      if (manage == null || manage.generation != generation) {
+        manage = new RenderedView(generation, serialize(baseUri, version, customLinks, true, language));
+        rendered.manage = manage;
+      }
+      return manage.content;
+    }
+    if (collectionMapper.isUserDependent(version, customLinks)) {
+      // the language never contains a slash
+      String key = language + "/" + Strings.nullToEmpty(CustomLinkTemplate.Values.currentUsername());
+      byte[] content = rendered.readOnlyByUser.getIfPresent(key);
+      if (content == null) {
+        content = serialize(baseUri, version, customLinks, false, language);
+        rendered.readOnlyByUser.put(key, content);
+      }
+      return content;
+    }
+    return rendered.readOnly.computeIfAbsent(
+      language, l -> serialize(baseUri, version, customLinks, false, l)
+    );
+  }
+
+  private byte[] serialize(URI baseUri, String version, Collection<CustomLink> customLinks, boolean mayManageLinks, String language) {
+    try {
+      return objectMapper.writeValueAsBytes(collectionMapper.map(baseUri, version, customLinks, mayManageLinks, language));
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("failed to serialize custom links", e);
+    }
+  }
+
+  private static final class RenderedCollections {
+    private final String version;
+    // read only views by language, at most one per supported language
+    private final Map<String, byte[]> readOnly = new ConcurrentHashMap<>();
+    // concurrent requests may serialize the same view twice, which does no harm
+    private volatile RenderedView manage;
+    private final Cache<String, byte[]> readOnlyByUser = CacheBuilder.newBuilder()
+      .maximumSize(MAX_USERS)
+      .build();
+
+    private RenderedCollections(String version) {
+      this.version = version;
+    }
+  }
+
+  private static final class RenderedView {
+    private final long generation;
+    private final byte[] content;
+
+    private RenderedView(long generation, byte[] content) {
+      this.generation = generation;
+      this.content = content;
+    }
+  }
+}
@@ -17,39 +17,581 @@
 package com.cloudogu.customlinks;
 
 import com.google.common.annotations.VisibleForTesting;
-import sonia.scm.store.ConfigurationEntryStore;
-import sonia.scm.store.ConfigurationEntryStoreFactory;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.ConcurrentModificationException;
+import sonia.scm.event.ScmEventBus;
+import sonia.scm.store.ConfigurationStore;
+import sonia.scm.store.ConfigurationStoreFactory;
 
 import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
+import static sonia.scm.ContextEntry.ContextBuilder.entity;
+import static sonia.scm.NotFoundException.notFound;
+
+@Singleton
 public class CustomLinkConfigStore {
 
+  private static final Logger LOG = LoggerFactory.getLogger(CustomLinkConfigStore.class);
+
   @VisibleForTesting
-  public static final String STORE_NAME = "custom-links";
+  public static final String REVISION_STORE_NAME = "custom-links-revision";
+
+  // a write is retried this often, if other nodes change the links while it is prepared
+  private static final int MAX_WRITE_ATTEMPTS = 3;
 
-  private final ConfigurationEntryStoreFactory configurationEntryStoreFactory;
+  static final Comparator<CustomLink> BY_NAME =
+    Comparator.comparing((CustomLink link) -> sortKey(link.getName())).thenComparing(CustomLink::getName);
+
+  private final CustomLinkStorage storage;
+  private final CustomLinkJournal journal;
+  private final ConfigurationStoreFactory configurationStoreFactory;
+  private final CustomLinksMetrics metrics;
+  private final ScmEventBus eventBus;
+  private final long revisionCheckIntervalNanos;
+
+  // immutable, loaded on first access and replaced as a whole on every write
+  private volatile Snapshot snapshot;
+  private volatile long initialLoadNanos = -1;
+  private final AtomicLong nextRevisionCheck = new AtomicLong(System.nanoTime());
+  // changes of all writers waiting for the lock, the writer holding the lock writes them all at once
+  private final Queue<PendingChange> pendingChanges = new ConcurrentLinkedQueue<>();
 
   @Inject
-  public CustomLinkConfigStore(ConfigurationEntryStoreFactory configurationEntryStoreFactory) {
-    this.configurationEntryStoreFactory = configurationEntryStoreFactory;
+  public CustomLinkConfigStore(CustomLinkStorage storage,
+                               CustomLinkJournal journal,
+                               ConfigurationStoreFactory configurationStoreFactory,
+                               CustomLinksMetrics metrics,
+                               ScmEventBus eventBus,
+                               CustomLinksSettings settings) {
+    this.storage = storage;
+    this.journal = journal;
+    this.configurationStoreFactory = configurationStoreFactory;
+    this.metrics = metrics;
+    this.eventBus = eventBus;
+    this.revisionCheckIntervalNanos = TimeUnit.MILLISECONDS.toNanos(settings.getRevisionCheckInterval());
+    metrics.registerLinkCount(this, CustomLinkConfigStore::countLinks);
+    metrics.registerInitialLoadTime(this, CustomLinkConfigStore::getInitialLoadNanos);
+  }
+
+  /**
+   * Returns all links in the order defined by the users.
+   */
+  public List<CustomLink> getAllLinks() {
+    return getSnapshot().links;
+  }
+
+  /**
+   * Returns all links with names starting with the given prefix, ignoring case, sorted by their names.
+   */
+  public List<CustomLink> findLinksByNamePrefix(String prefix) {
+    return getSnapshot().findByNamePrefix(prefix);
+  }
+
+  public boolean containsLink(String name) {
+    return getSnapshot().positions.containsKey(name);
   }
 
-  public Collection<CustomLink> getAllLinks() {
-    return getStore().getAll().values();
+  /**
+   * Returns {@code true}, if the url of at least one link contains the {@code {username}} placeholder, which is
+   * replaced with the username of the current user.
+   */
+  public boolean hasUserDependentLinks() {
+    return getSnapshot().userDependent;
   }
 
-  public void addLink(String name, String url) {
+  /**
+   * Returns the revision of the current link set. The revision is persisted and changes with every write, so it is
+   * the same on all nodes sharing the storage and it is never reused, not even after a restart.
+   */
+  public long getRevision() {
+    return getSnapshot().revision;
+  }
+
+  /**
+   * Returns the version of the current link set, that is the revision together with the id of the write. Two nodes
+   * may write the same revision concurrently, only the version tells their links apart.
+   */
+  public String getVersion() {
+    return getSnapshot().version;
+  }
+
+  /**
+   * Adds a new link at the end or changes the url of an existing link, keeping its position. Returns the links
+   * containing the change.
+   */
+  public Snapshot addLink(String name, String url) {
+    return addLink(name, url, null);
+  }
+
+  /**
+   * Like {@link #addLink(String, String)} with optional display names by language.
+   */
+  public Snapshot addLink(String name, String url, Map<String, String> displayNames) {
     PermissionCheck.checkManageCustomLinks();
-    getStore().put(name, new CustomLink(name, url));
+    return update(current -> {
+      CustomLink link = new CustomLink(name, url, displayNames);
+      List<CustomLink> links = new ArrayList<>(current.links);
+      Integer position = current.positions.get(name);
+      if (position == null) {
+        links.add(link);
+      } else {
+        links.set(position, link);
+      }
+      return links;
+    });
   }
 
-  public void removeLink(String name) {
+  public Snapshot removeLink(String name) {
     PermissionCheck.checkManageCustomLinks();
-    getStore().remove(name);
+    return update(current -> {
+      List<CustomLink> links = new ArrayList<>(current.links);
+      Integer position = current.positions.get(name);
+      if (position != null) {
+        links.remove((int) position);
+      }
+      return links;
+    });
+  }
+
+  /**
+   * Moves the link with the given name to the given position. Positions greater than the last position move the link
+   * to the end.
+   */
+  public Snapshot moveLink(String name, int position) {
+    PermissionCheck.checkManageCustomLinks();
+    return update(current -> {
+      Integer from = current.positions.get(name);
+      if (from == null) {
+        throw notFound(entity(CustomLink.class, name));
+      }
+      List<CustomLink> links = new ArrayList<>(current.links);
+      int to = Math.min(Math.max(position, 0), links.size() - 1);
+      links.add(to, links.remove((int) from));
+      return links;
+    });
+  }
+
+  /**
+   * Applies all changes at once. If <code>replace</code> is set, all links not contained in
+   * <code>linksToAdd</code> are removed and the links are ordered like <code>linksToAdd</code>. Otherwise new links
+   * are added at the end.
+   */
+  public void applyBatch(boolean replace, Collection<CustomLink> linksToAdd, Collection<String> namesToRemove) {
+    PermissionCheck.checkManageCustomLinks();
+    update(current -> {
+      Map<String, CustomLink> target = new LinkedHashMap<>();
+      if (!replace) {
+        current.links.forEach(link -> target.put(link.getName(), link));
+        namesToRemove.forEach(target::remove);
+      }
+      linksToAdd.forEach(link -> target.put(
+        link.getName(), new CustomLink(link.getName(), link.getUrl(), link.getDisplayNames())
+      ));
+      return new ArrayList<>(target.values());
+    });
+  }
+
+  /**
+   * Computes the new links from the current links and stores them together with a new revision, if they differ from
+   * the current links. Changes of concurrent writers are coalesced into a single write. If another node has changed
+   * the links in the meantime, the changes are applied again to the links of the other node. Before the storage is
+   * changed, the new links are appended to the journal, so that an interrupted write can be completed on the next
+   * start. Returns the links after the write containing the change.
+   */
+  private Snapshot update(Function<Snapshot, List<CustomLink>> change) {
+    PendingChange pending = new PendingChange(change);
+    pendingChanges.add(pending);
+    synchronized (this) {
+      // the change may have been written by another writer together with its own change
+      if (!pending.done) {
+        writePendingChanges();
+      }
+    }
+    if (pending.failure != null) {
+      throw pending.failure;
+    }
+    return pending.result;
+  }
+
+  private void writePendingChanges() {
+    // changes added after this point are written by their own writers
+    List<PendingChange> changes = new ArrayList<>();
+    PendingChange pending;
+    while ((pending = pendingChanges.poll()) != null) {
+      changes.add(pending);
+    }
+    try {
+      int attempt = 1;
+      while (!tryWrite(changes)) {
+        if (attempt++ >= MAX_WRITE_ATTEMPTS) {
+          throw new ConcurrentModificationException(entity(CustomLinkList.class, "custom-links").build());
+        }
+        LOG.debug("custom links have been changed by another node while writing, applying the changes again");
+      }
+      // later writes cannot have happened yet, because they need the lock of the store
+      Snapshot written = snapshot;
+      changes.forEach(change -> change.complete(written));
+    } catch (RuntimeException e) {
+      changes.forEach(change -> change.fail(e));
+    }
+  }
+
+  /**
+   * Applies the changes to the current links and writes them, unless another node has written a new revision after
+   * the current links have been read. Returns {@code false} in this case, without writing anything.
+   */
+  private boolean tryWrite(List<PendingChange> changes) {
+    Snapshot current = getSnapshotForWrite();
+    Snapshot changed = current;
+    int applied = 0;
+    for (PendingChange pending : changes) {
+      pending.rejection = null;
+      try {
+        changed = new Snapshot(pending.change.apply(changed), current.revision);
+        applied++;
+      } catch (RuntimeException e) {
+        pending.rejection = e;
+      }
+    }
+    if (applied == 0 || isUnchanged(current.links, changed.links)) {
+      return true;
+    }
+    // the storage offers no atomic compare and set, so the revision is read again right before the write
+    if (!isPersisted(current, readRevision())) {
+      return false;
+    }
+    write(current, changed.links);
+    metrics.coalescedChanges().increment(applied);
+    return true;
+  }
+
+  private void write(Snapshot current, List<CustomLink> links) {
+    long revision = current.revision + 1;
+    String writeId = UUID.randomUUID().toString();
+    metrics.storeWrites().record(() -> {
+      journal.append(revision, links);
+      boolean stored = false;
+      try {
+        storage.write(links);
+        stored = true;
+        writeRevision(revision, writeId);
+      } catch (RuntimeException e) {
+        if (stored) {
+          // the links have been written without their revision, so the journal entry is kept and the links are
+          // loaded again on the next access, which completes the write like an interrupted one
+          snapshot = null;
+        } else {
+          // the write has been rejected, it must neither be written again on the next start nor block this revision
+          removeJournalEntry(revision);
+        }
+        throw e;
+      }
+      publish(new Snapshot(links, revision, writeId));
+      journal.prune();
+    });
+  }
+
+  private void removeJournalEntry(long revision) {
+    try {
+      journal.remove(revision);
+    } catch (RuntimeException e) {
+      // the next write with this revision replaces the entry
+      LOG.warn("failed to remove journal entry of failed write of custom links with revision {}", revision, e);
+    }
+  }
+
+  private static boolean isUnchanged(List<CustomLink> current, List<CustomLink> links) {
+    if (current.size() != links.size()) {
+      return false;
+    }
+    for (int i = 0; i < links.size(); i++) {
+      CustomLink a = current.get(i);
+      CustomLink b = links.get(i);
+      if (!a.isSameAs(b)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void publish(Snapshot changed) {
+    snapshot = changed;
+    eventBus.post(new CustomLinksChangedEvent(changed.revision, changed.version));
+  }
+
+  /**
+   * Returns the current links together with their revision. Callers needing more than one of them, e.g. the revision
+   * for an entity tag and the links for the body, must take both from the same snapshot, because a write may replace
+   * the snapshot between two calls.
+   */
+  Snapshot getSnapshot() {
+    Snapshot current = snapshot;
+    if (current == null) {
+      return load();
+    }
+    long now = System.nanoTime();
+    long next = nextRevisionCheck.get();
+    // only one reader checks the persisted revision per interval, all others keep using the snapshot
+    if (now - next >= 0 && nextRevisionCheck.compareAndSet(next, now + revisionCheckIntervalNanos)) {
+      return reloadIfChangedByOtherNode(current);
+    }
+    return current;
+  }
+
+  /**
+   * Reloads the links, if they have been changed by another node, and notifies about the change. The links are
+   * checked periodically in the background, so that clients of this node learn about changes of other nodes, even if
+   * nobody reads the links on this node.
+   */
+  public void checkForChanges() {
+    Snapshot current = snapshot;
+    // links which have not been loaded yet, are read with all changes on the first access
+    if (current != null) {
+      reloadIfChangedByOtherNode(current);
+    }
+  }
+
+  private Snapshot reloadIfChangedByOtherNode(Snapshot current) {
+    if (isPersisted(current, readRevision())) {
+      return current;
+    }
+    synchronized (this) {
+      CustomLinksRevision persisted = readRevision();
+      if (!isPersisted(snapshot, persisted)) {
+        publish(metrics.storeReads().record(() -> readSnapshot(persisted)));
+      }
+      return snapshot;
+    }
+  }
+
+  /**
+   * Returns {@code true}, if the snapshot has the persisted revision, which means that no other node has changed the
+   * links since the snapshot has been read or written.
+   */
+  private static boolean isPersisted(Snapshot current, CustomLinksRevision persisted) {
+    return persisted == null
+      || (persisted.getRevision() == current.revision && Objects.equals(persisted.getWriteId(), current.writeId));
+  }
+
+  /**
+   * Loads the links, unless they have been loaded already. Readers arriving while the links are loaded wait until
+   * loading has finished.
+   */
+  public void warmUp() {
+    getSnapshot();
+  }
+
+  private synchronized Snapshot load() {
+    if (snapshot == null) {
+      long start = System.nanoTime();
+      CustomLinksRevision persistedRevision = readRevision();
+      if (persistedRevision == null) {
+        // start with the current time, so that revisions from before the revision was persisted are not reused
+        persistedRevision = new CustomLinksRevision(System.currentTimeMillis());
+        getRevisionStore().set(persistedRevision);
+      }
+      CustomLinksRevision revision = persistedRevision;
+      snapshot = metrics.storeReads().record(
+        () -> recoverInterruptedWrite(revision.getRevision()).orElseGet(() -> readSnapshot(revision))
+      );
+      initialLoadNanos = System.nanoTime() - start;
+    }
+    return snapshot;
+  }
+
+  /**
+   * Writes the links of the journal again, if the journal is newer than the persisted revision, because the last
+   * write has been interrupted. The storage is not read before, because it may have been left half written.
+   */
+  private Optional<Snapshot> recoverInterruptedWrite(long persistedRevision) {
+    return journal.findNewerThan(persistedRevision).map(entry -> {
+      LOG.warn("completing interrupted write of custom links with revision {}", entry.getRevision());
+      storage.write(entry.getLinks());
+      String writeId = UUID.randomUUID().toString();
+      writeRevision(entry.getRevision(), writeId);
+      return new Snapshot(entry.getLinks(), entry.getRevision(), writeId);
+    });
+  }
+
+  /**
+   * Returns the current snapshot including all changes of other nodes. Must be called while holding the lock.
+   */
+  private Snapshot getSnapshotForWrite() {
+    return reloadIfChangedByOtherNode(load());
+  }
+
+  private Snapshot readSnapshot(CustomLinksRevision revision) {
+    return new Snapshot(storage.read(), revision.getRevision(), revision.getWriteId());
+  }
+
+  private CustomLinksRevision readRevision() {
+    return getRevisionStore().get();
+  }
+
+  private void writeRevision(long revision, String writeId) {
+    getRevisionStore().set(new CustomLinksRevision(revision, writeId));
+  }
+
+  private double countLinks() {
+    Snapshot current = snapshot;
+    // do not load the links only to report their number
+    return current == null ? Double.NaN : current.links.size();
+  }
+
+  private double getInitialLoadNanos() {
+    long nanos = initialLoadNanos;
+    return nanos < 0 ? Double.NaN : nanos;
+  }
+
+  private ConfigurationStore<CustomLinksRevision> getRevisionStore() {
+    return configurationStoreFactory.withType(CustomLinksRevision.class).withName(REVISION_STORE_NAME).build();
+  }
+
+  private static final class PendingChange {
+    private final Function<Snapshot, List<CustomLink>> change;
+    // guarded by the lock of the store
+    private boolean done;
+    private RuntimeException failure;
+    private Snapshot result;
+    // set, if the change could not be applied to the links of the last attempt
+    private RuntimeException rejection;
+
+    private PendingChange(Function<Snapshot, List<CustomLink>> change) {
+      this.change = change;
+    }
+
+    private void complete(Snapshot result) {
+      this.failure = rejection;
+      this.result = result;
+      done = true;
+    }
+
+    private void fail(RuntimeException failure) {
+      this.failure = rejection != null ? rejection : failure;
+      done = true;
+    }
+  }
+
+  public static final class Snapshot {
+    private final List<CustomLink> links;
+    // position of every link in links by its name
+    private final Map<String, Integer> positions;
+    private final long revision;
+    // id of the write, which has written the links of this snapshot
+    private final String writeId;
+    private final String version;
+    private final boolean userDependent;
+    // created on the first search by name, most snapshots are never searched
+    private volatile NameIndex nameIndex;
+
+    Snapshot(List<CustomLink> links, long revision) {
+      this(links, revision, null);
+    }
+
+    Snapshot(List<CustomLink> links, long revision, String writeId) {
+      this.links = ImmutableList.copyOf(links);
+      ImmutableMap.Builder<String, Integer> positionsBuilder = ImmutableMap.builderWithExpectedSize(links.size());
+      for (int i = 0; i < links.size(); i++) {
+        positionsBuilder.put(links.get(i).getName(), i);
+      }
+      this.positions = positionsBuilder.build();
+      this.revision = revision;
+      this.writeId = writeId;
+      this.version = writeId == null ? String.valueOf(revision) : revision + "-" + writeId;
+      this.userDependent = links.stream()
+        .anyMatch(link -> link.getTemplate().contains(CustomLinkTemplate.Placeholder.USERNAME));
+    }
+
+    List<CustomLink> getLinks() {
+      return links;
+    }
+
+    long getRevision() {
+      return revision;
+    }
+
+    /**
+     * Identifies the links of this snapshot. Caches and entity tags must use the version instead of the revision,
+     * because the losing write of a concurrent write on another node has the same revision as the winning one.
+     */
+    String getVersion() {
+      return version;
+    }
+
+    boolean isUserDependent() {
+      return userDependent;
+    }
+
+    /**
+     * Returns the position of the link with the given name or {@code null}, if there is no such link.
+     */
+    Integer getPosition(String name) {
+      return positions.get(name);
+    }
+
+    List<CustomLink> findByNamePrefix(String prefix) {
+      NameIndex index = nameIndex;
+      if (index == null) {
+        // concurrent readers may create the index more than once, but all of them create the same index
+        index = new NameIndex(links);
+        nameIndex = index;
+      }
+      return index.findByPrefix(prefix);
+    }
+  }
+
+  private static final class NameIndex {
+    private final List<CustomLink> linksByName;
+    // lower case names in the order of linksByName, used for binary searches
+    private final String[] sortKeys;
+
+    private NameIndex(List<CustomLink> links) {
+      this.linksByName = ImmutableList.sortedCopyOf(BY_NAME, links);
+      this.sortKeys = linksByName.stream().map(link -> sortKey(link.getName())).toArray(String[]::new);
+    }
+
+    private List<CustomLink> findByPrefix(String prefix) {
+      String key = sortKey(prefix);
+      int from = lowerBound(key);
+      // every name starting with the prefix sorts before the prefix followed by the highest character
+      int to = lowerBound(key + Character.MAX_VALUE);
+      return linksByName.subList(from, to);
+    }
+
+    private int lowerBound(String key) {
+      int index = Arrays.binarySearch(sortKeys, key);
+      if (index < 0) {
+        return -index - 1;
+      }
+      // equal keys are possible for names differing only in case
+      while (index > 0 && sortKeys[index - 1].equals(key)) {
+        index--;
+      }
+      return index;
+    }
   }
 
-  private ConfigurationEntryStore<CustomLink> getStore() {
-    return configurationEntryStoreFactory.withType(CustomLink.class).withName(STORE_NAME).build();
+  private static String sortKey(String name) {
+    return name.toLowerCase(Locale.ENGLISH);
   }
 }
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.customlinks;
+
+import de.otto.edison.hal.Links;
+
+/**
+ * The generated {@link CustomLinkDto} with the fields, which are only computed for responses and never stored with
+ * the link. Fields, which are not set for a view, are left out of the response.
+ */
+@SuppressWarnings("java:S2160") // we do not need equals for dto
+public class CustomLinkDetailsDto extends CustomLinkDto {
+
+  // the name to show in the language of the request
+  private String displayName;
+  // result of the last health check
+  private CustomLinkHealth.Status status;
+  // number of clicks at the last flush of the counters
+  private Long clicks;
+
+  CustomLinkDetailsDto(Links links) {
+    super(links);
+  }
+
+  static CustomLinkDetailsDto of(CustomLink customLink, Links links) {
+    CustomLinkDetailsDto dto = new CustomLinkDetailsDto(links);
+    dto.setName(customLink.getName());
+    dto.setUrl(customLink.getUrl());
+    dto.setDisplayNames(customLink.getDisplayNames());
+    return dto;
+  }
+
+  public String getDisplayName() {
+    return displayName;
+  }
+
+  public void setDisplayName(String displayName) {
+    this.displayName = displayName;
+  }
+
+  public CustomLinkHealth.Status getStatus() {
+    return status;
+  }
+
+  public void setStatus(CustomLinkHealth.Status status) {
+    this.status = status;
+  }
+
+  public Long getClicks() {
+    return clicks;
+  }
+
+  public void setClicks(Long clicks) {
+    this.clicks = clicks;
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+package com.cloudogu.customlinks;
+
+import com.github.legman.Subscribe;
+import sonia.scm.EagerSingleton;
+import sonia.scm.plugin.Extension;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.sse.OutboundSseEvent;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseBroadcaster;
+import jakarta.ws.rs.sse.SseEventSink;
+
+/**
+ * Notifies all subscribed clients with the new revision, whenever the custom links have been changed.
+ */
+@Extension
+@EagerSingleton
+public class CustomLinkEventBroadcaster {
+
+  static final String CHANGE_EVENT = "change";
+
+  private final CustomLinkConfigStore configStore;
+
+  private Sse sse;
+  private SseBroadcaster broadcaster;
+
+  @Inject
+  public CustomLinkEventBroadcaster(CustomLinkConfigStore configStore) {
+    this.configStore = configStore;
+  }
+
+  synchronized void register(Sse sse, SseEventSink sink) {
+    if (broadcaster == null) {
+      this.sse = sse;
+      this.broadcaster = sse.newBroadcaster();
+    }
+    broadcaster.register(sink);
+    // the current version lets reconnecting clients detect changes they have missed
+    sink.send(createEvent(configStore.getVersion()));
+  }
+
+  @Subscribe
+  public void handle(CustomLinksChangedEvent event) {
+    SseBroadcaster current;
+    OutboundSseEvent sseEvent;
+    synchronized (this) {
+      if (broadcaster == null) {
+        return;
+      }
+      current = broadcaster;
+      sseEvent = createEvent(event.getVersion());
+    }
+    current.broadcast(sseEvent);
+  }
+
+  private OutboundSseEvent createEvent(String version) {
+    return sse.newEvent(CHANGE_EVENT, version);
+  }
+}
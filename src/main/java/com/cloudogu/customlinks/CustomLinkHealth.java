@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+package com.cloudogu.customlinks;
+
+import jakarta.inject.Singleton;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Results of the last health check by url. The generation changes with every changed result, so that views showing
+ * the results can be rebuilt.
+ */
+@Singleton
+public class CustomLinkHealth {
+
+  public enum Status {
+    /**
+     * The url responded with a success or redirect status code.
+     */
+    OK,
+    /**
+     * The url responded with a client or server error status code.
+     */
+    BROKEN,
+    /**
+     * The url could not be reached in time.
+     */
+    UNREACHABLE
+  }
+
+  private final Map<String, Status> statusByUrl = new ConcurrentHashMap<>();
+  private final AtomicLong generation = new AtomicLong();
+
+  public Status getStatus(String url) {
+    return statusByUrl.get(url);
+  }
+
+  public long getGeneration() {
+    return generation.get();
+  }
+
+  void update(String url, Status status) {
+    if (statusByUrl.put(url, status) != status) {
+      generation.incrementAndGet();
+    }
+  }
+
+  /**
+   * Forgets the results of all urls, which are no longer used.
+   */
+  void retain(Collection<String> urls) {
+    if (statusByUrl.keySet().retainAll(urls)) {
+      generation.incrementAndGet();
+    }
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+package com.cloudogu.customlinks;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.plugin.Extension;
+
+import jakarta.inject.Inject;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks the custom links periodically in the background, if the check has been enabled.
+ */
+@Extension
+public class CustomLinkHealthCheckScheduler implements ServletContextListener {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CustomLinkHealthCheckScheduler.class);
+
+  // gives the server some time to start, before the first check
+  private static final long INITIAL_DELAY = TimeUnit.MINUTES.toMillis(1);
+
+  private final CustomLinkHealthChecker healthChecker;
+  private final CustomLinksSettings settings;
+
+  private ScheduledExecutorService executor;
+
+  @Inject
+  public CustomLinkHealthCheckScheduler(CustomLinkHealthChecker healthChecker, CustomLinksSettings settings) {
+    this.healthChecker = healthChecker;
+    this.settings = settings;
+  }
+
+  @Override
+  public void contextInitialized(ServletContextEvent event) {
+    long interval = settings.getHealthCheckInterval();
+    if (!settings.isHealthCheckEnabled() || interval <= 0) {
+      return;
+    }
+    executor = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder().setNameFormat("CustomLinkHealthCheckScheduler").setDaemon(true).build()
+    );
+    executor.scheduleWithFixedDelay(this::check, Math.min(INITIAL_DELAY, interval), interval, TimeUnit.MILLISECONDS);
+  }
+
+  private void check() {
+    try {
+      healthChecker.check();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (RuntimeException e) {
+      // an exception would cancel all further checks
+      LOG.warn("failed to check custom links", e);
+    }
+  }
+
+  @Override
+  public void contextDestroyed(ServletContextEvent event) {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+    healthChecker.close();
+  }
+}
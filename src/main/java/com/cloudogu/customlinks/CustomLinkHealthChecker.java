@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+package com.cloudogu.customlinks;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.net.ahc.AdvancedHttpClient;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Probes the urls of the custom links. The urls are grouped by host, the urls of a single host are probed one after
+ * another with a pause in between, so that no host gets more than one request at a time. Different hosts are probed
+ * in parallel by a small pool of daemon threads, which is separate from the request threads. The requests are sent
+ * with the http client of the server, so that its proxy settings are used. The threads are started with the first
+ * check, so that a disabled check costs nothing.
+ */
+@Singleton
+public class CustomLinkHealthChecker {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CustomLinkHealthChecker.class);
+
+  private static final int METHOD_NOT_ALLOWED = 405;
+  private static final int NOT_IMPLEMENTED = 501;
+  private static final int FIRST_ERROR_STATUS = 400;
+  private static final String SPAN_KIND = "Custom Link Health Check";
+
+  private final CustomLinkConfigStore configStore;
+  private final CustomLinkHealth health;
+  private final AdvancedHttpClient httpClient;
+  private final long timeout;
+  private final long hostInterval;
+  private final int concurrency;
+  private ThreadPoolExecutor probes;
+  // the http client has no timeout per request, so the requests are sent by threads, which may be abandoned
+  private ThreadPoolExecutor requests;
+
+  @Inject
+  public CustomLinkHealthChecker(CustomLinkConfigStore configStore,
+                                 CustomLinkHealth health,
+                                 AdvancedHttpClient httpClient,
+                                 CustomLinksSettings settings) {
+    this.configStore = configStore;
+    this.health = health;
+    this.httpClient = httpClient;
+    this.timeout = settings.getHealthCheckTimeout();
+    this.hostInterval = settings.getHealthCheckHostInterval();
+    this.concurrency = settings.getHealthCheckConcurrency();
+  }
+
+  /**
+   * Probes all links once and returns after all results are available. Links without a http or https url, e.g.
+   * relative links, and links with placeholders are not checked.
+   */
+  public void check() throws InterruptedException {
+    Map<String, List<URI>> urlsByHost = new LinkedHashMap<>();
+    Set<String> checkedUrls = new LinkedHashSet<>();
+    for (CustomLink customLink : configStore.getAllLinks()) {
+      if (!customLink.getTemplate().isStatic()) {
+        // the url differs from request to request
+        continue;
+      }
+      URI uri = toHttpUri(customLink.getUrl());
+      if (uri != null && checkedUrls.add(customLink.getUrl())) {
+        urlsByHost.computeIfAbsent(uri.getHost().toLowerCase(Locale.ENGLISH), host -> new ArrayList<>()).add(uri);
+      }
+    }
+
+    ExecutorService currentProbes;
+    ExecutorService currentRequests;
+    synchronized (this) {
+      startExecutors();
+      currentProbes = probes;
+      currentRequests = requests;
+    }
+    List<Future<?>> results = new ArrayList<>();
+    try {
+      for (List<URI> urlsOfHost : urlsByHost.values()) {
+        results.add(currentProbes.submit(() -> probeHost(currentRequests, urlsOfHost)));
+      }
+      for (Future<?> result : results) {
+        waitFor(result);
+      }
+    } finally {
+      // only has an effect, if we have been interrupted
+      results.forEach(result -> result.cancel(true));
+    }
+    health.retain(checkedUrls);
+  }
+
+  synchronized void close() {
+    if (probes != null) {
+      probes.shutdownNow();
+      requests.shutdownNow();
+      probes = null;
+      requests = null;
+    }
+  }
+
+  private void startExecutors() {
+    if (probes != null) {
+      return;
+    }
+    probes = new ThreadPoolExecutor(
+      concurrency, concurrency, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(),
+      new ThreadFactoryBuilder().setNameFormat("CustomLinkHealthCheck-%d").setDaemon(true).build()
+    );
+    // the pool is idle between the checks
+    probes.allowCoreThreadTimeOut(true);
+    // every probe waits for one request at a time, the remaining threads are left for abandoned requests, which cannot
+    // be interrupted while the http client waits for a response; further requests are rejected
+    requests = new ThreadPoolExecutor(
+      0, 2 * concurrency, 1, TimeUnit.MINUTES, new SynchronousQueue<>(),
+      new ThreadFactoryBuilder().setNameFormat("CustomLinkHealthCheckRequest-%d").setDaemon(true).build()
+    );
+  }
+
+  private void waitFor(Future<?> result) throws InterruptedException {
+    try {
+      result.get();
+    } catch (ExecutionException e) {
+      LOG.warn("failed to check custom links", e.getCause());
+    }
+  }
+
+  private Void probeHost(ExecutorService requests, List<URI> urls) throws InterruptedException {
+    for (int i = 0; i < urls.size(); i++) {
+      if (i > 0) {
+        Thread.sleep(hostInterval);
+      }
+      URI uri = urls.get(i);
+      CustomLinkHealth.Status status = probe(requests, uri);
+      if (status != null) {
+        health.update(uri.toString(), status);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the status of the url or {@code null}, if too many requests are still waiting for a response, so that
+   * the url could not be checked this time.
+   */
+  private CustomLinkHealth.Status probe(ExecutorService requests, URI uri) throws InterruptedException {
+    Future<Integer> result;
+    try {
+      result = requests.submit(() -> requestStatus(uri.toString()));
+    } catch (RejectedExecutionException e) {
+      LOG.debug("skipping check of custom link {}, too many requests are still waiting for a response", uri);
+      return null;
+    }
+    try {
+      int statusCode = result.get(timeout, TimeUnit.MILLISECONDS);
+      LOG.trace("custom link {} responded with status {}", uri, statusCode);
+      return statusCode < FIRST_ERROR_STATUS ? CustomLinkHealth.Status.OK : CustomLinkHealth.Status.BROKEN;
+    } catch (ExecutionException e) {
+      LOG.debug("custom link {} is not reachable", uri, e.getCause());
+      return CustomLinkHealth.Status.UNREACHABLE;
+    } catch (TimeoutException e) {
+      LOG.debug("custom link {} did not respond within {} ms", uri, timeout);
+      return CustomLinkHealth.Status.UNREACHABLE;
+    } finally {
+      result.cancel(true);
+    }
+  }
+
+  private int requestStatus(String url) throws IOException {
+    int statusCode = httpClient.head(url).spanKind(SPAN_KIND).request().getStatus();
+    if (statusCode == METHOD_NOT_ALLOWED || statusCode == NOT_IMPLEMENTED) {
+      // some servers do not support head requests, the body is never read
+      statusCode = httpClient.get(url).spanKind(SPAN_KIND).request().getStatus();
+    }
+    return statusCode;
+  }
+
+  private static URI toHttpUri(String url) {
+    try {
+      URI uri = new URI(url);
+      String scheme = uri.getScheme();
+      if (uri.getHost() != null && ("http".equalsIgnoreCase(scheme) || "https".equalsIgnoreCase(scheme))) {
+        return uri;
+      }
+    } catch (URISyntaxException e) {
+      LOG.debug("custom link {} has no valid url", url, e);
+    }
+    return null;
+  }
+}
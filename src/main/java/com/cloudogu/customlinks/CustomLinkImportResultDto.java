@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.customlinks;
+
+import java.util.List;
+
+public class CustomLinkImportResultDto {
+
+  private final boolean applied;
+  private final int imported;
+  private final int errorCount;
+  private final List<LineError> errors;
+
+  CustomLinkImportResultDto(boolean applied, int imported, int errorCount, List<LineError> errors) {
+    this.applied = applied;
+    this.imported = imported;
+    this.errorCount = errorCount;
+    this.errors = errors;
+  }
+
+  public boolean isApplied() {
+    return applied;
+  }
+
+  public int getImported() {
+    return imported;
+  }
+
+  public int getErrorCount() {
+    return errorCount;
+  }
+
+  public List<LineError> getErrors() {
+    return errors;
+  }
+
+  public static class LineError {
+
+    private final int line;
+    private final String message;
+
+    LineError(int line, String message) {
+      this.line = line;
+      this.message = message;
+    }
+
+    public int getLine() {
+      return line;
+    }
+
+    public String getMessage() {
+      return message;
+    }
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+package com.cloudogu.customlinks;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.store.Blob;
+import sonia.scm.store.BlobStore;
+import sonia.scm.store.BlobStoreFactory;
+import sonia.scm.store.StoreException;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Append only journal of the complete link sets, which are about to be written. Every write appends an entry before
+ * the storage is changed and removes it again, if the write fails. If the persisted revision is older than the latest
+ * entry, the last write has been interrupted and the entry can be written again. Entries use the
+ * {@link CompactCustomLinkFormat} and only the latest entries are kept.
+ */
+@Singleton
+class CustomLinkJournal {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CustomLinkJournal.class);
+
+  static final String STORE_NAME = "custom-links-journal";
+  static final int RETAINED_ENTRIES = 10;
+
+  // revisions are padded, so that the ids sort like the revisions
+  private static final String ID_FORMAT = "%020d";
+
+  private final BlobStoreFactory blobStoreFactory;
+
+  @Inject
+  CustomLinkJournal(BlobStoreFactory blobStoreFactory) {
+    this.blobStoreFactory = blobStoreFactory;
+  }
+
+  void append(long revision, List<CustomLink> links) {
+    BlobStore store = getStore();
+    String id = String.format(ID_FORMAT, revision);
+    // an entry of a write, which has not been completed, is replaced by the next write with the same revision
+    Blob blob = store.get(id);
+    if (blob == null) {
+      blob = store.create(id);
+    }
+    try {
+      try (OutputStream output = blob.getOutputStream()) {
+        CompactCustomLinkFormat.write(output, links);
+      }
+      blob.commit();
+    } catch (IOException e) {
+      throw new StoreException("failed to append custom links to journal", e);
+    }
+  }
+
+  /**
+   * Returns the latest complete entry, if it is newer than the given revision. An entry which cannot be read has been
+   * interrupted while it was appended, before the storage has been changed, so it is ignored.
+   */
+  Optional<Entry> findNewerThan(long revision) {
+    List<Blob> blobs = new ArrayList<>(getStore().getAll());
+    blobs.sort(Comparator.comparing(Blob::getId).reversed());
+    for (Blob blob : blobs) {
+      long entryRevision = Long.parseLong(blob.getId());
+      if (entryRevision <= revision) {
+        break;
+      }
+      try (InputStream input = blob.getInputStream()) {
+        return Optional.of(new Entry(entryRevision, CompactCustomLinkFormat.read(input)));
+      } catch (IOException e) {
+        LOG.warn("ignoring incomplete custom links journal entry {}", blob.getId(), e);
+      }
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * Removes the entry of a write, which has failed, so that it is not written again on the next start.
+   */
+  void remove(long revision) {
+    getStore().remove(String.format(ID_FORMAT, revision));
+  }
+
+  /**
+   * Removes all entries except the latest ones.
+   */
+  void prune() {
+    BlobStore store = getStore();
+    List<Blob> blobs = new ArrayList<>(store.getAll());
+    if (blobs.size() > RETAINED_ENTRIES) {
+      blobs.sort(Comparator.comparing(Blob::getId));
+      blobs.subList(0, blobs.size() - RETAINED_ENTRIES).forEach(blob -> store.remove(blob.getId()));
+    }
+  }
+
+  private BlobStore getStore() {
+    return blobStoreFactory.withName(STORE_NAME).build();
+  }
+
+  static final class Entry {
+    private final long revision;
+    private final List<CustomLink> links;
+
+    private Entry(long revision, List<CustomLink> links) {
+      this.revision = revision;
+      this.links = links;
+    }
+
+    long getRevision() {
+      return revision;
+    }
+
+    List<CustomLink> getLinks() {
+      return links;
+    }
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.customlinks;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Languages of the user interface, for which the links are shown with their display names. The listings are cached
+ * for each of these languages, so requests for other languages get the listing of the default language.
+ */
+final class CustomLinkLanguages {
+
+  static final String DEFAULT = "en";
+  static final List<String> SUPPORTED = ImmutableList.of(DEFAULT, "de");
+
+  private CustomLinkLanguages() {
+  }
+
+  /**
+   * Returns the first supported language of the given locales, which are expected to be ordered by preference like
+   * the locales of the <code>Accept-Language</code> header.
+   */
+  static String resolve(Iterable<Locale> locales) {
+    for (Locale locale : locales) {
+      String language = locale.getLanguage();
+      if (SUPPORTED.contains(language)) {
+        return language;
+      }
+    }
+    return DEFAULT;
+  }
+}
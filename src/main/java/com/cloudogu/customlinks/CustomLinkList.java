@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.customlinks;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * All global links in their order, stored as a single object, so that a change is written at once.
+ */
+@XmlRootElement(name = "custom-links")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class CustomLinkList {
+
+  @XmlElement(name = "link")
+  private List<CustomLink> links = new ArrayList<>();
+
+  CustomLinkList() {
+  }
+
+  public CustomLinkList(List<CustomLink> links) {
+    this.links = new ArrayList<>(links);
+  }
+
+  public List<CustomLink> getLinks() {
+    return links;
+  }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+package com.cloudogu.customlinks;
+
+import java.util.List;
+
+/**
+ * Persists the custom links together with their order.
+ */
+interface CustomLinkStorage {
+
+  /**
+   * Reads all links in their order.
+   */
+  List<CustomLink> read();
+
+  /**
+   * Replaces all stored links with the given links. The stored links are not read before, so that a broken storage
+   * can be repaired by writing the links again.
+   */
+  void write(List<CustomLink> links);
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+package com.cloudogu.customlinks;
+
+import sonia.scm.store.BlobStoreFactory;
+import sonia.scm.store.ConfigurationEntryStoreFactory;
+import sonia.scm.store.ConfigurationStoreFactory;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Provider;
+
+class CustomLinkStorageProvider implements Provider<CustomLinkStorage> {
+
+  private final CustomLinksSettings settings;
+  private final ConfigurationEntryStoreFactory configurationEntryStoreFactory;
+  private final ConfigurationStoreFactory configurationStoreFactory;
+  private final BlobStoreFactory blobStoreFactory;
+
+  @Inject
+  CustomLinkStorageProvider(CustomLinksSettings settings,
+                            ConfigurationEntryStoreFactory configurationEntryStoreFactory,
+                            ConfigurationStoreFactory configurationStoreFactory,
+                            BlobStoreFactory blobStoreFactory) {
+    this.settings = settings;
+    this.configurationEntryStoreFactory = configurationEntryStoreFactory;
+    this.configurationStoreFactory = configurationStoreFactory;
+    this.blobStoreFactory = blobStoreFactory;
+  }
+
+  @Override
+  public CustomLinkStorage get() {
+    XmlCustomLinkStorage xmlStorage = new XmlCustomLinkStorage(configurationEntryStoreFactory, configurationStoreFactory);
+    if (settings.getStorage() == CustomLinksSettings.Storage.COMPACT) {
+      return new CompactCustomLinkStorage(blobStoreFactory, xmlStorage);
+    }
+    return xmlStorage;
+  }
+}
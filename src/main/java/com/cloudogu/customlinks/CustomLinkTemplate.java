@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.customlinks;
+
+import com.google.common.escape.Escaper;
+import com.google.common.net.UrlEscapers;
+import org.apache.shiro.SecurityUtils;
+import org.apache.shiro.subject.Subject;
+
+import sonia.scm.repository.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The url of a custom link, parsed once into literal parts and placeholders. The placeholders {@code {username}},
+ * {@code {namespace}} and {@code {repository}} are replaced with the encoded values of the current request.
+ * Placeholders without a value in the current context, unknown placeholders and unbalanced braces are kept as they
+ * are.
+ */
+final class CustomLinkTemplate {
+
+  private static final Escaper PATH_SEGMENT_ESCAPER = UrlEscapers.urlPathSegmentEscaper();
+
+  private static final CustomLinkTemplate EMPTY = new CustomLinkTemplate("", new String[]{""}, new Placeholder[0]);
+
+  enum Placeholder {
+    USERNAME("{username}"),
+    NAMESPACE("{namespace}"),
+    REPOSITORY("{repository}");
+
+    private final String token;
+
+    Placeholder(String token) {
+      this.token = token;
+    }
+
+    private static Placeholder of(String url, int start, int end) {
+      for (Placeholder placeholder : values()) {
+        String token = placeholder.token;
+        if (end - start == token.length() && url.startsWith(token, start)) {
+          return placeholder;
+        }
+      }
+      return null;
+    }
+  }
+
+  private final String url;
+  // literals[i] is followed by placeholders[i], the last literal has no placeholder
+  private final String[] literals;
+  private final Placeholder[] placeholders;
+  private final int literalLength;
+
+  private CustomLinkTemplate(String url, String[] literals, Placeholder[] placeholders) {
+    this.url = url;
+    this.literals = literals;
+    this.placeholders = placeholders;
+    int length = 0;
+    for (String literal : literals) {
+      length += literal.length();
+    }
+    this.literalLength = length;
+  }
+
+  static CustomLinkTemplate compile(String url) {
+    if (url == null || url.isEmpty()) {
+      return EMPTY;
+    }
+    List<String> literals = new ArrayList<>();
+    List<Placeholder> placeholders = new ArrayList<>();
+    int literalStart = 0;
+    int open = url.indexOf('{');
+    while (open >= 0) {
+      int close = url.indexOf('}', open);
+      if (close < 0) {
+        break;
+      }
+      Placeholder placeholder = Placeholder.of(url, open, close + 1);
+      if (placeholder != null) {
+        literals.add(url.substring(literalStart, open));
+        placeholders.add(placeholder);
+        literalStart = close + 1;
+      }
+      open = url.indexOf('{', open + 1);
+    }
+    literals.add(url.substring(literalStart));
+    return new CustomLinkTemplate(url, literals.toArray(new String[0]), placeholders.toArray(new Placeholder[0]));
+  }
+
+  String getUrl() {
+    return url;
+  }
+
+  boolean isStatic() {
+    return placeholders.length == 0;
+  }
+
+  boolean contains(Placeholder placeholder) {
+    for (Placeholder p : placeholders) {
+      if (p == placeholder) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  String expand(Values values) {
+    if (placeholders.length == 0) {
+      return url;
+    }
+    int length = literalLength;
+    for (Placeholder placeholder : placeholders) {
+      length += values.lengthOf(placeholder);
+    }
+    StringBuilder expanded = new StringBuilder(length);
+    for (int i = 0; i < placeholders.length; i++) {
+      expanded.append(literals[i]);
+      values.appendTo(expanded, placeholders[i]);
+    }
+    return expanded.append(literals[placeholders.length]).toString();
+  }
+
+  /**
+   * The encoded values of the placeholders for a single request, which are shared by all links of the request. The
+   * username of the current user is resolved with the first link, that contains it.
+   */
+  static final class Values {
+
+    private final String namespace;
+    private final String repository;
+    private String username;
+    private boolean usernameResolved;
+
+    private Values(boolean currentUser, String username, String namespace, String repository) {
+      this.username = encode(username);
+      this.usernameResolved = !currentUser;
+      this.namespace = encode(namespace);
+      this.repository = encode(repository);
+    }
+
+    static Values of(String username, String namespace, String repository) {
+      return new Values(false, username, namespace, repository);
+    }
+
+    static Values forCurrentUser() {
+      return new Values(true, null, null, null);
+    }
+
+    static Values forCurrentUser(String namespace) {
+      return new Values(true, null, namespace, null);
+    }
+
+    static Values forCurrentUser(Repository repository) {
+      return new Values(true, null, repository.getNamespace(), repository.getName());
+    }
+
+    /**
+     * Returns the name of the current user or {@code null} for requests without an user.
+     */
+    static String currentUsername() {
+      Subject subject = SecurityUtils.getSubject();
+      Object principal = subject.getPrincipal();
+      return principal != null ? principal.toString() : null;
+    }
+
+    private static String encode(String value) {
+      return value != null ? PATH_SEGMENT_ESCAPER.escape(value) : null;
+    }
+
+    private String valueOf(Placeholder placeholder) {
+      switch (placeholder) {
+        case USERNAME:
+          return getUsername();
+        case NAMESPACE:
+          return namespace;
+        default:
+          return repository;
+      }
+    }
+
+    private String getUsername() {
+      if (!usernameResolved) {
+        username = encode(currentUsername());
+        usernameResolved = true;
+      }
+      return username;
+    }
+
+    private int lengthOf(Placeholder placeholder) {
+      String value = valueOf(placeholder);
+      return value != null ? value.length() : placeholder.token.length();
+    }
+
+    private void appendTo(StringBuilder builder, Placeholder placeholder) {
+      String value = valueOf(placeholder);
+      builder.append(value != null ? value : placeholder.token);
+    }
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.customlinks;
+
+import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.escape.Escaper;
+import com.google.common.net.UrlEscapers;
+
+import sonia.scm.repository.Repository;
+
+import jakarta.inject.Singleton;
+import java.net.URI;
+
+/**
+ * Creates the urls of the custom links resource. Expanding the uri templates of the generated link builder is
+ * comparatively expensive, so it is done only once per base uri and the encoded link names are kept per link.
+ */
+@Singleton
+class CustomLinkUrls {
+
+  // the base uri is derived from the request, so we have to limit the number of cached entries
+  private static final int MAX_BASE_URIS = 16;
+
+  private static final Escaper PATH_SEGMENT_ESCAPER = UrlEscapers.urlPathSegmentEscaper();
+  private static final Escaper QUERY_PARAMETER_ESCAPER = UrlEscapers.urlFormParameterEscaper();
+
+  private final Cache<URI, String> collectionUrls = CacheBuilder.newBuilder()
+    .maximumSize(MAX_BASE_URIS)
+    .build();
+
+  // weak keys, so that the names are released together with the links of an outdated snapshot
+  private final Cache<CustomLink, String> encodedNames = CacheBuilder.newBuilder()
+    .weakKeys()
+    .build();
+
+  String collection(URI baseUri) {
+    String url = collectionUrls.getIfPresent(baseUri);
+    if (url == null) {
+      url = new RestAPI(baseUri).customLinks().getAllCustomLinks().asString();
+      collectionUrls.put(baseUri, url);
+    }
+    return url;
+  }
+
+  String page(URI baseUri, int page, int pageSize, String namePrefix) {
+    StringBuilder url = new StringBuilder(collection(baseUri))
+      .append("?page=").append(page)
+      .append("&pageSize=").append(pageSize);
+    if (!Strings.isNullOrEmpty(namePrefix)) {
+      url.append("&q=").append(QUERY_PARAMETER_ESCAPER.escape(namePrefix));
+    }
+    return url.toString();
+  }
+
+  /**
+   * Url of all links in the given version, which may be cached forever.
+   */
+  String versionedCollection(URI baseUri, String version) {
+    // the version consists of digits, hex digits and dashes only, so it needs no encoding
+    return collection(baseUri) + "?revision=" + version;
+  }
+
+  String events(URI baseUri) {
+    return collection(baseUri) + "/events";
+  }
+
+  String exportLinks(URI baseUri) {
+    return collection(baseUri) + "/export";
+  }
+
+  String importLinks(URI baseUri) {
+    return collection(baseUri) + "/import";
+  }
+
+  /**
+   * Template of the url to count clicks, with {@code {linkName}} as placeholder for the encoded name of the link.
+   */
+  String clickTemplate(URI baseUri) {
+    return collection(baseUri) + "/{linkName}/click";
+  }
+
+  String link(URI baseUri, CustomLink customLink) {
+    return collection(baseUri) + "/" + encodedName(customLink);
+  }
+
+  String move(URI baseUri, CustomLink customLink) {
+    return link(baseUri, customLink) + "/move";
+  }
+
+  String namespace(URI baseUri, String namespace) {
+    return new RestAPI(baseUri).scopedCustomLinks().getNamespaceLinks(namespace).asString();
+  }
+
+  String repository(URI baseUri, Repository repository) {
+    return new RestAPI(baseUri).scopedCustomLinks()
+      .getRepositoryLinks(repository.getNamespace(), repository.getName())
+      .asString();
+  }
+
+  /**
+   * Url of a single link of a namespace or repository, the scope url is one of {@link #namespace(URI, String)} or
+   * {@link #repository(URI, Repository)}.
+   */
+  String scopedLink(String scopeUrl, CustomLink customLink) {
+    return scopeUrl + "/" + encodedName(customLink);
+  }
+
+  private String encodedName(CustomLink customLink) {
+    String encoded = encodedNames.getIfPresent(customLink);
+    if (encoded == null) {
+      encoded = PATH_SEGMENT_ESCAPER.escape(customLink.getName());
+      encodedNames.put(customLink, encoded);
+    }
+    return encoded;
+  }
+}
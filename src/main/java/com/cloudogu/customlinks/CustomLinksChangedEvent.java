@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+package com.cloudogu.customlinks;
+
+import sonia.scm.event.Event;
+
+/**
+ * Is posted after the custom links have been changed.
+ */
+@Event
+public class CustomLinksChangedEvent {
+
+  private final long revision;
+  private final String version;
+
+  public CustomLinksChangedEvent(long revision, String version) {
+    this.revision = revision;
+    this.version = version;
+  }
+
+  public long getRevision() {
+    return revision;
+  }
+
+  /**
+   * Returns the revision together with the id of the write, see {@link CustomLinkConfigStore#getVersion()}.
+   */
+  public String getVersion() {
+    return version;
+  }
+}
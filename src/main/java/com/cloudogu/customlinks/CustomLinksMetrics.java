@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.customlinks;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+@Singleton
+public class CustomLinksMetrics {
+
+  private static final String REQUESTS = "scm.customlinks.requests";
+  private static final String STORE = "scm.customlinks.store";
+  private static final String OPERATION = "operation";
+
+  private final MeterRegistry registry;
+
+  private final Timer getAllRequests;
+  private final Counter notModifiedResponses;
+  private final Timer addRequests;
+  private final Timer deleteRequests;
+  private final Timer batchRequests;
+  private final Timer moveRequests;
+  private final Timer exportRequests;
+  private final Timer importRequests;
+  private final Timer storeReads;
+  private final Timer storeWrites;
+  private final Counter coalescedChanges;
+
+  @Inject
+  public CustomLinksMetrics(MeterRegistry registry) {
+    this.registry = registry;
+    this.getAllRequests = requestTimer("getAll");
+    this.notModifiedResponses = Counter.builder(REQUESTS + ".notmodified")
+      .description("Requests for all custom links answered with not modified")
+      .register(registry);
+    this.addRequests = requestTimer("add");
+    this.deleteRequests = requestTimer("delete");
+    this.batchRequests = requestTimer("batch");
+    this.moveRequests = requestTimer("move");
+    this.exportRequests = requestTimer("export");
+    this.importRequests = requestTimer("import");
+    this.storeReads = storeTimer("read");
+    this.storeWrites = storeTimer("write");
+    this.coalescedChanges = Counter.builder(STORE + ".changes")
+      .description("Changes written to the custom links store, concurrent changes share a single write")
+      .register(registry);
+  }
+
+  private Timer requestTimer(String operation) {
+    return Timer.builder(REQUESTS)
+      .description("Requests to the custom links resource")
+      .tag(OPERATION, operation)
+      .register(registry);
+  }
+
+  private Timer storeTimer(String operation) {
+    return Timer.builder(STORE)
+      .description("Read and write operations on the custom links store")
+      .tag(OPERATION, operation)
+      .register(registry);
+  }
+
+  <T> void registerLinkCount(T source, ToDoubleFunction<T> linkCount) {
+    Gauge.builder("scm.customlinks.links", source, linkCount)
+      .description("Number of custom links")
+      .register(registry);
+  }
+
+  <T> void registerInitialLoadTime(T source, ToDoubleFunction<T> nanos) {
+    TimeGauge.builder("scm.customlinks.store.initialload", source, TimeUnit.NANOSECONDS, nanos)
+      .description("Time taken to load the custom links for the first time after the start")
+      .register(registry);
+  }
+
+  Timer getAllRequests() {
+    return getAllRequests;
+  }
+
+  Counter notModifiedResponses() {
+    return notModifiedResponses;
+  }
+
+  Timer addRequests() {
+    return addRequests;
+  }
+
+  Timer deleteRequests() {
+    return deleteRequests;
+  }
+
+  Timer batchRequests() {
+    return batchRequests;
+  }
+
+  Timer moveRequests() {
+    return moveRequests;
+  }
+
+  Timer exportRequests() {
+    return exportRequests;
+  }
+
+  Timer importRequests() {
+    return importRequests;
+  }
+
+  Timer storeReads() {
+    return storeReads;
+  }
+
+  Timer storeWrites() {
+    return storeWrites;
+  }
+
+  Counter coalescedChanges() {
+    return coalescedChanges;
+  }
+}
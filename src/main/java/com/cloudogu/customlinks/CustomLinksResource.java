@@ -16,12 +16,12 @@
 
 package com.cloudogu.customlinks;
 
-import de.otto.edison.hal.Embedded;
+import com.google.common.base.Strings;
 import de.otto.edison.hal.HalRepresentation;
-import de.otto.edison.hal.Link;
-import de.otto.edison.hal.Links;
+import io.micrometer.core.instrument.Timer;
 import io.swagger.v3.oas.annotations.OpenAPIDefinition;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -32,20 +32,39 @@ import sonia.scm.web.VndMediaType;
 
 import jakarta.inject.Inject;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.GET;
+import jakarta.ws.rs.PATCH;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 import jakarta.ws.rs.core.UriInfo;
-import java.util.Collection;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import static com.cloudogu.customlinks.CustomLinksResource.CUSTOM_LINKS_CONFIG_PATH;
+import static sonia.scm.ContextEntry.ContextBuilder.entity;
+import static sonia.scm.NotFoundException.notFound;
 
 @OpenAPIDefinition(tags = {
   @Tag(name = "Custom Links", description = "Custom links plugin related endpoints")
@@ -54,13 +73,41 @@ import static com.cloudogu.customlinks.CustomLinksResource.CUSTOM_LINKS_CONFIG_P
 public class CustomLinksResource {
 
   public static final String CUSTOM_LINKS_MEDIA_TYPE = VndMediaType.PREFIX + "custom-links" + VndMediaType.SUFFIX;
+  public static final String CUSTOM_LINKS_BATCH_MEDIA_TYPE = VndMediaType.PREFIX + "custom-links-batch" + VndMediaType.SUFFIX;
+  public static final String CUSTOM_LINK_MOVE_MEDIA_TYPE = VndMediaType.PREFIX + "custom-link-move" + VndMediaType.SUFFIX;
   public static final String CUSTOM_LINKS_CONFIG_PATH = "v2/custom-links";
 
+  // a versioned url never changes its content, every write gets a new url
+  private static final String VERSIONED_CACHE_CONTROL = "public, max-age=31536000, immutable";
+  private static final String VERSIONED_PRIVATE_CACHE_CONTROL = "private, max-age=31536000, immutable";
+  // only the first errors of an import are reported, all others are counted
+  private static final int MAX_IMPORT_ERRORS = 100;
+  // the representation depends on the permissions of the user and on the language
+  private static final String VARY = "Authorization, Cookie, Accept-Language";
+
   private final CustomLinkConfigStore configStore;
+  private final CustomLinkCollectionRenderer collectionRenderer;
+  private final CustomLinkCollectionMapper collectionMapper;
+  private final CustomLinksMetrics metrics;
+  private final CustomLinkEventBroadcaster eventBroadcaster;
+  private final CustomLinksSettings settings;
+  private final CustomLinkClickCounter clickCounter;
 
   @Inject
-  CustomLinksResource(CustomLinkConfigStore configStore) {
+  CustomLinksResource(CustomLinkConfigStore configStore,
+                      CustomLinkCollectionRenderer collectionRenderer,
+                      CustomLinkCollectionMapper collectionMapper,
+                      CustomLinksMetrics metrics,
+                      CustomLinkEventBroadcaster eventBroadcaster,
+                      CustomLinksSettings settings,
+                      CustomLinkClickCounter clickCounter) {
     this.configStore = configStore;
+    this.collectionRenderer = collectionRenderer;
+    this.collectionMapper = collectionMapper;
+    this.metrics = metrics;
+    this.eventBroadcaster = eventBroadcaster;
+    this.settings = settings;
+    this.clickCounter = clickCounter;
   }
 
   @GET
@@ -68,7 +115,7 @@ public class CustomLinksResource {
   @Produces(CUSTOM_LINKS_MEDIA_TYPE)
   @Operation(
     summary = "Get all custom links",
-    description = "Returns all custom links.",
+    description = "Returns all custom links or a single page of the custom links in their defined order. Links filtered by name are sorted by name.",
     tags = "Custom Links",
     operationId = "custom_links_get_all_links"
   )
@@ -80,6 +127,8 @@ public class CustomLinksResource {
       schema = @Schema(implementation = HalRepresentation.class)
     )
   )
+  @ApiResponse(responseCode = "304", description = "not modified, the links have not changed since the given entity tag")
+  @ApiResponse(responseCode = "400", description = "invalid page or page size")
   @ApiResponse(
     responseCode = "500",
     description = "internal server error",
@@ -89,43 +138,153 @@ public class CustomLinksResource {
     )
   )
   @AllowAnonymousAccess
-  public HalRepresentation getAllCustomLinks(@Context UriInfo uriInfo) {
-    RestAPI restAPI = new RestAPI(uriInfo);
-    Collection<CustomLink> customLinks = configStore.getAllLinks();
-    List<CustomLinkDto> linkDtos = mapCustomLinksToDtos(restAPI, customLinks);
-    return new HalRepresentation(createCollectionLinks(restAPI), Embedded.embedded("customLinks", linkDtos));
+  public Response getAllCustomLinks(@Context UriInfo uriInfo,
+                                    @Context Request request,
+                                    @Context HttpHeaders headers,
+                                    @Parameter(description = "Page to return, starting with 0. If neither page nor q are set, all links are returned.")
+                                    @QueryParam("page") @Min(0) Integer page,
+                                    @Parameter(description = "Number of links per page")
+                                    @QueryParam("pageSize") @DefaultValue("50") @Min(1) @Max(1000) int pageSize,
+                                    @Parameter(description = "Only links with names starting with this prefix, ignoring case")
+                                    @QueryParam("q") String namePrefix,
+                                    @Parameter(description = "Version of the links, the response for the current version may be cached forever")
+                                    @QueryParam("revision") String requestedVersion) {
+    return metrics.getAllRequests().record(() -> {
+      boolean mayManageLinks = PermissionCheck.mayManageCustomLinks();
+      // the entity tag and the body must describe the same links, even if they are changed in the meantime
+      CustomLinkConfigStore.Snapshot snapshot = configStore.getSnapshot();
+      String version = snapshot.getVersion();
+      URI baseUri = uriInfo.getBaseUri();
+      String language = CustomLinkLanguages.resolve(headers.getAcceptableLanguages());
+      // the read only view of links with the username differs from user to user
+      boolean userDependent = !mayManageLinks && snapshot.isUserDependent();
+      String cacheControl = createCacheControl(mayManageLinks, userDependent, version.equals(requestedVersion));
+      EntityTag entityTag = createEntityTag(version, mayManageLinks, userDependent, language);
+      if (page == null && Strings.isNullOrEmpty(namePrefix)) {
+        return createConditionalResponse(request, entityTag, cacheControl,
+          () -> collectionRenderer.render(baseUri, version, snapshot.getLinks(), mayManageLinks, language)
+        );
+      }
+      return createConditionalResponse(request, entityTag, cacheControl, () -> {
+        List<CustomLink> customLinks = Strings.isNullOrEmpty(namePrefix)
+          ? snapshot.getLinks()
+          : snapshot.findByNamePrefix(namePrefix);
+        return collectionMapper.mapPage(
+          baseUri, customLinks, page == null ? 0 : page, pageSize, namePrefix, mayManageLinks, language
+        );
+      });
+    });
   }
 
-  private Links createCollectionLinks(RestAPI restAPI) {
-    Links.Builder builder = Links.linkingTo();
-      builder.single(Link.link("self", restAPI.customLinks().getAllCustomLinks().asString()));
-      if (PermissionCheck.mayManageCustomLinks()) {
-        builder.single(Link.link("addLink", restAPI.customLinks().addCustomLink().asString()));
-      }
+  private Response createConditionalResponse(Request request, EntityTag entityTag, String cacheControl, Supplier<Object> entity) {
+    Response.ResponseBuilder notModified = request.evaluatePreconditions(entityTag);
+    if (notModified != null) {
+      metrics.notModifiedResponses().increment();
+      return notModified
+        .header(HttpHeaders.CACHE_CONTROL, cacheControl)
+        .header(HttpHeaders.VARY, VARY)
+        .build();
+    }
 
-      return builder.build();
+    return Response.ok(entity.get())
+      .tag(entityTag)
+      .header(HttpHeaders.CACHE_CONTROL, cacheControl)
+      .header(HttpHeaders.VARY, VARY)
+      .build();
   }
 
-  private List<CustomLinkDto> mapCustomLinksToDtos(RestAPI restAPI, Collection<CustomLink> customLinks) {
-    return customLinks.stream().map(customLink -> {
-      Links.Builder builder = Links.linkingTo();
-      if (PermissionCheck.mayManageCustomLinks()) {
-        builder.single(Link.link("delete", restAPI.customLinks().deleteCustomLink(customLink.getName()).asString()));
-      }
-      return CustomLinkDto.from(customLink, builder.build());
-    }).collect(Collectors.toList());
+  private String createCacheControl(boolean mayManageLinks, boolean userDependent, boolean versioned) {
+    if (mayManageLinks) {
+      // contains links to manage the custom links, so it must not be stored by shared caches
+      return "private, no-cache";
+    }
+    if (userDependent) {
+      return versioned ? VERSIONED_PRIVATE_CACHE_CONTROL : "private, no-cache";
+    }
+    if (versioned) {
+      return VERSIONED_CACHE_CONTROL;
+    }
+    if (settings.getCacheMaxAge() > 0) {
+      return "public, max-age=" + settings.getCacheMaxAge();
+    }
+    return "no-cache";
+  }
+
+  private EntityTag createEntityTag(String version, boolean mayManageLinks, boolean userDependent, String language) {
+    // the representation differs for users who may manage links, so their tag must differ as well
+    if (mayManageLinks) {
+      // the manage view may change without a new revision, e.g. with the results of the health check
+      return new EntityTag(version + "-" + collectionMapper.getManageGeneration() + "-manage");
+    }
+    if (userDependent) {
+      String username = Strings.nullToEmpty(CustomLinkTemplate.Values.currentUsername());
+      return new EntityTag(version + "-read-" + language + "-" + Integer.toHexString(username.hashCode()));
+    }
+    // the read only view shows the display names of the language
+    return new EntityTag(version + "-read-" + language);
+  }
+
+  @GET
+  @Path("events")
+  @Produces(MediaType.SERVER_SENT_EVENTS)
+  @Operation(
+    summary = "Subscribe to custom link changes",
+    description = "Opens a stream of server sent events. A \"change\" event with the current version of the links is sent right after subscribing and after every change of the custom links.",
+    tags = "Custom Links",
+    operationId = "custom_links_subscribe"
+  )
+  @ApiResponse(responseCode = "200", description = "success")
+  @AllowAnonymousAccess
+  public void subscribe(@Context SseEventSink sink, @Context Sse sse) {
+    eventBroadcaster.register(sse, sink);
   }
 
   @POST
   @Path("")
   @Consumes(CUSTOM_LINKS_MEDIA_TYPE)
+  @Produces(MediaType.APPLICATION_JSON)
   @Operation(
     summary = "Add single custom link",
     description = "Adds a single custom link.",
     tags = "Custom Links",
     operationId = "custom_links_add_link"
   )
+  @ApiResponse(
+    responseCode = "200",
+    description = "success, returns the stored link, its position and the new version of the links",
+    content = @Content(
+      mediaType = MediaType.APPLICATION_JSON,
+      schema = @Schema(implementation = CustomLinkChangeDto.class)
+    )
+  )
+  @ApiResponse(responseCode = "401", description = "not authenticated / invalid credentials")
+  @ApiResponse(responseCode = "403", description = "not authorized, the current user does not have the \"manageCustomLinks\" privilege")
+  @ApiResponse(
+    responseCode = "500",
+    description = "internal server error",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    )
+  )
+  public CustomLinkChangeDto addCustomLink(@Context UriInfo uriInfo, @Valid CustomLinkDto customLink) {
+    CustomLinkConfigStore.Snapshot changed = metrics.addRequests().record(
+      () -> configStore.addLink(customLink.getName(), customLink.getUrl(), customLink.getDisplayNames())
+    );
+    return createChange(uriInfo.getBaseUri(), changed, customLink.getName());
+  }
+
+  @PATCH
+  @Path("")
+  @Consumes(CUSTOM_LINKS_BATCH_MEDIA_TYPE)
+  @Operation(
+    summary = "Change multiple custom links",
+    description = "Adds and removes multiple custom links or replaces all custom links at once. The batch is only applied, if all links are valid.",
+    tags = "Custom Links",
+    operationId = "custom_links_apply_batch"
+  )
   @ApiResponse(responseCode = "204", description = "no content")
+  @ApiResponse(responseCode = "400", description = "invalid body, none of the changes have been applied")
   @ApiResponse(responseCode = "401", description = "not authenticated / invalid credentials")
   @ApiResponse(responseCode = "403", description = "not authorized, the current user does not have the \"manageCustomLinks\" privilege")
   @ApiResponse(
@@ -136,19 +295,197 @@ public class CustomLinksResource {
       schema = @Schema(implementation = ErrorDto.class)
     )
   )
-  public void addCustomLink(@Valid CustomLinkDto customLink) {
-    configStore.addLink(customLink.getName(), customLink.getUrl());
+  public void applyBatch(@Valid CustomLinkBatchDto batch) {
+    List<CustomLink> linksToAdd = batch.getAdd()
+      .stream()
+      .map(dto -> new CustomLink(dto.getName(), dto.getUrl(), dto.getDisplayNames()))
+      .collect(Collectors.toList());
+    metrics.batchRequests().record(() -> configStore.applyBatch(batch.isReplace(), linksToAdd, batch.getRemove()));
+  }
+
+  @GET
+  @Path("export")
+  @Produces(NdjsonCustomLinkFormat.MEDIA_TYPE)
+  @Operation(
+    summary = "Export all custom links",
+    description = "Streams all custom links in their order as newline delimited json, one object with name and url per line.",
+    tags = "Custom Links",
+    operationId = "custom_links_export"
+  )
+  @ApiResponse(responseCode = "200", description = "success")
+  @ApiResponse(responseCode = "401", description = "not authenticated / invalid credentials")
+  @ApiResponse(responseCode = "403", description = "not authorized, the current user does not have the \"manageCustomLinks\" privilege")
+  @ApiResponse(
+    responseCode = "500",
+    description = "internal server error",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    )
+  )
+  public Response exportCustomLinks() {
+    // the export contains the urls as they are stored, including their placeholders
+    PermissionCheck.checkManageCustomLinks();
+    List<CustomLink> customLinks = configStore.getAllLinks();
+    StreamingOutput output = outputStream -> {
+      Timer.Sample sample = Timer.start();
+      try {
+        NdjsonCustomLinkFormat.write(outputStream, customLinks);
+      } finally {
+        sample.stop(metrics.exportRequests());
+      }
+    };
+    return Response.ok(output)
+      .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"custom-links.ndjson\"")
+      .header(HttpHeaders.CACHE_CONTROL, "private, no-cache")
+      .build();
+  }
+
+  @POST
+  @Path("import")
+  @Consumes(NdjsonCustomLinkFormat.MEDIA_TYPE)
+  @Produces(MediaType.APPLICATION_JSON)
+  @Operation(
+    summary = "Import custom links",
+    description = "Adds the custom links from newline delimited json, one object with name and url per line, as exported by the export. Every line is validated, the links are only applied, if all lines are valid.",
+    tags = "Custom Links",
+    operationId = "custom_links_import"
+  )
+  @ApiResponse(
+    responseCode = "200",
+    description = "success, all links have been imported",
+    content = @Content(
+      mediaType = MediaType.APPLICATION_JSON,
+      schema = @Schema(implementation = CustomLinkImportResultDto.class)
+    )
+  )
+  @ApiResponse(
+    responseCode = "400",
+    description = "invalid lines, none of the links have been imported",
+    content = @Content(
+      mediaType = MediaType.APPLICATION_JSON,
+      schema = @Schema(implementation = CustomLinkImportResultDto.class)
+    )
+  )
+  @ApiResponse(responseCode = "401", description = "not authenticated / invalid credentials")
+  @ApiResponse(responseCode = "403", description = "not authorized, the current user does not have the \"manageCustomLinks\" privilege")
+  @ApiResponse(
+    responseCode = "500",
+    description = "internal server error",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    )
+  )
+  public Response importCustomLinks(@Parameter(description = "Replaces all custom links with the imported links")
+                                    @QueryParam("replace") boolean replace,
+                                    InputStream input) throws IOException {
+    // checked before the body is read, so that unauthorized users cannot make us parse large bodies
+    PermissionCheck.checkManageCustomLinks();
+    Timer.Sample sample = Timer.start();
+    try {
+      NdjsonCustomLinkFormat.Import customLinks = NdjsonCustomLinkFormat.read(input, MAX_IMPORT_ERRORS);
+      if (customLinks.getErrorCount() > 0) {
+        return Response.status(Response.Status.BAD_REQUEST)
+          .entity(new CustomLinkImportResultDto(false, 0, customLinks.getErrorCount(), customLinks.getErrors()))
+          .build();
+      }
+      configStore.applyBatch(replace, customLinks.getLinks(), Collections.emptyList());
+      return Response.ok(new CustomLinkImportResultDto(true, customLinks.getLinks().size(), 0, Collections.emptyList()))
+        .build();
+    } finally {
+      sample.stop(metrics.importRequests());
+    }
+  }
+
+  @POST
+  @Path("{linkName}/move")
+  @Consumes(CUSTOM_LINK_MOVE_MEDIA_TYPE)
+  @Produces(MediaType.APPLICATION_JSON)
+  @Operation(
+    summary = "Move single custom link",
+    description = "Moves a single custom link to the given position, starting with 0. Positions after the last link move the link to the end.",
+    tags = "Custom Links",
+    operationId = "custom_links_move_link"
+  )
+  @ApiResponse(
+    responseCode = "200",
+    description = "success, returns the moved link, its new position and the new version of the links",
+    content = @Content(
+      mediaType = MediaType.APPLICATION_JSON,
+      schema = @Schema(implementation = CustomLinkChangeDto.class)
+    )
+  )
+  @ApiResponse(responseCode = "400", description = "invalid position")
+  @ApiResponse(responseCode = "401", description = "not authenticated / invalid credentials")
+  @ApiResponse(responseCode = "403", description = "not authorized, the current user does not have the \"manageCustomLinks\" privilege")
+  @ApiResponse(
+    responseCode = "404",
+    description = "not found, no custom link with the given name available",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    )
+  )
+  @ApiResponse(
+    responseCode = "500",
+    description = "internal server error",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    )
+  )
+  public CustomLinkChangeDto moveCustomLink(@Context UriInfo uriInfo,
+                                            @PathParam("linkName") String linkName,
+                                            @Valid CustomLinkMoveDto move) {
+    CustomLinkConfigStore.Snapshot changed = metrics.moveRequests().record(
+      () -> configStore.moveLink(linkName, move.getPosition())
+    );
+    return createChange(uriInfo.getBaseUri(), changed, linkName);
+  }
+
+  @POST
+  @Path("{linkName}/click")
+  @Operation(
+    summary = "Count click on custom link",
+    description = "Counts a click on a single custom link. The counts are written periodically and shown to users, who may manage the links.",
+    tags = "Custom Links",
+    operationId = "custom_links_click_link"
+  )
+  @ApiResponse(responseCode = "204", description = "no content")
+  @ApiResponse(
+    responseCode = "404",
+    description = "not found, no custom link with the specified name available",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    )
+  )
+  @AllowAnonymousAccess
+  public void clickCustomLink(@PathParam("linkName") String linkName) {
+    // counting must stay cheap, so neither a timer nor a write
+    if (!clickCounter.click(linkName)) {
+      throw notFound(entity(CustomLink.class, linkName));
+    }
   }
 
   @DELETE
   @Path("{linkName}")
+  @Produces(MediaType.APPLICATION_JSON)
   @Operation(
     summary = "Delete single custom link",
     description = "Deletes a single custom link.",
     tags = "Custom Links",
     operationId = "custom_links_delete_link"
   )
-  @ApiResponse(responseCode = "204", description = "delete success or nothing to delete")
+  @ApiResponse(
+    responseCode = "200",
+    description = "delete success or nothing to delete, returns the new version of the links",
+    content = @Content(
+      mediaType = MediaType.APPLICATION_JSON,
+      schema = @Schema(implementation = CustomLinkChangeDto.class)
+    )
+  )
   @ApiResponse(responseCode = "401", description = "not authenticated / invalid credentials")
   @ApiResponse(responseCode = "403", description = "not authorized, the current user does not have the \"manageCustomLinks\" privilege")
   @ApiResponse(
@@ -159,7 +496,18 @@ public class CustomLinksResource {
       schema = @Schema(implementation = ErrorDto.class)
     )
   )
-  public void deleteCustomLink(@PathParam("linkName") String linkName) {
-    configStore.removeLink(linkName);
+  public CustomLinkChangeDto deleteCustomLink(@PathParam("linkName") String linkName) {
+    CustomLinkConfigStore.Snapshot changed = metrics.deleteRequests().record(() -> configStore.removeLink(linkName));
+    return new CustomLinkChangeDto(changed.getVersion(), null, null);
+  }
+
+  private CustomLinkChangeDto createChange(URI baseUri, CustomLinkConfigStore.Snapshot changed, String linkName) {
+    Integer position = changed.getPosition(linkName);
+    if (position == null) {
+      // removed by a concurrent change, which has been written together with this one
+      return new CustomLinkChangeDto(changed.getVersion(), null, null);
+    }
+    CustomLinkDetailsDto customLink = collectionMapper.manageDto(baseUri, changed.getLinks().get(position));
+    return new CustomLinkChangeDto(changed.getVersion(), position, customLink);
   }
 }
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+package com.cloudogu.customlinks;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlRootElement;
+
+/**
+ * The revision of the custom links, which is persisted next to the links, so that all nodes sharing the same
+ * storage can detect changes made by other nodes. The id of the write tells apart two writes of different nodes,
+ * which have raced for the same revision.
+ */
+@XmlRootElement(name = "custom-links-revision")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class CustomLinksRevision {
+
+  private long revision;
+  private String writeId;
+
+  CustomLinksRevision() {
+  }
+
+  public CustomLinksRevision(long revision) {
+    this(revision, null);
+  }
+
+  public CustomLinksRevision(long revision, String writeId) {
+    this.revision = revision;
+    this.writeId = writeId;
+  }
+
+  public long getRevision() {
+    return revision;
+  }
+
+  public String getWriteId() {
+    return writeId;
+  }
+}
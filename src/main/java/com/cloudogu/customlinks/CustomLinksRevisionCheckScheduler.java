@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.customlinks;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.plugin.Extension;
+
+import jakarta.inject.Inject;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks periodically, whether the links have been changed by another node, so that the clients subscribed to the
+ * events of this node are notified, even if nobody reads the links on this node.
+ */
+@Extension
+public class CustomLinksRevisionCheckScheduler implements ServletContextListener {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CustomLinksRevisionCheckScheduler.class);
+
+  private final CustomLinkConfigStore configStore;
+  private final CustomLinksSettings settings;
+
+  private ScheduledExecutorService executor;
+
+  @Inject
+  public CustomLinksRevisionCheckScheduler(CustomLinkConfigStore configStore, CustomLinksSettings settings) {
+    this.configStore = configStore;
+    this.settings = settings;
+  }
+
+  @Override
+  public void contextInitialized(ServletContextEvent event) {
+    long interval = settings.getRevisionCheckInterval();
+    // without an interval, the revision is checked on every access anyway
+    if (interval <= 0) {
+      return;
+    }
+    executor = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder().setNameFormat("CustomLinksRevisionCheck").setDaemon(true).build()
+    );
+    executor.scheduleWithFixedDelay(this::check, interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  private void check() {
+    try {
+      configStore.checkForChanges();
+    } catch (RuntimeException e) {
+      // an exception would cancel all further checks
+      LOG.warn("failed to check custom links for changes of other nodes", e);
+    }
+  }
+
+  @Override
+  public void contextDestroyed(ServletContextEvent event) {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.customlinks;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Strings;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Options of the plugin, which are read once from the system properties of the server.
+ */
+@Singleton
+public class CustomLinksSettings {
+
+  @VisibleForTesting
+  static final String EMBED_IN_INDEX = "scm.customLinks.embedInIndex";
+  @VisibleForTesting
+  static final String REVISION_CHECK_INTERVAL = "scm.customLinks.revisionCheckInterval";
+  @VisibleForTesting
+  static final String WARM_UP = "scm.customLinks.warmUp";
+  @VisibleForTesting
+  static final String CACHE_MAX_AGE = "scm.customLinks.cacheMaxAge";
+  @VisibleForTesting
+  static final String STORAGE = "scm.customLinks.storage";
+  @VisibleForTesting
+  static final String HEALTH_CHECK_ENABLED = "scm.customLinks.healthCheck.enabled";
+  @VisibleForTesting
+  static final String HEALTH_CHECK_INTERVAL = "scm.customLinks.healthCheck.interval";
+  @VisibleForTesting
+  static final String HEALTH_CHECK_CONCURRENCY = "scm.customLinks.healthCheck.concurrency";
+  @VisibleForTesting
+  static final String HEALTH_CHECK_TIMEOUT = "scm.customLinks.healthCheck.timeout";
+  @VisibleForTesting
+  static final String HEALTH_CHECK_HOST_INTERVAL = "scm.customLinks.healthCheck.hostInterval";
+  @VisibleForTesting
+  static final String CLICK_FLUSH_INTERVAL = "scm.customLinks.clicks.flushInterval";
+  @VisibleForTesting
+  static final String CLICK_NODE_ID = "scm.customLinks.clicks.nodeId";
+
+  public enum Storage {
+    XML, COMPACT
+  }
+
+  private final boolean embedInIndex;
+  private final long revisionCheckInterval;
+  private final boolean warmUp;
+  private final long cacheMaxAge;
+  private final Storage storage;
+  private final boolean healthCheckEnabled;
+  private final long healthCheckInterval;
+  private final int healthCheckConcurrency;
+  private final long healthCheckTimeout;
+  private final long healthCheckHostInterval;
+  private final long clickFlushInterval;
+  private final String clickNodeId;
+
+  @Inject
+  public CustomLinksSettings() {
+    this(System.getProperties());
+  }
+
+  @VisibleForTesting
+  CustomLinksSettings(Properties properties) {
+    this.embedInIndex = Boolean.parseBoolean(properties.getProperty(EMBED_IN_INDEX, "true"));
+    this.revisionCheckInterval = Long.parseLong(properties.getProperty(REVISION_CHECK_INTERVAL, "5000"));
+    this.warmUp = Boolean.parseBoolean(properties.getProperty(WARM_UP, "true"));
+    this.cacheMaxAge = Long.parseLong(properties.getProperty(CACHE_MAX_AGE, "0"));
+    this.storage = Storage.valueOf(properties.getProperty(STORAGE, "xml").toUpperCase(Locale.ENGLISH));
+    this.healthCheckEnabled = Boolean.parseBoolean(properties.getProperty(HEALTH_CHECK_ENABLED, "false"));
+    this.healthCheckInterval = Long.parseLong(properties.getProperty(HEALTH_CHECK_INTERVAL, "3600000"));
+    this.healthCheckConcurrency = Integer.parseInt(properties.getProperty(HEALTH_CHECK_CONCURRENCY, "4"));
+    this.healthCheckTimeout = Long.parseLong(properties.getProperty(HEALTH_CHECK_TIMEOUT, "5000"));
+    this.healthCheckHostInterval = Long.parseLong(properties.getProperty(HEALTH_CHECK_HOST_INTERVAL, "1000"));
+    this.clickFlushInterval = Long.parseLong(properties.getProperty(CLICK_FLUSH_INTERVAL, "60000"));
+    this.clickNodeId = properties.getProperty(CLICK_NODE_ID);
+  }
+
+  public boolean isEmbedInIndex() {
+    return embedInIndex;
+  }
+
+  /**
+   * Interval in milliseconds in which the persisted revision is checked for changes made by other nodes.
+   */
+  public long getRevisionCheckInterval() {
+    return revisionCheckInterval;
+  }
+
+  /**
+   * Load the links in the background after the start instead of on first access.
+   */
+  public boolean isWarmUp() {
+    return warmUp;
+  }
+
+  /**
+   * Seconds for which shared caches may serve the links to users who may not manage them.
+   */
+  public long getCacheMaxAge() {
+    return cacheMaxAge;
+  }
+
+  public Storage getStorage() {
+    return storage;
+  }
+
+  /**
+   * Check the links periodically for errors. This is disabled by default, because the server sends requests to the
+   * urls of all links.
+   */
+  public boolean isHealthCheckEnabled() {
+    return healthCheckEnabled;
+  }
+
+  /**
+   * Interval in milliseconds between two health checks of the links, the check is disabled with 0.
+   */
+  public long getHealthCheckInterval() {
+    return healthCheckInterval;
+  }
+
+  /**
+   * Number of hosts, which are probed in parallel.
+   */
+  public int getHealthCheckConcurrency() {
+    return healthCheckConcurrency;
+  }
+
+  /**
+   * Milliseconds to wait for the connection and for the response of a single probe.
+   */
+  public long getHealthCheckTimeout() {
+    return healthCheckTimeout;
+  }
+
+  /**
+   * Milliseconds to wait between two probes of the same host.
+   */
+  public long getHealthCheckHostInterval() {
+    return healthCheckHostInterval;
+  }
+
+  /**
+   * Interval in milliseconds in which the click counts are written to the store.
+   */
+  public long getClickFlushInterval() {
+    return clickFlushInterval;
+  }
+
+  /**
+   * Name of this node, under which its click counts are stored, the host name by default. Nodes sharing the same
+   * store must have different names.
+   */
+  public String getClickNodeId() {
+    if (!Strings.isNullOrEmpty(clickNodeId)) {
+      return clickNodeId;
+    }
+    try {
+      return InetAddress.getLocalHost().getHostName();
+    } catch (UnknownHostException e) {
+      throw new IllegalStateException("could not resolve host name, set " + CLICK_NODE_ID + " instead", e);
+    }
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+package com.cloudogu.customlinks;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.plugin.Extension;
+
+import jakarta.inject.Inject;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Loads the custom links in the background after the start, so that neither the start nor the first request have to
+ * wait for a large store to be read.
+ */
+@Extension
+public class CustomLinksWarmUp implements ServletContextListener {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CustomLinksWarmUp.class);
+
+  private final CustomLinkConfigStore configStore;
+  private final CustomLinksSettings settings;
+
+  private ExecutorService executor;
+
+  @Inject
+  public CustomLinksWarmUp(CustomLinkConfigStore configStore, CustomLinksSettings settings) {
+    this.configStore = configStore;
+    this.settings = settings;
+  }
+
+  @Override
+  public void contextInitialized(ServletContextEvent event) {
+    if (!settings.isWarmUp()) {
+      return;
+    }
+    executor = Executors.newSingleThreadExecutor(
+      new ThreadFactoryBuilder().setNameFormat("CustomLinksWarmUp").setDaemon(true).build()
+    );
+    executor.execute(this::warmUp);
+    // the thread ends after the links have been loaded
+    executor.shutdown();
+  }
+
+  private void warmUp() {
+    try {
+      configStore.warmUp();
+    } catch (RuntimeException e) {
+      LOG.warn("failed to load custom links in the background, they are loaded on first access", e);
+    }
+  }
+
+  @Override
+  public void contextDestroyed(ServletContextEvent event) {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+}
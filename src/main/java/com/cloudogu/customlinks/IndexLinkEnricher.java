@@ -26,25 +26,55 @@ import sonia.scm.plugin.Extension;
 
 import jakarta.inject.Inject;
 import jakarta.inject.Provider;
+import jakarta.servlet.http.HttpServletRequest;
+import java.net.URI;
+import java.util.Collections;
 
 @Extension
 @Enrich(Index.class)
 public class IndexLinkEnricher implements HalEnricher {
 
   private final Provider<ScmPathInfoStore> scmPathInfoStore;
+  private final Provider<HttpServletRequest> request;
+  private final CustomLinkConfigStore configStore;
+  private final CustomLinkCollectionMapper collectionMapper;
+  private final CustomLinkUrls urls;
+  private final CustomLinksSettings settings;
 
   @Inject
-  public IndexLinkEnricher(Provider<ScmPathInfoStore> scmPathInfoStore) {
+  public IndexLinkEnricher(Provider<ScmPathInfoStore> scmPathInfoStore,
+                           Provider<HttpServletRequest> request,
+                           CustomLinkConfigStore configStore,
+                           CustomLinkCollectionMapper collectionMapper,
+                           CustomLinkUrls urls,
+                           CustomLinksSettings settings) {
     this.scmPathInfoStore = scmPathInfoStore;
+    this.request = request;
+    this.configStore = configStore;
+    this.collectionMapper = collectionMapper;
+    this.urls = urls;
+    this.settings = settings;
   }
 
   @Override
   public void enrich(HalEnricherContext context, HalAppender appender) {
-    String link = new RestAPI(scmPathInfoStore.get().get().getApiRestUri()).customLinks().getAllCustomLinks().asString();
-    appender.appendLink("customLinks", link);
+    URI apiRestUri = scmPathInfoStore.get().get().getApiRestUri();
+    // the versioned link and the embedded links must describe the same links, even if they are changed in the meantime
+    CustomLinkConfigStore.Snapshot snapshot = configStore.getSnapshot();
+    String version = snapshot.getVersion();
+    // the url changes with every write, so that caches never serve outdated links
+    appender.appendLink("customLinks", urls.versionedCollection(apiRestUri, version));
+    appender.appendLink("customLinksEvents", urls.events(apiRestUri));
+    appender.appendLink("customLinksClick", urls.clickTemplate(apiRestUri));
 
     if (PermissionCheck.mayManageCustomLinks()) {
-      appender.appendLink("customLinksConfig", link);
+      appender.appendLink("customLinksConfig", urls.collection(apiRestUri));
+    }
+
+    if (settings.isEmbedInIndex()) {
+      // saves the footer a second request for the links
+      String language = CustomLinkLanguages.resolve(Collections.list(request.get().getLocales()));
+      appender.appendEmbedded("customLinks", collectionMapper.mapReadOnly(version, snapshot.getLinks(), language));
     }
   }
 }
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.customlinks;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Strings;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Newline delimited json with one link per line in their order, e.g.
+ * <code>{"name":"Docs","url":"/docs","displayNames":{"de":"Doku"}}</code>.
+ * Both directions work on streams, so that neither the whole document nor its json tree is kept in memory.
+ */
+final class NdjsonCustomLinkFormat {
+
+  static final String MEDIA_TYPE = "application/x-ndjson";
+
+  // a single link is far shorter, the rest of a longer line is skipped instead of kept in memory
+  @VisibleForTesting
+  static final int MAX_LINE_LENGTH = 64 * 1024;
+
+  // the output stream belongs to the caller
+  private static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+    .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+    .build();
+
+  private NdjsonCustomLinkFormat() {
+  }
+
+  static void write(OutputStream output, List<CustomLink> links) throws IOException {
+    try (JsonGenerator generator = JSON_FACTORY.createGenerator(output)) {
+      for (CustomLink link : links) {
+        generator.writeStartObject();
+        generator.writeStringField("name", link.getName());
+        generator.writeStringField("url", link.getUrl());
+        Map<String, String> displayNames = link.getDisplayNames();
+        if (displayNames != null) {
+          generator.writeObjectFieldStart("displayNames");
+          for (Map.Entry<String, String> displayName : displayNames.entrySet()) {
+            generator.writeStringField(displayName.getKey(), displayName.getValue());
+          }
+          generator.writeEndObject();
+        }
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+      }
+    }
+  }
+
+  /**
+   * Reads and validates the links line by line. Invalid lines are reported, but do not stop the import, so that all
+   * errors are found at once. Only the first <code>maxErrors</code> errors are kept, all others are only counted.
+   * Lines longer than {@link #MAX_LINE_LENGTH} characters are reported as invalid.
+   */
+  static Import read(InputStream input, int maxErrors) throws IOException {
+    Import result = new Import(maxErrors);
+    Reader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+    StringBuilder buffer = new StringBuilder();
+    int lineNumber = 0;
+    int length;
+    while ((length = readLine(reader, buffer)) >= 0) {
+      lineNumber++;
+      if (length > MAX_LINE_LENGTH) {
+        result.addError(lineNumber, "line is longer than " + MAX_LINE_LENGTH + " characters");
+        continue;
+      }
+      String line = buffer.toString();
+      if (line.isBlank()) {
+        continue;
+      }
+      try {
+        result.links.add(readLink(line));
+      } catch (JsonProcessingException e) {
+        result.addError(lineNumber, e.getOriginalMessage());
+      } catch (InvalidLinkException e) {
+        result.addError(lineNumber, e.getMessage());
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Reads the next line without the line break into the buffer, but not more than {@link #MAX_LINE_LENGTH}
+   * characters. Returns the length of the whole line or -1 at the end of the input.
+   */
+  private static int readLine(Reader reader, StringBuilder buffer) throws IOException {
+    buffer.setLength(0);
+    int length = 0;
+    int c;
+    while ((c = reader.read()) != -1 && c != '\n') {
+      if (buffer.length() < MAX_LINE_LENGTH) {
+        buffer.append((char) c);
+      }
+      length++;
+    }
+    if (c == -1 && length == 0) {
+      return -1;
+    }
+    if (length <= MAX_LINE_LENGTH && length > 0 && buffer.charAt(length - 1) == '\r') {
+      buffer.setLength(--length);
+    }
+    return length;
+  }
+
+  private static CustomLink readLink(String line) throws IOException {
+    try (JsonParser parser = JSON_FACTORY.createParser(line)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new InvalidLinkException("expected an object with name and url");
+      }
+      String name = null;
+      String url = null;
+      Map<String, String> displayNames = null;
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        JsonToken value = parser.nextToken();
+        if ("name".equals(field)) {
+          name = readText(parser, value, field);
+        } else if ("url".equals(field)) {
+          url = readText(parser, value, field);
+        } else if ("displayNames".equals(field)) {
+          displayNames = readDisplayNames(parser, value);
+        } else {
+          // unknown fields are ignored, so that later exports can be imported
+          parser.skipChildren();
+        }
+      }
+      if (parser.nextToken() != null) {
+        throw new InvalidLinkException("unexpected content after the link");
+      }
+      if (Strings.isNullOrEmpty(name)) {
+        throw new InvalidLinkException("missing name");
+      }
+      if (Strings.isNullOrEmpty(url)) {
+        throw new InvalidLinkException("missing url");
+      }
+      String invalidDisplayName = SupportedDisplayNamesValidator.findViolation(displayNames);
+      if (invalidDisplayName != null) {
+        throw new InvalidLinkException(invalidDisplayName);
+      }
+      return new CustomLink(name, url, displayNames);
+    }
+  }
+
+  private static Map<String, String> readDisplayNames(JsonParser parser, JsonToken value) throws IOException {
+    if (value != JsonToken.START_OBJECT) {
+      throw new InvalidLinkException("displayNames must be an object");
+    }
+    Map<String, String> displayNames = new HashMap<>();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String language = parser.getCurrentName();
+      displayNames.put(language, readText(parser, parser.nextToken(), "display name " + language));
+    }
+    return displayNames;
+  }
+
+  private static String readText(JsonParser parser, JsonToken value, String field) throws IOException {
+    if (value != JsonToken.VALUE_STRING) {
+      throw new InvalidLinkException(field + " must be a string");
+    }
+    return parser.getText();
+  }
+
+  static final class Import {
+    private final int maxErrors;
+    private final List<CustomLink> links = new ArrayList<>();
+    private final List<CustomLinkImportResultDto.LineError> errors = new ArrayList<>();
+    private int errorCount;
+
+    private Import(int maxErrors) {
+      this.maxErrors = maxErrors;
+    }
+
+    private void addError(int line, String message) {
+      errorCount++;
+      if (errors.size() < maxErrors) {
+        errors.add(new CustomLinkImportResultDto.LineError(line, message));
+      }
+    }
+
+    List<CustomLink> getLinks() {
+      return links;
+    }
+
+    List<CustomLinkImportResultDto.LineError> getErrors() {
+      return errors;
+    }
+
+    int getErrorCount() {
+      return errorCount;
+    }
+  }
+
+  private static final class InvalidLinkException extends IOException {
+    private InvalidLinkException(String message) {
+      super(message);
+    }
+  }
+}
@@ -17,6 +17,8 @@
 package com.cloudogu.customlinks;
 
 import sonia.scm.config.ConfigurationPermissions;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryPermissions;
 
 public class PermissionCheck {
 
@@ -32,4 +34,17 @@ public class PermissionCheck {
   public static void checkManageCustomLinks() {
     ConfigurationPermissions.custom(MANAGE_CUSTOM_LINKS).check();
   }
+
+  /**
+   * The links of a repository may be managed by everyone who may manage the global links or modify the repository.
+   */
+  public static boolean mayManageCustomLinks(Repository repository) {
+    return mayManageCustomLinks() || RepositoryPermissions.modify(repository).isPermitted();
+  }
+
+  public static void checkManageCustomLinks(Repository repository) {
+    if (!mayManageCustomLinks()) {
+      RepositoryPermissions.modify(repository).check();
+    }
+  }
 }
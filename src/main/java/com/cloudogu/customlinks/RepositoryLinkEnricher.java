@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+package com.cloudogu.customlinks;
+
+import sonia.scm.api.v2.resources.Enrich;
+import sonia.scm.api.v2.resources.HalAppender;
+import sonia.scm.api.v2.resources.HalEnricher;
+import sonia.scm.api.v2.resources.HalEnricherContext;
+import sonia.scm.api.v2.resources.ScmPathInfoStore;
+import sonia.scm.plugin.Extension;
+import sonia.scm.repository.Repository;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Provider;
+import jakarta.servlet.http.HttpServletRequest;
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Adds the links of the namespace and of the repository itself to repositories. The global links are already part of
+ * the index, so they are not repeated for every repository.
+ */
+@Extension
+@Enrich(Repository.class)
+public class RepositoryLinkEnricher implements HalEnricher {
+
+  private final Provider<ScmPathInfoStore> scmPathInfoStore;
+  private final Provider<HttpServletRequest> request;
+  private final ScopedCustomLinkStore store;
+  private final CustomLinkCollectionMapper collectionMapper;
+  private final CustomLinkUrls urls;
+
+  @Inject
+  public RepositoryLinkEnricher(Provider<ScmPathInfoStore> scmPathInfoStore,
+                                Provider<HttpServletRequest> request,
+                                ScopedCustomLinkStore store,
+                                CustomLinkCollectionMapper collectionMapper,
+                                CustomLinkUrls urls) {
+    this.scmPathInfoStore = scmPathInfoStore;
+    this.request = request;
+    this.store = store;
+    this.collectionMapper = collectionMapper;
+    this.urls = urls;
+  }
+
+  @Override
+  public void enrich(HalEnricherContext context, HalAppender appender) {
+    Repository repository = context.oneRequireByType(Repository.class);
+    URI apiRestUri = scmPathInfoStore.get().get().getApiRestUri();
+    appender.appendLink("customLinks", urls.repository(apiRestUri, repository));
+
+    List<CustomLink> scopedLinks = store.getScopedLinks(repository);
+    if (!scopedLinks.isEmpty()) {
+      String language = CustomLinkLanguages.resolve(Collections.list(request.get().getLocales()));
+      appender.appendEmbedded("customLinks", collectionMapper.mapReadOnly(
+        scopedLinks, CustomLinkTemplate.Values.forCurrentUser(repository), language
+      ));
+    }
+  }
+}
@@ -0,0 +1,384 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+package com.cloudogu.customlinks;
+
+import com.github.legman.Subscribe;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import sonia.scm.EagerSingleton;
+import sonia.scm.HandlerEventType;
+import sonia.scm.plugin.Extension;
+import sonia.scm.repository.NamespaceManager;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryEvent;
+import sonia.scm.store.Blob;
+import sonia.scm.store.BlobStore;
+import sonia.scm.store.BlobStoreFactory;
+import sonia.scm.store.ConfigurationStore;
+import sonia.scm.store.ConfigurationStoreFactory;
+import sonia.scm.store.StoreException;
+
+import jakarta.inject.Inject;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+/**
+ * Links, which are shown only for the repositories of a namespace or for a single repository. The links of every scope
+ * are stored in a blob of their own using the {@link CompactCustomLinkFormat}, so that a change writes only the links
+ * of the changed scope. The names of all scopes with links are kept in memory, so that scopes without links, e.g. most
+ * repositories, are answered without reading anything. The links of the most recently used scopes are kept in memory
+ * as well. Like the global links, the scoped links have a persisted revision, which is checked periodically, so that
+ * changes of other nodes sharing the same storage are read again.
+ */
+@Extension
+@EagerSingleton
+public class ScopedCustomLinkStore {
+
+  @VisibleForTesting
+  static final String STORE_NAME = "custom-links-scoped";
+  @VisibleForTesting
+  static final String REVISION_STORE_NAME = "custom-links-scoped-revision";
+
+  private static final String NAMESPACE_SCOPE = "namespace-";
+  private static final String REPOSITORY_SCOPE = "repository-";
+  // the links of a single scope are few, so this keeps well below a megabyte in memory
+  private static final int MAX_CACHED_SCOPES = 1000;
+
+  private final BlobStoreFactory blobStoreFactory;
+  private final ConfigurationStoreFactory configurationStoreFactory;
+  private final CustomLinkConfigStore globalLinks;
+  private final NamespaceManager namespaceManager;
+  private final long revisionCheckIntervalNanos;
+
+  // replaced as a whole, if another node has changed any scope
+  private volatile Scopes scopes;
+  private final AtomicLong nextRevisionCheck = new AtomicLong(System.nanoTime());
+
+  @Inject
+  public ScopedCustomLinkStore(BlobStoreFactory blobStoreFactory,
+                               ConfigurationStoreFactory configurationStoreFactory,
+                               CustomLinkConfigStore globalLinks,
+                               NamespaceManager namespaceManager,
+                               CustomLinksSettings settings) {
+    this.blobStoreFactory = blobStoreFactory;
+    this.configurationStoreFactory = configurationStoreFactory;
+    this.globalLinks = globalLinks;
+    this.namespaceManager = namespaceManager;
+    this.revisionCheckIntervalNanos = TimeUnit.MILLISECONDS.toNanos(settings.getRevisionCheckInterval());
+  }
+
+  public List<CustomLink> getNamespaceLinks(String namespace) {
+    return get(namespaceScope(namespace));
+  }
+
+  public List<CustomLink> getRepositoryLinks(Repository repository) {
+    return get(repositoryScope(repository));
+  }
+
+  /**
+   * Returns the links of the namespace of the repository followed by the links of the repository itself.
+   */
+  public List<CustomLink> getScopedLinks(Repository repository) {
+    return concat(getNamespaceLinks(repository.getNamespace()), getRepositoryLinks(repository));
+  }
+
+  /**
+   * Returns all links for the repository: the global links, the links of its namespace and its own links.
+   */
+  public List<CustomLink> resolve(Repository repository) {
+    return concat(globalLinks.getAllLinks(), getScopedLinks(repository));
+  }
+
+  public void addNamespaceLink(String namespace, String name, String url) {
+    addNamespaceLink(namespace, name, url, null);
+  }
+
+  public void addNamespaceLink(String namespace, String name, String url, Map<String, String> displayNames) {
+    PermissionCheck.checkManageCustomLinks();
+    update(namespaceScope(namespace), links -> add(links, new CustomLink(name, url, displayNames)));
+  }
+
+  public void removeNamespaceLink(String namespace, String name) {
+    PermissionCheck.checkManageCustomLinks();
+    update(namespaceScope(namespace), links -> remove(links, name));
+  }
+
+  public void addRepositoryLink(Repository repository, String name, String url) {
+    addRepositoryLink(repository, name, url, null);
+  }
+
+  public void addRepositoryLink(Repository repository, String name, String url, Map<String, String> displayNames) {
+    PermissionCheck.checkManageCustomLinks(repository);
+    update(repositoryScope(repository), links -> add(links, new CustomLink(name, url, displayNames)));
+  }
+
+  public void removeRepositoryLink(Repository repository, String name) {
+    PermissionCheck.checkManageCustomLinks(repository);
+    update(repositoryScope(repository), links -> remove(links, name));
+  }
+
+  /**
+   * Removes the links of deleted repositories. A namespace exists as long as it has repositories, so its links are
+   * removed together with its last repository. If the last repository has been moved to another namespace, e.g.
+   * because the namespace has been renamed, the links are moved along, unless the other namespace has links of its own.
+   */
+  @Subscribe
+  public void handle(RepositoryEvent event) {
+    Repository repository = event.getItem();
+    if (event.getEventType() == HandlerEventType.DELETE) {
+      update(repositoryScope(repository), links -> ImmutableList.of());
+      handleNamespaceChange(repository.getNamespace(), null);
+    } else if (event.getEventType() == HandlerEventType.MODIFY && event.getOldItem() != null
+      && !event.getOldItem().getNamespace().equals(repository.getNamespace())) {
+      handleNamespaceChange(event.getOldItem().getNamespace(), repository.getNamespace());
+    }
+  }
+
+  private synchronized void handleNamespaceChange(String oldNamespace, String newNamespace) {
+    if (namespaceManager.get(oldNamespace).isPresent()) {
+      return;
+    }
+    String oldScope = namespaceScope(oldNamespace);
+    List<CustomLink> links = read(oldScope);
+    if (links.isEmpty()) {
+      return;
+    }
+    if (newNamespace != null) {
+      update(namespaceScope(newNamespace), current -> current.isEmpty() ? links : current);
+    }
+    update(oldScope, current -> ImmutableList.of());
+  }
+
+  private List<CustomLink> get(String scope) {
+    Scopes current = getScopes();
+    if (!current.withLinks.contains(scope)) {
+      return ImmutableList.of();
+    }
+    List<CustomLink> links = current.linksByScope.getIfPresent(scope);
+    if (links == null) {
+      // read outside of the cache, so that no lock is held during the io, and without replacing the links of a write
+      List<CustomLink> read = read(scope);
+      links = current.linksByScope.asMap().putIfAbsent(scope, read);
+      if (links == null) {
+        links = read;
+      }
+    }
+    return links;
+  }
+
+  private synchronized void update(String scope, UnaryOperator<List<CustomLink>> change) {
+    Scopes current = getScopes();
+    // the scope is read again instead of taken from the cache, so that a change of another node is not overwritten
+    List<CustomLink> previous = read(scope);
+    List<CustomLink> links = ImmutableList.copyOf(change.apply(previous));
+    if (previous.isEmpty() && links.isEmpty()) {
+      return;
+    }
+    CustomLinksRevision persisted = readRevision();
+    write(scope, links);
+    CustomLinksRevision written = new CustomLinksRevision(persisted.getRevision() + 1, UUID.randomUUID().toString());
+    getRevisionStore().set(written);
+    if (current.isAt(persisted)) {
+      current.put(scope, links);
+      current.revision = written;
+    } else {
+      // other nodes have changed scopes in the meantime, so all scopes are read again
+      scopes = new Scopes(written, listScopesWithLinks());
+    }
+  }
+
+  private Scopes getScopes() {
+    Scopes current = scopes;
+    if (current == null) {
+      return load();
+    }
+    long now = System.nanoTime();
+    long next = nextRevisionCheck.get();
+    // only one reader checks the persisted revision per interval, all others keep using the cached links
+    if (now - next >= 0 && nextRevisionCheck.compareAndSet(next, now + revisionCheckIntervalNanos)
+      && !current.isAt(readRevision())) {
+      return reload();
+    }
+    return current;
+  }
+
+  private synchronized Scopes load() {
+    if (scopes == null) {
+      scopes = new Scopes(readRevision(), listScopesWithLinks());
+    }
+    return scopes;
+  }
+
+  private synchronized Scopes reload() {
+    CustomLinksRevision persisted = readRevision();
+    if (!scopes.isAt(persisted)) {
+      // readers still holding the old scopes may fill them with outdated links, but they are no longer used
+      scopes = new Scopes(persisted, listScopesWithLinks());
+    }
+    return scopes;
+  }
+
+  // only lists the blobs, their content is read on first access
+  private Set<String> listScopesWithLinks() {
+    Set<String> withLinks = ConcurrentHashMap.newKeySet();
+    getStore().getAll().forEach(blob -> withLinks.add(blob.getId()));
+    return withLinks;
+  }
+
+  private List<CustomLink> read(String scope) {
+    Blob blob = getStore().get(scope);
+    if (blob == null) {
+      return ImmutableList.of();
+    }
+    try (InputStream input = blob.getInputStream()) {
+      return ImmutableList.copyOf(CompactCustomLinkFormat.read(input));
+    } catch (IOException e) {
+      throw new StoreException("failed to read custom links of " + scope, e);
+    }
+  }
+
+  private void write(String scope, List<CustomLink> links) {
+    BlobStore store = getStore();
+    if (links.isEmpty()) {
+      store.remove(scope);
+      return;
+    }
+    Blob blob = store.get(scope);
+    if (blob == null) {
+      blob = store.create(scope);
+    }
+    try {
+      try (OutputStream output = blob.getOutputStream()) {
+        CompactCustomLinkFormat.write(output, links);
+      }
+      blob.commit();
+    } catch (IOException e) {
+      throw new StoreException("failed to write custom links of " + scope, e);
+    }
+  }
+
+  private CustomLinksRevision readRevision() {
+    CustomLinksRevision persisted = getRevisionStore().get();
+    // scoped links, which have never been written, have the first revision
+    return persisted == null ? new CustomLinksRevision(0) : persisted;
+  }
+
+  private static List<CustomLink> add(List<CustomLink> links, CustomLink link) {
+    List<CustomLink> changed = new ArrayList<>(links);
+    int position = indexOf(links, link.getName());
+    if (position < 0) {
+      changed.add(link);
+    } else {
+      changed.set(position, link);
+    }
+    return changed;
+  }
+
+  private static List<CustomLink> remove(List<CustomLink> links, String name) {
+    List<CustomLink> changed = new ArrayList<>(links);
+    int position = indexOf(links, name);
+    if (position >= 0) {
+      changed.remove(position);
+    }
+    return changed;
+  }
+
+  // the links of a single scope are few, so a linear search is fine
+  private static int indexOf(List<CustomLink> links, String name) {
+    for (int i = 0; i < links.size(); i++) {
+      if (links.get(i).getName().equals(name)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static List<CustomLink> concat(List<CustomLink> first, List<CustomLink> second) {
+    if (second.isEmpty()) {
+      return first;
+    }
+    if (first.isEmpty()) {
+      return second;
+    }
+    return ImmutableList.<CustomLink>builderWithExpectedSize(first.size() + second.size())
+      .addAll(first)
+      .addAll(second)
+      .build();
+  }
+
+  private static String namespaceScope(String namespace) {
+    return NAMESPACE_SCOPE + namespace;
+  }
+
+  private static String repositoryScope(Repository repository) {
+    // the id does not change, when the repository is renamed or moved to another namespace
+    return REPOSITORY_SCOPE + repository.getId();
+  }
+
+  private BlobStore getStore() {
+    return blobStoreFactory.withName(STORE_NAME).build();
+  }
+
+  private ConfigurationStore<CustomLinksRevision> getRevisionStore() {
+    return configurationStoreFactory.withType(CustomLinksRevision.class).withName(REVISION_STORE_NAME).build();
+  }
+
+  /**
+   * The names of all scopes with links and the links of the most recently used scopes together with the persisted
+   * revision, which they belong to.
+   */
+  private static final class Scopes {
+
+    private final Set<String> withLinks;
+    private final Cache<String, List<CustomLink>> linksByScope = CacheBuilder.newBuilder()
+      .maximumSize(MAX_CACHED_SCOPES)
+      .build();
+    private volatile CustomLinksRevision revision;
+
+    private Scopes(CustomLinksRevision revision, Set<String> withLinks) {
+      this.revision = revision;
+      this.withLinks = withLinks;
+    }
+
+    private void put(String scope, List<CustomLink> links) {
+      if (links.isEmpty()) {
+        withLinks.remove(scope);
+        linksByScope.invalidate(scope);
+      } else {
+        linksByScope.put(scope, links);
+        withLinks.add(scope);
+      }
+    }
+
+    private boolean isAt(CustomLinksRevision persisted) {
+      return persisted.getRevision() == revision.getRevision()
+        && Objects.equals(persisted.getWriteId(), revision.getWriteId());
+    }
+  }
+}
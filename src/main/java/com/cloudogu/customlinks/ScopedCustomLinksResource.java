@@ -0,0 +1,339 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+package com.cloudogu.customlinks;
+
+import de.otto.edison.hal.HalRepresentation;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import org.apache.shiro.authz.UnauthorizedException;
+import sonia.scm.api.v2.resources.ErrorDto;
+import sonia.scm.repository.Namespace;
+import sonia.scm.repository.NamespaceAndName;
+import sonia.scm.repository.NamespaceManager;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryManager;
+import sonia.scm.security.AllowAnonymousAccess;
+import sonia.scm.web.VndMediaType;
+
+import jakarta.inject.Inject;
+import jakarta.validation.Valid;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.UriInfo;
+import java.net.URI;
+
+import static com.cloudogu.customlinks.CustomLinksResource.CUSTOM_LINKS_MEDIA_TYPE;
+import static com.cloudogu.customlinks.ScopedCustomLinksResource.SCOPED_CUSTOM_LINKS_PATH;
+import static sonia.scm.ContextEntry.ContextBuilder.entity;
+import static sonia.scm.NotFoundException.notFound;
+
+@Path(SCOPED_CUSTOM_LINKS_PATH)
+public class ScopedCustomLinksResource {
+
+  public static final String SCOPED_CUSTOM_LINKS_PATH = "v2/scoped-custom-links";
+
+  private final ScopedCustomLinkStore store;
+  private final CustomLinkCollectionMapper collectionMapper;
+  private final CustomLinkUrls urls;
+  private final RepositoryManager repositoryManager;
+  private final NamespaceManager namespaceManager;
+
+  @Inject
+  ScopedCustomLinksResource(ScopedCustomLinkStore store,
+                            CustomLinkCollectionMapper collectionMapper,
+                            CustomLinkUrls urls,
+                            RepositoryManager repositoryManager,
+                            NamespaceManager namespaceManager) {
+    this.store = store;
+    this.collectionMapper = collectionMapper;
+    this.urls = urls;
+    this.repositoryManager = repositoryManager;
+    this.namespaceManager = namespaceManager;
+  }
+
+  @GET
+  @Path("namespace/{namespace}")
+  @Produces(CUSTOM_LINKS_MEDIA_TYPE)
+  @Operation(
+    summary = "Get custom links of a namespace",
+    description = "Returns the custom links, which are shown for all repositories of the namespace.",
+    tags = "Custom Links",
+    operationId = "custom_links_get_namespace_links"
+  )
+  @ApiResponse(
+    responseCode = "200",
+    description = "success",
+    content = @Content(
+      mediaType = CUSTOM_LINKS_MEDIA_TYPE,
+      schema = @Schema(implementation = HalRepresentation.class)
+    )
+  )
+  @ApiResponse(responseCode = "403", description = "not authorized, the current user may not read any repository of the namespace")
+  @ApiResponse(
+    responseCode = "404",
+    description = "not found, no namespace with the specified name available",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    )
+  )
+  @ApiResponse(
+    responseCode = "500",
+    description = "internal server error",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    )
+  )
+  @AllowAnonymousAccess
+  public HalRepresentation getNamespaceLinks(@Context UriInfo uriInfo,
+                                             @Context HttpHeaders headers,
+                                             @PathParam("namespace") String namespace) {
+    String existing = getNamespace(namespace);
+    checkReadNamespace(existing);
+    String scopeUrl = urls.namespace(uriInfo.getBaseUri(), existing);
+    return collectionMapper.mapScope(
+      scopeUrl,
+      store.getNamespaceLinks(existing),
+      null,
+      PermissionCheck.mayManageCustomLinks(),
+      CustomLinkTemplate.Values.forCurrentUser(existing),
+      CustomLinkLanguages.resolve(headers.getAcceptableLanguages())
+    );
+  }
+
+  @POST
+  @Path("namespace/{namespace}")
+  @Consumes(CUSTOM_LINKS_MEDIA_TYPE)
+  @Operation(
+    summary = "Add custom link to a namespace",
+    description = "Adds a single custom link to a namespace or replaces the url of the link with the same name.",
+    tags = "Custom Links",
+    operationId = "custom_links_add_namespace_link"
+  )
+  @ApiResponse(responseCode = "204", description = "no content")
+  @ApiResponse(responseCode = "401", description = "not authenticated / invalid credentials")
+  @ApiResponse(responseCode = "403", description = "not authorized, the current user does not have the \"manageCustomLinks\" privilege")
+  @ApiResponse(
+    responseCode = "404",
+    description = "not found, no namespace with the specified name available",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    )
+  )
+  @ApiResponse(
+    responseCode = "500",
+    description = "internal server error",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    )
+  )
+  public void addNamespaceLink(@PathParam("namespace") String namespace, @Valid CustomLinkDto customLink) {
+    store.addNamespaceLink(
+      getNamespace(namespace), customLink.getName(), customLink.getUrl(), customLink.getDisplayNames()
+    );
+  }
+
+  @DELETE
+  @Path("namespace/{namespace}/{linkName}")
+  @Operation(
+    summary = "Delete custom link of a namespace",
+    description = "Deletes a single custom link of a namespace.",
+    tags = "Custom Links",
+    operationId = "custom_links_delete_namespace_link"
+  )
+  @ApiResponse(responseCode = "204", description = "delete success or nothing to delete")
+  @ApiResponse(responseCode = "401", description = "not authenticated / invalid credentials")
+  @ApiResponse(responseCode = "403", description = "not authorized, the current user does not have the \"manageCustomLinks\" privilege")
+  @ApiResponse(
+    responseCode = "404",
+    description = "not found, no namespace with the specified name available",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    )
+  )
+  @ApiResponse(
+    responseCode = "500",
+    description = "internal server error",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    )
+  )
+  public void deleteNamespaceLink(@PathParam("namespace") String namespace, @PathParam("linkName") String linkName) {
+    store.removeNamespaceLink(getNamespace(namespace), linkName);
+  }
+
+  @GET
+  @Path("repository/{namespace}/{name}")
+  @Produces(CUSTOM_LINKS_MEDIA_TYPE)
+  @Operation(
+    summary = "Get custom links of a repository",
+    description = "Returns the custom links of the repository and all links to show for the repository, that are the global links, the links of the namespace and the links of the repository.",
+    tags = "Custom Links",
+    operationId = "custom_links_get_repository_links"
+  )
+  @ApiResponse(
+    responseCode = "200",
+    description = "success",
+    content = @Content(
+      mediaType = CUSTOM_LINKS_MEDIA_TYPE,
+      schema = @Schema(implementation = HalRepresentation.class)
+    )
+  )
+  @ApiResponse(responseCode = "403", description = "not authorized, the current user may not read the repository")
+  @ApiResponse(
+    responseCode = "404",
+    description = "not found, no repository with the specified namespace and name available",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    )
+  )
+  @ApiResponse(
+    responseCode = "500",
+    description = "internal server error",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    )
+  )
+  @AllowAnonymousAccess
+  public HalRepresentation getRepositoryLinks(@Context UriInfo uriInfo,
+                                              @Context HttpHeaders headers,
+                                              @PathParam("namespace") String namespace,
+                                              @PathParam("name") String name) {
+    Repository repository = getRepository(namespace, name);
+    URI baseUri = uriInfo.getBaseUri();
+    return collectionMapper.mapScope(
+      urls.repository(baseUri, repository),
+      store.getRepositoryLinks(repository),
+      store.resolve(repository),
+      PermissionCheck.mayManageCustomLinks(repository),
+      CustomLinkTemplate.Values.forCurrentUser(repository),
+      CustomLinkLanguages.resolve(headers.getAcceptableLanguages())
+    );
+  }
+
+  @POST
+  @Path("repository/{namespace}/{name}")
+  @Consumes(CUSTOM_LINKS_MEDIA_TYPE)
+  @Operation(
+    summary = "Add custom link to a repository",
+    description = "Adds a single custom link to a repository or replaces the url of the link with the same name.",
+    tags = "Custom Links",
+    operationId = "custom_links_add_repository_link"
+  )
+  @ApiResponse(responseCode = "204", description = "no content")
+  @ApiResponse(responseCode = "401", description = "not authenticated / invalid credentials")
+  @ApiResponse(responseCode = "403", description = "not authorized, the current user does neither have the \"manageCustomLinks\" privilege nor may modify the repository")
+  @ApiResponse(
+    responseCode = "404",
+    description = "not found, no repository with the specified namespace and name available",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    )
+  )
+  @ApiResponse(
+    responseCode = "500",
+    description = "internal server error",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    )
+  )
+  public void addRepositoryLink(@PathParam("namespace") String namespace,
+                                @PathParam("name") String name,
+                                @Valid CustomLinkDto customLink) {
+    store.addRepositoryLink(
+      getRepository(namespace, name), customLink.getName(), customLink.getUrl(), customLink.getDisplayNames()
+    );
+  }
+
+  @DELETE
+  @Path("repository/{namespace}/{name}/{linkName}")
+  @Operation(
+    summary = "Delete custom link of a repository",
+    description = "Deletes a single custom link of a repository.",
+    tags = "Custom Links",
+    operationId = "custom_links_delete_repository_link"
+  )
+  @ApiResponse(responseCode = "204", description = "delete success or nothing to delete")
+  @ApiResponse(responseCode = "401", description = "not authenticated / invalid credentials")
+  @ApiResponse(responseCode = "403", description = "not authorized, the current user does neither have the \"manageCustomLinks\" privilege nor may modify the repository")
+  @ApiResponse(
+    responseCode = "404",
+    description = "not found, no repository with the specified namespace and name available",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    )
+  )
+  @ApiResponse(
+    responseCode = "500",
+    description = "internal server error",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    )
+  )
+  public void deleteRepositoryLink(@PathParam("namespace") String namespace,
+                                   @PathParam("name") String name,
+                                   @PathParam("linkName") String linkName) {
+    store.removeRepositoryLink(getRepository(namespace, name), linkName);
+  }
+
+  private String getNamespace(String namespace) {
+    return namespaceManager.get(namespace)
+      .map(Namespace::getNamespace)
+      .orElseThrow(() -> notFound(entity(Namespace.class, namespace)));
+  }
+
+  /**
+   * A namespace may be read by everyone, who may read at least one of its repositories, like in the namespace overview.
+   */
+  private void checkReadNamespace(String namespace) {
+    if (PermissionCheck.mayManageCustomLinks()) {
+      return;
+    }
+    // the repository manager only returns the repositories, which may be read by the current user
+    if (repositoryManager.getAll(repository -> namespace.equals(repository.getNamespace()), null).isEmpty()) {
+      throw new UnauthorizedException("may not read namespace " + namespace);
+    }
+  }
+
+  private Repository getRepository(String namespace, String name) {
+    NamespaceAndName namespaceAndName = new NamespaceAndName(namespace, name);
+    Repository repository = repositoryManager.get(namespaceAndName);
+    if (repository == null) {
+      throw notFound(entity(namespaceAndName));
+    }
+    return repository;
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.customlinks;
+
+import com.google.common.base.Strings;
+
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+import java.util.Map;
+
+public class SupportedDisplayNamesValidator implements ConstraintValidator<SupportedDisplayNames, Map<String, String>> {
+
+  static final int MAX_LENGTH = 100;
+
+  @Override
+  public boolean isValid(Map<String, String> displayNames, ConstraintValidatorContext context) {
+    return findViolation(displayNames) == null;
+  }
+
+  /**
+   * Returns a message for the first invalid display name or {@code null}, if all display names are valid. This is
+   * used for imports as well, which do not pass the bean validation.
+   */
+  static String findViolation(Map<String, String> displayNames) {
+    if (displayNames == null) {
+      return null;
+    }
+    for (Map.Entry<String, String> entry : displayNames.entrySet()) {
+      if (!CustomLinkLanguages.SUPPORTED.contains(entry.getKey())) {
+        return "unsupported language for display name: " + entry.getKey();
+      }
+      if (Strings.isNullOrEmpty(entry.getValue())) {
+        return "empty display name for language " + entry.getKey();
+      }
+      if (entry.getValue().length() > MAX_LENGTH) {
+        return "display name for language " + entry.getKey() + " is longer than " + MAX_LENGTH + " characters";
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+package com.cloudogu.customlinks;
+
+import com.google.common.annotations.VisibleForTesting;
+import sonia.scm.store.ConfigurationEntryStore;
+import sonia.scm.store.ConfigurationEntryStoreFactory;
+import sonia.scm.store.ConfigurationStore;
+import sonia.scm.store.ConfigurationStoreFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores all links in their order as a single object of a configuration store, so that every change, even a batch
+ * of many links, is a single write. Links from before, which have been stored as entries of a configuration entry
+ * store with their order in a separate configuration store, are read until the links are written for the first
+ * time. The old stores are left untouched.
+ */
+class XmlCustomLinkStorage implements CustomLinkStorage {
+
+  @VisibleForTesting
+  static final String LIST_STORE_NAME = "custom-links-list";
+  @VisibleForTesting
+  static final String STORE_NAME = "custom-links";
+  @VisibleForTesting
+  static final String ORDER_STORE_NAME = "custom-links-order";
+
+  private final ConfigurationEntryStoreFactory configurationEntryStoreFactory;
+  private final ConfigurationStoreFactory configurationStoreFactory;
+
+  XmlCustomLinkStorage(ConfigurationEntryStoreFactory configurationEntryStoreFactory,
+                       ConfigurationStoreFactory configurationStoreFactory) {
+    this.configurationEntryStoreFactory = configurationEntryStoreFactory;
+    this.configurationStoreFactory = configurationStoreFactory;
+  }
+
+  @Override
+  public List<CustomLink> read() {
+    CustomLinkList stored = getListStore().get();
+    if (stored == null) {
+      return readEntries();
+    }
+    return stored.getLinks();
+  }
+
+  private List<CustomLink> readEntries() {
+    Map<String, CustomLink> storedLinks = new HashMap<>(getStore().getAll());
+    List<CustomLink> links = new ArrayList<>(storedLinks.size());
+    CustomLinksOrder order = getOrderStore().get();
+    if (order != null) {
+      for (String name : order.getNames()) {
+        CustomLink link = storedLinks.remove(name);
+        if (link != null) {
+          links.add(link);
+        }
+      }
+    }
+    // links without a position, e.g. stored before the order was introduced, follow sorted by name
+    storedLinks.values().stream().sorted(CustomLinkConfigStore.BY_NAME).forEach(links::add);
+    return links;
+  }
+
+  /**
+   * Writes all links at once, regardless of the number of changed links.
+   */
+  @Override
+  public void write(List<CustomLink> links) {
+    getListStore().set(new CustomLinkList(links));
+  }
+
+  private ConfigurationStore<CustomLinkList> getListStore() {
+    return configurationStoreFactory.withType(CustomLinkList.class).withName(LIST_STORE_NAME).build();
+  }
+
+  private ConfigurationEntryStore<CustomLink> getStore() {
+    return configurationEntryStoreFactory.withType(CustomLink.class).withName(STORE_NAME).build();
+  }
+
+  private ConfigurationStore<CustomLinksOrder> getOrderStore() {
+    return configurationStoreFactory.withType(CustomLinksOrder.class).withName(ORDER_STORE_NAME).build();
+  }
+}
@@ -15,8 +15,10 @@
  */
 
 import { Link, Links } from "@scm-manager/ui-types";
+import { useIndex } from "@scm-manager/ui-api";
+import { apiClient } from "@scm-manager/ui-components";
 import React, { FC } from "react";
-import { useCustomLinks } from "./useCustomLinks";
+import { useCustomLinkEvents, useCustomLinks } from "./useCustomLinks";
 import { CustomLink } from "./GlobalConfig";
 
 type Props = {
@@ -24,18 +26,31 @@ type Props = {
 };
 
 const CustomLinksRenderer: FC<Props> = ({ links }) => {
-  const { data, isLoading } = useCustomLinks((links.customLinks as Link).href);
+  const { data: index } = useIndex();
+  const embeddedLinks = index?._embedded?.customLinks as CustomLink[] | undefined;
+  const { data, isLoading } = useCustomLinks((links.customLinks as Link).href, !embeddedLinks);
+  useCustomLinkEvents((links.customLinksEvents as Link | undefined)?.href);
 
-  if (isLoading) {
+  if (!embeddedLinks && isLoading) {
     return null;
   }
 
+  const customLinks = embeddedLinks || (data?._embedded?.customLinks as CustomLink[]);
+  const clickTemplate = (links.customLinksClick as Link | undefined)?.href;
+
+  const countClick = (customLink: CustomLink) => {
+    if (clickTemplate) {
+      // the link opens in a new tab, so we do not have to wait for the response
+      apiClient.post(clickTemplate.replace("{linkName}", encodeURIComponent(customLink.name))).catch(() => undefined);
+    }
+  };
+
   return (
     <>
-      {(data?._embedded?.customLinks as CustomLink[]).map(cl => (
+      {customLinks.map(cl => (
         <li>
-          <a href={cl.url} target="_blank">
-            {cl.name}
+          <a href={cl.url} target="_blank" onClick={() => countClick(cl)}>
+            {cl.displayName || cl.name}
           </a>
         </li>
       ))}
@@ -16,18 +16,24 @@
 
 import React, { FC, useState } from "react";
 import { useTranslation } from "react-i18next";
+import styled from "styled-components";
 import {
   AddButton,
-  Column,
   ErrorNotification,
   Icon,
   InputField,
-  Table,
-  TextColumn,
+  Notification,
   Title,
 } from "@scm-manager/ui-components";
 import { HalRepresentation, Link } from "@scm-manager/ui-types";
-import { useAddCustomLink, useCustomLinks, useDeleteCustomLink } from "./useCustomLinks";
+import { Button } from "@scm-manager/ui-buttons";
+import {
+  useAddCustomLink,
+  useCustomLinkEvents,
+  useCustomLinksPage,
+  useDeleteCustomLink,
+  useMoveCustomLink
+} from "./useCustomLinks";
 
 type Props = {
   link: string;
@@ -36,49 +42,234 @@ type Props = {
 export type CustomLink = HalRepresentation & {
   name: string;
   url: string;
+  // names by language, only available for users who may manage the links
+  displayNames?: Record<string, string>;
+  // name in the language of the request, only available for users who may not manage the links
+  displayName?: string;
+  // result of the last health check, only available for users who may manage the links
+  status?: "OK" | "BROKEN" | "UNREACHABLE";
+  // clicks at the last flush of the counters, only available for users who may manage the links
+  clicks?: number;
+};
+
+type TableProps = {
+  customLinks: CustomLink[];
+  // position of the first link, links can only be moved if they are shown in their defined order
+  offset?: number;
 };
 
-const CustomLinksTable: FC<{ customLinks: CustomLink[] }> = ({ customLinks }) => {
+// the table renders only the visible rows, so every row must have the same height
+const ROW_HEIGHT = 41;
+const VISIBLE_ROWS = 15;
+const OVERSCAN = 5;
+
+const ScrollContainer = styled.div`
+  max-height: ${ROW_HEIGHT * VISIBLE_ROWS}px;
+  overflow-y: auto;
+`;
+
+const FixedTable = styled.table`
+  table-layout: fixed;
+  th:nth-child(3),
+  th:nth-child(4) {
+    width: 6rem;
+  }
+  th:last-child {
+    width: 7rem;
+  }
+  tr {
+    height: ${ROW_HEIGHT}px;
+  }
+  td {
+    overflow: hidden;
+    text-overflow: ellipsis;
+    white-space: nowrap;
+  }
+`;
+
+type RowProps = {
+  customLink: CustomLink;
+  // position of the link in the defined order or undefined, if the link cannot be moved
+  position?: number;
+  deleteLink: (link: string) => void;
+  moveLink: (link: string, position: number) => void;
+};
+
+const CustomLinkRow = React.memo<RowProps>(({ customLink, position, deleteLink, moveLink }) => {
   const [t] = useTranslation("plugins");
-  const { deleteLink, error: deleteError } = useDeleteCustomLink();
+  const moveLinkHref = (customLink._links.move as Link | undefined)?.href;
+  const deleteLinkHref = (customLink._links.delete as Link | undefined)?.href;
 
   return (
-    <>
-      <Table data={customLinks} emptyMessage={t("scm-custom-links-plugin.form.table.empty")}>
-        <TextColumn header={t("scm-custom-links-plugin.form.table.name")} dataKey="name" />
-        <TextColumn header={t("scm-custom-links-plugin.form.table.url")} dataKey="url" />
-        <Column header={t("")}>
-          {(row: any) => (
+    <tr>
+      <td title={[customLink.name, ...Object.values(customLink.displayNames || {})].join(" / ")}>{customLink.name}</td>
+      <td title={customLink.url}>{customLink.url}</td>
+      <td>{customLink.clicks}</td>
+      <td>
+        {customLink.status && customLink.status !== "OK" ? (
+          <Icon
+            name="exclamation-triangle"
+            color="warning"
+            title={t(`scm-custom-links-plugin.form.table.health.${customLink.status}`)}
+          />
+        ) : null}
+      </td>
+      <td>
+        {position !== undefined && moveLinkHref ? (
+          <>
+            {position > 0 ? (
+              <Icon
+                name="arrow-up"
+                className="mr-2"
+                onClick={() => moveLink(moveLinkHref, position - 1)}
+                title={t("scm-custom-links-plugin.form.table.moveUp")}
+              />
+            ) : null}
             <Icon
-              name="trash"
-              onClick={() => deleteLink((row._links.delete as Link).href)}
-              title={t("scm-custom-links-plugin.form.table.deleteLink")}
+              name="arrow-down"
+              className="mr-2"
+              onClick={() => moveLink(moveLinkHref, position + 1)}
+              title={t("scm-custom-links-plugin.form.table.moveDown")}
             />
-          )}
-        </Column>
-      </Table>
-      <ErrorNotification error={deleteError} />
+          </>
+        ) : null}
+        {deleteLinkHref ? (
+          <Icon
+            name="trash"
+            onClick={() => deleteLink(deleteLinkHref)}
+            title={t("scm-custom-links-plugin.form.table.deleteLink")}
+          />
+        ) : null}
+      </td>
+    </tr>
+  );
+});
+
+const CustomLinksTable: FC<TableProps> = ({ customLinks, offset }) => {
+  const [t] = useTranslation("plugins");
+  const [scrollTop, setScrollTop] = useState(0);
+  const { deleteLink, error: deleteError } = useDeleteCustomLink();
+  const { moveLink, error: moveError } = useMoveCustomLink();
+
+  if (!customLinks?.length) {
+    return <Notification type="info">{t("scm-custom-links-plugin.form.table.empty")}</Notification>;
+  }
+
+  const first = Math.max(0, Math.floor(scrollTop / ROW_HEIGHT) - OVERSCAN);
+  const last = Math.min(customLinks.length, Math.ceil(scrollTop / ROW_HEIGHT) + VISIBLE_ROWS + OVERSCAN);
+
+  return (
+    <>
+      <ScrollContainer className="mb-4" onScroll={event => setScrollTop(event.currentTarget.scrollTop)}>
+        <FixedTable className="table is-fullwidth">
+          <thead>
+            <tr>
+              <th>{t("scm-custom-links-plugin.form.table.name")}</th>
+              <th>{t("scm-custom-links-plugin.form.table.url")}</th>
+              <th>{t("scm-custom-links-plugin.form.table.clicks")}</th>
+              <th>{t("scm-custom-links-plugin.form.table.status")}</th>
+              <th />
+            </tr>
+          </thead>
+          <tbody>
+            {first > 0 ? <tr style={{ height: first * ROW_HEIGHT }} /> : null}
+            {customLinks.slice(first, last).map((customLink, index) => (
+              <CustomLinkRow
+                key={customLink.name}
+                customLink={customLink}
+                position={offset === undefined ? undefined : offset + first + index}
+                deleteLink={deleteLink}
+                moveLink={moveLink}
+              />
+            ))}
+            {last < customLinks.length ? <tr style={{ height: (customLinks.length - last) * ROW_HEIGHT }} /> : null}
+          </tbody>
+        </FixedTable>
+      </ScrollContainer>
+      <ErrorNotification error={deleteError || moveError} />
     </>
   );
 };
 
+// languages of the user interface, for which links may have display names
+const LANGUAGES = ["en", "de"];
+
+// the table renders only the visible rows, so a page may be as large as the server allows
+const PAGE_SIZE = 1000;
+
+type PageProps = {
+  page: number;
+  pageTotal: number;
+  onPageChange: (page: number) => void;
+};
+
+const CustomLinksPagination: FC<PageProps> = ({ page, pageTotal, onPageChange }) => {
+  const [t] = useTranslation("plugins");
+
+  if (pageTotal <= 1) {
+    return null;
+  }
+
+  return (
+    <div className="is-flex is-align-items-center is-justify-content-center mb-4">
+      <Button disabled={page <= 0} onClick={() => onPageChange(page - 1)}>
+        {t("scm-custom-links-plugin.form.table.previous")}
+      </Button>
+      <span className="mx-3">{t("scm-custom-links-plugin.form.table.page", { page: page + 1, pageTotal })}</span>
+      <Button disabled={page >= pageTotal - 1} onClick={() => onPageChange(page + 1)}>
+        {t("scm-custom-links-plugin.form.table.next")}
+      </Button>
+    </div>
+  );
+};
+
 const GlobalConfig: FC<Props> = ({ link }) => {
   const [t] = useTranslation("plugins");
-  const { data, error, isLoading } = useCustomLinks(link);
+  const [page, setPage] = useState(0);
+  const [filter, setFilter] = useState("");
+  const { data, error, isLoading } = useCustomLinksPage(link, page, PAGE_SIZE, filter);
   const { addLink, error: addLinkError } = useAddCustomLink(link);
+  useCustomLinkEvents((data?._links.events as Link | undefined)?.href);
 
   const [name, setName] = useState("");
   const [url, setUrl] = useState("");
+  const [displayNames, setDisplayNames] = useState<Record<string, string>>({});
 
   const reset = () => {
     setName("");
     setUrl("");
+    setDisplayNames({});
+  };
+
+  const addDisplayNames = () => {
+    const languages = Object.keys(displayNames).filter(language => !!displayNames[language]);
+    if (languages.length === 0) {
+      return undefined;
+    }
+    return languages.reduce((result, language) => ({ ...result, [language]: displayNames[language] }), {});
   };
 
   return (
     <>
       <Title title={t("scm-custom-links-plugin.settings.title")} />
-      {!isLoading ? <CustomLinksTable customLinks={data?._embedded?.customLinks as CustomLink[]} /> : null}
+      <InputField
+        label={t("scm-custom-links-plugin.form.filter.label")}
+        helpText={t("scm-custom-links-plugin.form.filter.helpText")}
+        value={filter}
+        onChange={value => {
+          setFilter(value);
+          setPage(0);
+        }}
+      />
+      {!isLoading ? (
+        <CustomLinksTable
+          // a new page starts at the top
+          key={`${page}-${filter}`}
+          customLinks={data?._embedded?.customLinks as CustomLink[]}
+          offset={filter ? undefined : page * PAGE_SIZE}
+        />
+      ) : null}
+      {data ? <CustomLinksPagination page={data.page} pageTotal={data.pageTotal} onPageChange={setPage} /> : null}
       <div className="columns is-flex is-align-items-center is-justify-content-space-between">
         <InputField
           label={t("scm-custom-links-plugin.form.name.label")}
@@ -94,13 +285,27 @@ const GlobalConfig: FC<Props> = ({ link }) => {
           onChange={setUrl}
           className="column mt-1"
         />
+        {LANGUAGES.map(language => (
+          <InputField
+            key={language}
+            label={t("scm-custom-links-plugin.form.displayName.label", {
+              language: t(`scm-custom-links-plugin.form.displayName.languages.${language}`)
+            })}
+            helpText={t("scm-custom-links-plugin.form.displayName.helpText", {
+              language: t(`scm-custom-links-plugin.form.displayName.languages.${language}`)
+            })}
+            value={displayNames[language] || ""}
+            onChange={value => setDisplayNames({ ...displayNames, [language]: value })}
+            className="column mt-1"
+          />
+        ))}
         <AddButton
           label={t("scm-custom-links-plugin.form.add")}
           title={t("scm-custom-links-plugin.form.add")}
           className="mt-5"
           disabled={!name || !url}
           action={() => {
-            addLink({ name, url, _links: {} });
+            addLink({ name, url, displayNames: addDisplayNames(), _links: {} });
             reset();
           }}
         />
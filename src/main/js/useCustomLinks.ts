@@ -15,13 +15,19 @@
  */
 
 import { apiClient } from "@scm-manager/ui-components";
-import { HalRepresentation } from "@scm-manager/ui-types";
-import { useMutation, useQueryClient, useQuery } from "react-query";
+import { HalRepresentation, Link } from "@scm-manager/ui-types";
+import { QueryClient, QueryKey, useMutation, useQueryClient, useQuery } from "react-query";
+import { useCallback, useEffect } from "react";
+import queryString from "query-string";
 import { CustomLink } from "./GlobalConfig";
 
-export const useCustomLinks = (link: string) => {
-  const { error, isLoading, data } = useQuery<HalRepresentation, Error>("custom-links", () =>
-    apiClient.get(link).then(res => res.json())
+export const useCustomLinks = (link: string, enabled = true) => {
+  const { error, isLoading, data } = useQuery<HalRepresentation, Error>(
+    // the link contains the revision, so a new revision is a new query
+    ["custom-links", link],
+    () => apiClient.get(link).then(res => res.json()),
+    // changes are pushed by the server, see useCustomLinkEvents
+    { enabled, staleTime: Infinity }
   );
 
   return {
@@ -31,22 +37,204 @@ export const useCustomLinks = (link: string) => {
   };
 };
 
+export type CustomLinksPage = HalRepresentation & {
+  page: number;
+  pageTotal: number;
+};
+
+export const useCustomLinksPage = (link: string, page: number, pageSize: number, namePrefix: string) => {
+  const { error, isLoading, data } = useQuery<CustomLinksPage, Error>(
+    ["custom-links", "page", page, pageSize, namePrefix],
+    () => {
+      const query = queryString.stringify({ page, pageSize, q: namePrefix || undefined });
+      return apiClient.get(`${link}?${query}`).then(res => res.json());
+    },
+    { keepPreviousData: true, staleTime: Infinity }
+  );
+
+  return {
+    error,
+    isLoading,
+    data
+  };
+};
+
+// versions of the links written by this client, the cached pages contain them already
+const ownVersions = new Set<string>();
+const MAX_OWN_VERSIONS = 100;
+
+const rememberOwnVersion = (version: string) => {
+  ownVersions.add(version);
+  if (ownVersions.size > MAX_OWN_VERSIONS) {
+    // the oldest version comes first
+    ownVersions.delete(ownVersions.values().next().value);
+  }
+};
+
+export const useCustomLinkEvents = (link?: string) => {
+  const queryClient = useQueryClient();
+  useEffect(() => {
+    if (!link) {
+      return;
+    }
+    let revision: string | undefined;
+    const eventSource = new EventSource(link, { withCredentials: true });
+    eventSource.addEventListener("change", event => {
+      const newRevision = (event as MessageEvent).data;
+      // the first event after (re)connecting carries the current revision
+      if (revision && revision !== newRevision) {
+        if (!ownVersions.has(newRevision)) {
+          queryClient.invalidateQueries(["custom-links"]);
+        }
+        // the index links to the links of the current version, e.g. for the footer
+        queryClient.invalidateQueries(["index"]);
+      }
+      revision = newRevision;
+    });
+    return () => eventSource.close();
+  }, [link, queryClient]);
+};
+
+type CachedPages = [QueryKey, CustomLinksPage | undefined][];
+
+type CustomLinkChange = {
+  version: string;
+  // position and link are missing, if the link has been removed
+  position?: number;
+  customLink?: CustomLink;
+};
+
+type PageUpdate = (customLinks: CustomLink[], page: CustomLinksPage, key: QueryKey) => CustomLink[];
+
+// key of a page query: ["custom-links", "page", page, pageSize, namePrefix]
+const pageSizeOf = (key: QueryKey) => (key as unknown[])[3] as number;
+const isFiltered = (key: QueryKey) => !!(key as unknown[])[4];
+
+const hrefOf = (customLink: CustomLink, rel: string) => (customLink._links[rel] as Link | undefined)?.href;
+
+/**
+ * Patches the changed rows in all cached pages, so that the table shows a change before the server confirmed it.
+ * Rows, which are not changed, keep their identity and are not rendered again.
+ */
+const updateCachedPages = async (queryClient: QueryClient, update: PageUpdate) => {
+  // a running request must not overwrite the patched pages with outdated data
+  await queryClient.cancelQueries(["custom-links", "page"]);
+  const previous: CachedPages = queryClient.getQueriesData<CustomLinksPage>(["custom-links", "page"]);
+  previous.forEach(([key, page]) => {
+    if (!page) {
+      return;
+    }
+    const customLinks = (page._embedded?.customLinks || []) as CustomLink[];
+    const updated = update(customLinks, page, key);
+    if (updated !== customLinks) {
+      queryClient.setQueryData(key, { ...page, _embedded: { ...page._embedded, customLinks: updated } });
+    }
+  });
+  return previous;
+};
+
+const restoreCachedPages = (queryClient: QueryClient, previous?: CachedPages) => {
+  previous?.forEach(([key, page]) => queryClient.setQueryData(key, page));
+};
+
+/**
+ * Replaces the patched row with the row of the server, which contains the links to move and delete it, and places it
+ * on the page of its position. The rows of other pages may have been shifted by the change, those pages are fetched
+ * again, when they are shown. The shown page is not fetched again.
+ */
+const applyChange = (queryClient: QueryClient, change: CustomLinkChange, name?: string) => {
+  rememberOwnVersion(change.version);
+  const { position, customLink: changed } = change;
+  if (name) {
+    replaceRow(queryClient, name, position, changed);
+  }
+  queryClient.invalidateQueries(["custom-links", "page"], { active: false });
+};
+
+const replaceRow = (queryClient: QueryClient, name: string, position?: number, changed?: CustomLink) =>
+  updateCachedPages(queryClient, (customLinks, page, key) => {
+    const index = customLinks.findIndex(customLink => customLink.name === name);
+    if (isFiltered(key)) {
+      // filtered pages are sorted by name, so the row keeps its place
+      if (index < 0) {
+        return customLinks;
+      }
+      return changed
+        ? [...customLinks.slice(0, index), changed, ...customLinks.slice(index + 1)]
+        : [...customLinks.slice(0, index), ...customLinks.slice(index + 1)];
+    }
+    const offset = page.page * pageSizeOf(key);
+    const updated = index < 0 ? [...customLinks] : [...customLinks.slice(0, index), ...customLinks.slice(index + 1)];
+    if (changed && position !== undefined && position >= offset && position < offset + pageSizeOf(key)) {
+      updated.splice(position - offset, 0, changed);
+    }
+    return index < 0 && updated.length === customLinks.length ? customLinks : updated.slice(0, pageSizeOf(key));
+  });
+
+const revertChange = (queryClient: QueryClient, previous?: CachedPages) => {
+  restoreCachedPages(queryClient, previous);
+  // the change may have been written nevertheless, e.g. if only the response got lost
+  queryClient.invalidateQueries(["custom-links", "page"]);
+};
+
 export const useDeleteCustomLink = () => {
   const queryClient = useQueryClient();
-  const { mutate, isLoading, error } = useMutation<unknown, Error, string>(
+  const { mutate, isLoading, error } = useMutation<CustomLinkChange, Error, string, CachedPages>(
     link => {
-      return apiClient.delete(link);
+      return apiClient.delete(link).then(res => res.json());
     },
     {
-      onSuccess: () => {
-        return queryClient.invalidateQueries(["custom-links"]);
-      }
+      onMutate: link =>
+        updateCachedPages(queryClient, customLinks => {
+          const index = customLinks.findIndex(customLink => hrefOf(customLink, "delete") === link);
+          return index < 0 ? customLinks : [...customLinks.slice(0, index), ...customLinks.slice(index + 1)];
+        }),
+      // the row has been removed already
+      onSuccess: change => applyChange(queryClient, change),
+      onError: (error, link, previous) => revertChange(queryClient, previous)
     }
   );
+  const deleteLink = useCallback((link: string) => mutate(link), [mutate]);
   return {
-    deleteLink: (link: string) => {
-      mutate(link);
+    deleteLink,
+    isLoading,
+    error
+  };
+};
+
+export const useMoveCustomLink = () => {
+  const queryClient = useQueryClient();
+  const { mutate, isLoading, error } = useMutation<
+    CustomLinkChange,
+    Error,
+    { link: string; position: number },
+    CachedPages
+  >(
+    ({ link, position }) => {
+      return apiClient
+        .post(link, { position }, "application/vnd.scmm-custom-link-move+json;v=2")
+        .then(res => res.json());
     },
+    {
+      onMutate: ({ link, position }) =>
+        updateCachedPages(queryClient, (customLinks, page, key) => {
+          const from = customLinks.findIndex(customLink => hrefOf(customLink, "move") === link);
+          const to = position - page.page * pageSizeOf(key);
+          // moves across pages are shown, after the server announced the change
+          if (from < 0 || isFiltered(key) || to < 0 || to >= customLinks.length) {
+            return customLinks;
+          }
+          const moved = [...customLinks];
+          moved.splice(to, 0, ...moved.splice(from, 1));
+          return moved;
+        }),
+      onSuccess: change => applyChange(queryClient, change, change.customLink?.name),
+      onError: (error, variables, previous) => revertChange(queryClient, previous)
+    }
+  );
+  const moveLink = useCallback((link: string, position: number) => mutate({ link, position }), [mutate]);
+  return {
+    moveLink,
     isLoading,
     error
   };
@@ -54,20 +242,33 @@ export const useDeleteCustomLink = () => {
 
 export const useAddCustomLink = (link: string) => {
   const queryClient = useQueryClient();
-  const { mutate, isLoading, error } = useMutation<unknown, Error, CustomLink>(
-    (customLink) => {
-      return apiClient.post(link, customLink, "application/vnd.scmm-custom-links+json;v=2");
+  const { mutate, isLoading, error } = useMutation<CustomLinkChange, Error, CustomLink, CachedPages>(
+    customLink => {
+      return apiClient.post(link, customLink, "application/vnd.scmm-custom-links+json;v=2").then(res => res.json());
     },
     {
-      onSuccess: () => {
-        return queryClient.invalidateQueries(["custom-links"]);
-      }
+      onMutate: added =>
+        updateCachedPages(queryClient, (customLinks, page, key) => {
+          const index = customLinks.findIndex(customLink => customLink.name === added.name);
+          if (index >= 0) {
+            // an existing link keeps its position
+            const updated = [...customLinks];
+            updated[index] = { ...customLinks[index], url: added.url, displayNames: added.displayNames };
+            return updated;
+          }
+          // new links are added at the end
+          if (!isFiltered(key) && page.page === page.pageTotal - 1 && customLinks.length < pageSizeOf(key)) {
+            return [...customLinks, added];
+          }
+          return customLinks;
+        }),
+      onSuccess: (change, customLink) => applyChange(queryClient, change, customLink.name),
+      onError: (error, customLink, previous) => revertChange(queryClient, previous)
     }
   );
+  const addLink = useCallback((customLink: CustomLink) => mutate(customLink), [mutate]);
   return {
-    addLink: (customLink: CustomLink) => {
-      mutate(customLink);
-    },
+    addLink,
     isLoading,
     error
   };
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+package com.cloudogu.customlinks;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sonia.scm.store.Blob;
+import sonia.scm.store.BlobStoreFactory;
+import sonia.scm.store.ConfigurationEntryStoreFactory;
+import sonia.scm.store.InMemoryBlobStoreFactory;
+import sonia.scm.store.InMemoryConfigurationEntryStoreFactory;
+import sonia.scm.store.InMemoryConfigurationStoreFactory;
+import sonia.scm.store.StoreException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CompactCustomLinkStorageTest {
+
+  private XmlCustomLinkStorage xmlStorage;
+  private BlobStoreFactory blobStoreFactory;
+  private CompactCustomLinkStorage storage;
+
+  @BeforeEach
+  void initStorage() {
+    ConfigurationEntryStoreFactory entryStoreFactory = new InMemoryConfigurationEntryStoreFactory();
+    xmlStorage = new XmlCustomLinkStorage(entryStoreFactory, new InMemoryConfigurationStoreFactory());
+    blobStoreFactory = new InMemoryBlobStoreFactory();
+    storage = new CompactCustomLinkStorage(blobStoreFactory, xmlStorage);
+  }
+
+  @Test
+  void shouldReadWrittenLinksInOrder() {
+    List<CustomLink> links = ImmutableList.of(
+      new CustomLink("SCM-Manager", "https://scm-manager.org/"),
+      new CustomLink("Cloudogu \"Community\"", "https://community.cloudogu.com/?a=1&b=ä")
+    );
+
+    storage.write(links);
+
+    assertThat(storage.read())
+      .extracting(CustomLink::getName, CustomLink::getUrl)
+      .containsExactly(
+        tuple("SCM-Manager", "https://scm-manager.org/"),
+        tuple("Cloudogu \"Community\"", "https://community.cloudogu.com/?a=1&b=ä")
+      );
+  }
+
+  @Test
+  void shouldMigrateLinksFromXmlStorage() {
+    xmlStorage.write(ImmutableList.of(
+      new CustomLink("b", "https://b.org/"),
+      new CustomLink("a", "https://a.org/")
+    ));
+
+    assertThat(storage.read()).extracting(CustomLink::getName).containsExactly("b", "a");
+
+    assertThat(blobStoreFactory.withName(CompactCustomLinkStorage.STORE_NAME).build().get(CompactCustomLinkStorage.BLOB_ID))
+      .isNotNull();
+  }
+
+  @Test
+  void shouldNotMigrateAgain() {
+    storage.read();
+    xmlStorage.write(ImmutableList.of(new CustomLink("a", "https://a.org/")));
+
+    assertThat(storage.read()).isEmpty();
+  }
+
+  @Test
+  void shouldWriteFewerBytesThanLinksContain() throws IOException {
+    List<CustomLink> links = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      links.add(new CustomLink("link-" + i, "https://scm-manager.org/" + i));
+    }
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    CompactCustomLinkFormat.write(output, links);
+
+    assertThat(output.size()).isLessThan(1000 * "https://scm-manager.org/".length());
+    assertThat(CompactCustomLinkFormat.read(new ByteArrayInputStream(output.toByteArray()))).hasSize(1000);
+  }
+
+  @Test
+  void shouldReadDisplayNames() throws IOException {
+    List<CustomLink> links = ImmutableList.of(
+      new CustomLink("Docs", "/docs", ImmutableMap.of("de", "Doku", "en", "Documentation")),
+      new CustomLink("SCM-Manager", "https://scm-manager.org/")
+    );
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    CompactCustomLinkFormat.write(output, links);
+
+    assertThat(CompactCustomLinkFormat.read(new ByteArrayInputStream(output.toByteArray())))
+      .extracting(CustomLink::getName, CustomLink::getDisplayNames)
+      .containsExactly(
+        tuple("Docs", ImmutableMap.of("de", "Doku", "en", "Documentation")),
+        tuple("SCM-Manager", null)
+      );
+  }
+
+  @Test
+  void shouldReadVersionWithoutDisplayNames() throws IOException {
+    byte[] content = gzip("{\"version\":1,\"links\":[[\"SCM-Manager\",\"https://scm-manager.org/\"]]}");
+
+    assertThat(CompactCustomLinkFormat.read(new ByteArrayInputStream(content)))
+      .extracting(CustomLink::getName, CustomLink::getUrl)
+      .containsExactly(tuple("SCM-Manager", "https://scm-manager.org/"));
+  }
+
+  @Test
+  void shouldFailForUnknownVersion() throws IOException {
+    byte[] content = gzip("{\"version\":3,\"links\":[]}");
+
+    assertThrows(IOException.class, () -> CompactCustomLinkFormat.read(new ByteArrayInputStream(content)));
+  }
+
+  @Test
+  void shouldFailForInvalidContent() throws IOException {
+    Blob blob = blobStoreFactory.withName(CompactCustomLinkStorage.STORE_NAME).build().create(CompactCustomLinkStorage.BLOB_ID);
+    try (OutputStream output = blob.getOutputStream()) {
+      output.write("no gzip".getBytes(StandardCharsets.UTF_8));
+    }
+    blob.commit();
+
+    assertThrows(StoreException.class, () -> storage.read());
+  }
+
+  private byte[] gzip(String content) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+      gzip.write(content.getBytes(StandardCharsets.UTF_8));
+    }
+    return output.toByteArray();
+  }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.customlinks;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import com.google.common.collect.ImmutableMap;
+import sonia.scm.store.Blob;
+import sonia.scm.store.BlobStoreFactory;
+import sonia.scm.store.ConfigurationStoreFactory;
+import sonia.scm.store.InMemoryBlobStoreFactory;
+import sonia.scm.store.InMemoryConfigurationStoreFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+class CustomLinkClickCounterTest {
+
+  // stub only, so that the mock does not record the invocations of the concurrent clicks
+  private final CustomLinkConfigStore configStore = mock(CustomLinkConfigStore.class, withSettings().stubOnly());
+  private final BlobStoreFactory blobStoreFactory = new InMemoryBlobStoreFactory();
+  private final ConfigurationStoreFactory storeFactory = new InMemoryConfigurationStoreFactory();
+
+  private CustomLinkClickCounter clickCounter;
+
+  @BeforeEach
+  void createCounter() {
+    when(configStore.containsLink(anyString())).thenAnswer(invocation -> !"unknown".equals(invocation.getArgument(0)));
+    clickCounter = createNode("heart-of-gold");
+  }
+
+  @Test
+  void shouldShowClicksOnlyAfterFlush() {
+    clickCounter.click("SCM-Manager");
+    clickCounter.click("SCM-Manager");
+
+    assertThat(clickCounter.getClicks("SCM-Manager")).isZero();
+
+    clickCounter.flush();
+
+    assertThat(clickCounter.getClicks("SCM-Manager")).isEqualTo(2);
+    assertThat(clickCounter.getGeneration()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldNotCountClicksOnUnknownLinks() {
+    assertThat(clickCounter.click("unknown")).isFalse();
+
+    clickCounter.flush();
+
+    assertThat(clickCounter.getClicks("unknown")).isZero();
+  }
+
+  @Test
+  void shouldNotWriteWithoutNewClicks() {
+    clickCounter.click("SCM-Manager");
+    clickCounter.flush();
+    clickCounter.flush();
+
+    assertThat(clickCounter.getGeneration()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldContinueWithPersistedClicks() {
+    clickCounter.click("SCM-Manager");
+    clickCounter.flush();
+
+    CustomLinkClickCounter restarted = createNode("heart-of-gold");
+    restarted.click("SCM-Manager");
+    restarted.flush();
+
+    assertThat(restarted.getClicks("SCM-Manager")).isEqualTo(2);
+  }
+
+  @Test
+  void shouldAddClicksOfOtherNodes() {
+    CustomLinkClickCounter otherNode = createNode("vogon");
+    clickCounter.click("SCM-Manager");
+    otherNode.click("SCM-Manager");
+    otherNode.click("SCM-Manager");
+
+    clickCounter.flush();
+    otherNode.flush();
+    clickCounter.flush();
+
+    assertThat(otherNode.getClicks("SCM-Manager")).isEqualTo(3);
+    assertThat(clickCounter.getClicks("SCM-Manager")).isEqualTo(3);
+    assertThat(clickCounter.getGeneration()).isEqualTo(2);
+  }
+
+  @Test
+  void shouldWriteCountsOfEachNodeSeparately() {
+    CustomLinkClickCounter otherNode = createNode("vogon");
+    // both nodes have read the counts, before any of them has written its clicks
+    assertThat(clickCounter.getClicks("SCM-Manager")).isZero();
+    assertThat(otherNode.getClicks("SCM-Manager")).isZero();
+    clickCounter.click("SCM-Manager");
+    otherNode.click("SCM-Manager");
+
+    otherNode.flush();
+    clickCounter.flush();
+
+    assertThat(blobStoreFactory.withName(CustomLinkClickCounter.STORE_NAME).build().getAll())
+      .extracting(Blob::getId)
+      .containsExactlyInAnyOrder("node-heart-of-gold", "node-vogon");
+    assertThat(clickCounter.getClicks("SCM-Manager")).isEqualTo(2);
+    assertThat(createNode("magrathea").getClicks("SCM-Manager")).isEqualTo(2);
+  }
+
+  @Test
+  void shouldMoveCountsOfFormerSingleStoreOnlyOnce() {
+    storeFactory.withType(CustomLinkClicks.class).withName(CustomLinkClickCounter.STORE_NAME).build()
+      .set(new CustomLinkClicks(ImmutableMap.of("SCM-Manager", 42L)));
+    CustomLinkClickCounter otherNode = createNode("vogon");
+
+    clickCounter.click("SCM-Manager");
+    clickCounter.flush();
+    otherNode.flush();
+
+    assertThat(clickCounter.getClicks("SCM-Manager")).isEqualTo(43);
+    assertThat(otherNode.getClicks("SCM-Manager")).isEqualTo(43);
+  }
+
+  @Test
+  void shouldDropClicksOfRemovedLinks() {
+    clickCounter.click("SCM-Manager");
+    clickCounter.flush();
+
+    when(configStore.containsLink("SCM-Manager")).thenReturn(false);
+    clickCounter.flush();
+
+    assertThat(clickCounter.getClicks("SCM-Manager")).isZero();
+  }
+
+  @Test
+  void shouldCountAllConcurrentClicks() throws Exception {
+    int threads = 16;
+    int clicksPerThread = 10_000;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    AtomicBoolean clicking = new AtomicBoolean(true);
+    try {
+      List<Future<?>> clickers = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        String name = "link-" + (i % 4);
+        clickers.add(executor.submit(() -> {
+          start.await();
+          for (int j = 0; j < clicksPerThread; j++) {
+            clickCounter.click(name);
+          }
+          return null;
+        }));
+      }
+      // flushes concurrently to the clicks, no click may get lost in between
+      Thread flusher = new Thread(() -> {
+        while (clicking.get()) {
+          clickCounter.flush();
+        }
+      });
+      flusher.start();
+
+      start.countDown();
+      for (Future<?> clicker : clickers) {
+        clicker.get(30, TimeUnit.SECONDS);
+      }
+      clicking.set(false);
+      flusher.join();
+    } finally {
+      executor.shutdownNow();
+    }
+
+    clickCounter.flush();
+
+    long total = 0;
+    for (int i = 0; i < 4; i++) {
+      assertThat(clickCounter.getClicks("link-" + i)).isEqualTo(4L * clicksPerThread);
+      total += clickCounter.getClicks("link-" + i);
+    }
+    assertThat(total).isEqualTo((long) threads * clicksPerThread);
+    assertThat(createNode("heart-of-gold").getClicks("link-0")).isEqualTo(4L * clicksPerThread);
+  }
+
+  private CustomLinkClickCounter createNode(String nodeId) {
+    Properties properties = new Properties();
+    properties.setProperty(CustomLinksSettings.CLICK_NODE_ID, nodeId);
+    return new CustomLinkClickCounter(blobStoreFactory, storeFactory, configStore, new CustomLinksSettings(properties));
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.customlinks;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import de.otto.edison.hal.HalRepresentation;
+import org.github.sdorra.jse.ShiroExtension;
+import org.github.sdorra.jse.SubjectAware;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.net.URI;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(ShiroExtension.class)
+class CustomLinkCollectionMapperTest {
+
+  private final URI baseUri = URI.create("/");
+  private final List<CustomLink> links = ImmutableList.of(new CustomLink("SCM-Manager", "https://scm-manager.org"));
+
+  private final CustomLinkHealth health = new CustomLinkHealth();
+  private final CustomLinkClickCounter clickCounter = mock(CustomLinkClickCounter.class);
+  private final CustomLinkCollectionMapper mapper = new CustomLinkCollectionMapper(new CustomLinkUrls(), health, clickCounter);
+
+  @Test
+  void shouldReuseReadOnlyLinksForSameRevision() {
+    HalRepresentation first = mapper.map(baseUri, "1", links, false, CustomLinkLanguages.DEFAULT);
+    HalRepresentation second = mapper.map(baseUri, "1", links, false, CustomLinkLanguages.DEFAULT);
+
+    assertThat(second.getEmbedded().getItemsBy("customLinks").get(0))
+      .isSameAs(first.getEmbedded().getItemsBy("customLinks").get(0));
+  }
+
+  @Test
+  void shouldRecreateReadOnlyLinksForNewRevision() {
+    HalRepresentation first = mapper.map(baseUri, "1", links, false, CustomLinkLanguages.DEFAULT);
+    HalRepresentation second = mapper.map(baseUri, "2", ImmutableList.of(), false, CustomLinkLanguages.DEFAULT);
+
+    assertThat(first.getEmbedded().getItemsBy("customLinks")).hasSize(1);
+    assertThat(second.getEmbedded().getItemsBy("customLinks")).isEmpty();
+  }
+
+  @Test
+  void shouldAddDeleteLinksForManagers() {
+    HalRepresentation collection = mapper.map(baseUri, "1", links, true, CustomLinkLanguages.DEFAULT);
+
+    assertThat(collection.getLinks().getLinkBy("addLink")).isPresent();
+    assertThat(collection.getEmbedded().getItemsBy("customLinks").get(0).getLinks().getLinkBy("delete"))
+      .hasValueSatisfying(link -> assertThat(link.getHref()).isEqualTo("/v2/custom-links/SCM-Manager"));
+  }
+
+  @Test
+  void shouldAddStatusAndClicksOnlyForManagers() {
+    health.update("https://scm-manager.org", CustomLinkHealth.Status.BROKEN);
+    when(clickCounter.getClicks("SCM-Manager")).thenReturn(42L);
+
+    CustomLinkDetailsDto managed = (CustomLinkDetailsDto) mapper.map(baseUri, "1", links, true, CustomLinkLanguages.DEFAULT)
+      .getEmbedded().getItemsBy("customLinks").get(0);
+    CustomLinkDetailsDto readOnly = (CustomLinkDetailsDto) mapper.map(baseUri, "1", links, false, CustomLinkLanguages.DEFAULT)
+      .getEmbedded().getItemsBy("customLinks").get(0);
+
+    assertThat(managed.getStatus()).isEqualTo(CustomLinkHealth.Status.BROKEN);
+    assertThat(managed.getClicks()).isEqualTo(42L);
+    assertThat(readOnly.getStatus()).isNull();
+    assertThat(readOnly.getClicks()).isNull();
+  }
+
+  @Test
+  void shouldNotAddDeleteLinksForReadOnlyView() {
+    HalRepresentation collection = mapper.map(baseUri, "1", links, false, CustomLinkLanguages.DEFAULT);
+
+    assertThat(collection.getLinks().getLinkBy("addLink")).isEmpty();
+    assertThat(collection.getEmbedded().getItemsBy("customLinks").get(0).getLinks().getLinkBy("delete")).isEmpty();
+  }
+
+  @Test
+  @SubjectAware("trillian")
+  void shouldExpandUsernameInReadOnlyView() {
+    List<CustomLink> userLinks = ImmutableList.of(
+      new CustomLink("SCM-Manager", "https://scm-manager.org"),
+      new CustomLink("Wiki", "https://wiki/{username}")
+    );
+
+    HalRepresentation first = mapper.map(baseUri, "1", userLinks, false, CustomLinkLanguages.DEFAULT);
+    HalRepresentation second = mapper.map(baseUri, "1", userLinks, false, CustomLinkLanguages.DEFAULT);
+
+    assertThat(mapper.isUserDependent("1", userLinks)).isTrue();
+    assertThat(((CustomLinkDetailsDto) first.getEmbedded().getItemsBy("customLinks").get(1)).getUrl())
+      .isEqualTo("https://wiki/trillian");
+    // links without the username are still shared
+    assertThat(second.getEmbedded().getItemsBy("customLinks").get(0))
+      .isSameAs(first.getEmbedded().getItemsBy("customLinks").get(0));
+  }
+
+  @Test
+  void shouldNotExpandTemplatesForManagers() {
+    List<CustomLink> userLinks = ImmutableList.of(new CustomLink("Wiki", "https://wiki/{username}"));
+
+    HalRepresentation collection = mapper.map(baseUri, "1", userLinks, true, CustomLinkLanguages.DEFAULT);
+
+    assertThat(((CustomLinkDetailsDto) collection.getEmbedded().getItemsBy("customLinks").get(0)).getUrl())
+      .isEqualTo("https://wiki/{username}");
+  }
+
+  @Test
+  void shouldExpandScopedLinks() {
+    List<HalRepresentation> dtos = mapper.mapReadOnly(
+      ImmutableList.of(new CustomLink("CI", "https://ci/{namespace}/{repository}")),
+      CustomLinkTemplate.Values.of(null, "hitchhiker", "heart-of-gold"),
+      CustomLinkLanguages.DEFAULT
+    );
+
+    assertThat(((CustomLinkDetailsDto) dtos.get(0)).getUrl()).isEqualTo("https://ci/hitchhiker/heart-of-gold");
+  }
+
+  @Test
+  void shouldShowDisplayNameOfLanguageOnly() {
+    List<CustomLink> localizedLinks = ImmutableList.of(
+      new CustomLink("Docs", "/docs", ImmutableMap.of("de", "Doku", "en", "Documentation")),
+      new CustomLink("SCM-Manager", "https://scm-manager.org")
+    );
+
+    HalRepresentation german = mapper.map(baseUri, "1", localizedLinks, false, "de");
+    HalRepresentation english = mapper.map(baseUri, "1", localizedLinks, false, "en");
+
+    CustomLinkDetailsDto germanDocs = (CustomLinkDetailsDto) german.getEmbedded().getItemsBy("customLinks").get(0);
+    assertThat(germanDocs.getDisplayName()).isEqualTo("Doku");
+    assertThat(germanDocs.getDisplayNames()).isNull();
+    assertThat(((CustomLinkDetailsDto) english.getEmbedded().getItemsBy("customLinks").get(0)).getDisplayName())
+      .isEqualTo("Documentation");
+    assertThat(((CustomLinkDetailsDto) german.getEmbedded().getItemsBy("customLinks").get(1)).getDisplayName())
+      .isEqualTo("SCM-Manager");
+    // computed once per revision and language
+    assertThat(mapper.map(baseUri, "1", localizedLinks, false, "de").getEmbedded().getItemsBy("customLinks").get(0))
+      .isSameAs(germanDocs);
+  }
+
+  @Test
+  void shouldShowAllDisplayNamesForManagers() {
+    List<CustomLink> localizedLinks = ImmutableList.of(new CustomLink("Docs", "/docs", ImmutableMap.of("de", "Doku")));
+
+    HalRepresentation collection = mapper.map(baseUri, "1", localizedLinks, true, "en");
+
+    CustomLinkDetailsDto docs = (CustomLinkDetailsDto) collection.getEmbedded().getItemsBy("customLinks").get(0);
+    assertThat(docs.getDisplayNames()).containsEntry("de", "Doku");
+    assertThat(docs.getDisplayName()).isNull();
+  }
+}
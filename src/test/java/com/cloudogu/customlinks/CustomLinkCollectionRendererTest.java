@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.customlinks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class CustomLinkCollectionRendererTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final List<CustomLink> links = ImmutableList.of(new CustomLink("SCM-Manager", "https://scm-manager.org"));
+
+  private final CustomLinkHealth health = new CustomLinkHealth();
+
+  private final CustomLinkCollectionRenderer renderer = new CustomLinkCollectionRenderer(new CustomLinkCollectionMapper(new CustomLinkUrls(), health, mock(CustomLinkClickCounter.class)), objectMapper);
+
+  @Test
+  void shouldReuseRenderedCollectionForSameRevision() {
+    byte[] first = renderer.render(URI.create("/scm/api/"), "1", links, false, CustomLinkLanguages.DEFAULT);
+    byte[] second = renderer.render(URI.create("/scm/api/"), "1", links, false, CustomLinkLanguages.DEFAULT);
+
+    assertThat(second).isSameAs(first);
+  }
+
+  @Test
+  void shouldRenderAgainForNewRevision() throws IOException {
+    renderer.render(URI.create("/scm/api/"), "1", links, false, CustomLinkLanguages.DEFAULT);
+    byte[] rendered = renderer.render(URI.create("/scm/api/"), "2", ImmutableList.of(), false, CustomLinkLanguages.DEFAULT);
+
+    assertThat(objectMapper.readTree(rendered).path("_embedded").path("customLinks")).isEmpty();
+  }
+
+  @Test
+  void shouldRenderViewsSeparately() throws IOException {
+    JsonNode readOnly = objectMapper.readTree(renderer.render(URI.create("/scm/api/"), "1", links, false, CustomLinkLanguages.DEFAULT));
+    JsonNode manage = objectMapper.readTree(renderer.render(URI.create("/scm/api/"), "1", links, true, CustomLinkLanguages.DEFAULT));
+
+    assertThat(readOnly.path("_links").has("addLink")).isFalse();
+    assertThat(manage.path("_links").path("addLink").path("href").textValue()).isEqualTo("/scm/api/v2/custom-links");
+  }
+
+  @Test
+  void shouldRenderPerBaseUri() throws IOException {
+    JsonNode first = objectMapper.readTree(renderer.render(URI.create("/scm/api/"), "1", links, false, CustomLinkLanguages.DEFAULT));
+    JsonNode second = objectMapper.readTree(renderer.render(URI.create("https://scm.hitchhiker.com/scm/api/"), "1", links, false, CustomLinkLanguages.DEFAULT));
+
+    assertThat(first.path("_links").path("self").path("href").textValue())
+      .isEqualTo("/scm/api/v2/custom-links");
+    assertThat(second.path("_links").path("self").path("href").textValue())
+      .isEqualTo("https://scm.hitchhiker.com/scm/api/v2/custom-links");
+  }
+
+  @Test
+  void shouldRenderManageViewAgainWithChangedHealth() throws IOException {
+    renderer.render(URI.create("/scm/api/"), "1", links, true, CustomLinkLanguages.DEFAULT);
+    byte[] readOnly = renderer.render(URI.create("/scm/api/"), "1", links, false, CustomLinkLanguages.DEFAULT);
+
+    health.update("https://scm-manager.org", CustomLinkHealth.Status.BROKEN);
+
+    JsonNode manage = objectMapper.readTree(renderer.render(URI.create("/scm/api/"), "1", links, true, CustomLinkLanguages.DEFAULT));
+    assertThat(manage.path("_embedded").path("customLinks").get(0).path("status").textValue()).isEqualTo("BROKEN");
+    assertThat(renderer.render(URI.create("/scm/api/"), "1", links, false, CustomLinkLanguages.DEFAULT)).isSameAs(readOnly);
+  }
+
+  @Test
+  void shouldRenderReadOnlyViewPerLanguage() throws IOException {
+    List<CustomLink> localizedLinks = ImmutableList.of(new CustomLink("Docs", "/docs", ImmutableMap.of("de", "Doku")));
+
+    byte[] german = renderer.render(URI.create("/scm/api/"), "1", localizedLinks, false, "de");
+    byte[] english = renderer.render(URI.create("/scm/api/"), "1", localizedLinks, false, "en");
+
+    assertThat(objectMapper.readTree(german).path("_embedded").path("customLinks").get(0).path("displayName").textValue())
+      .isEqualTo("Doku");
+    assertThat(objectMapper.readTree(english).path("_embedded").path("customLinks").get(0).path("displayName").textValue())
+      .isEqualTo("Docs");
+    assertThat(renderer.render(URI.create("/scm/api/"), "1", localizedLinks, false, "de")).isSameAs(german);
+  }
+}
@@ -16,6 +16,9 @@
 
 package com.cloudogu.customlinks;
 
+import com.google.common.collect.ImmutableList;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.apache.shiro.authz.AuthorizationException;
 import org.github.sdorra.jse.ShiroExtension;
 import org.github.sdorra.jse.SubjectAware;
@@ -23,29 +26,90 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.NotFoundException;
+import sonia.scm.event.ScmEventBus;
+import sonia.scm.store.BlobStoreFactory;
+import sonia.scm.store.ConfigurationEntryStore;
+import sonia.scm.store.ConfigurationEntryStoreFactory;
+import sonia.scm.store.ConfigurationStore;
+import sonia.scm.store.ConfigurationStoreFactory;
+import sonia.scm.store.InMemoryBlobStoreFactory;
 import sonia.scm.store.InMemoryConfigurationEntryStoreFactory;
+import sonia.scm.store.InMemoryConfigurationStoreFactory;
+import sonia.scm.store.StoreException;
 
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
-@ExtendWith(ShiroExtension.class)
+@ExtendWith({MockitoExtension.class, ShiroExtension.class})
 class CustomLinkConfigStoreTest {
 
+  @Mock
+  private ScmEventBus eventBus;
+
+  private ConfigurationEntryStoreFactory storeFactory;
+  private ConfigurationStoreFactory revisionStoreFactory;
+  private BlobStoreFactory blobStoreFactory;
+  private MeterRegistry meterRegistry;
   private CustomLinkConfigStore configStore;
 
   @BeforeEach
   void initStoreFactory() {
-    configStore = new CustomLinkConfigStore(new InMemoryConfigurationEntryStoreFactory());
+    storeFactory = new InMemoryConfigurationEntryStoreFactory();
+    revisionStoreFactory = new InMemoryConfigurationStoreFactory();
+    blobStoreFactory = new InMemoryBlobStoreFactory();
+    meterRegistry = new SimpleMeterRegistry();
+    configStore = createStore(new Properties());
+  }
+
+  private CustomLinkConfigStore createStore(Properties properties) {
+    return createStore(properties, new XmlCustomLinkStorage(storeFactory, revisionStoreFactory));
+  }
+
+  private CustomLinkConfigStore createStore(Properties properties, CustomLinkStorage storage) {
+    return new CustomLinkConfigStore(
+      storage,
+      new CustomLinkJournal(blobStoreFactory),
+      revisionStoreFactory,
+      new CustomLinksMetrics(meterRegistry),
+      eventBus,
+      new CustomLinksSettings(properties)
+    );
   }
 
   @Test
   void shouldThrowAuthorizationExceptionIfNotPermittedToManageCustomLinks() {
     assertThrows(AuthorizationException.class, () -> configStore.addLink("SCM-Manager", "https://scm-manager.org/"));
     assertThrows(AuthorizationException.class, () -> configStore.removeLink("SCM-Manager"));
+    assertThrows(AuthorizationException.class, () -> configStore.applyBatch(true, ImmutableList.of(), ImmutableList.of()));
+    assertThrows(AuthorizationException.class, () -> configStore.moveLink("SCM-Manager", 0));
   }
 
   @SubjectAware(value = "trillian", permissions = "configuration:manageCustomLinks")
@@ -61,6 +125,18 @@ class CustomLinkConfigStoreTest {
       assertThat(customLink.getUrl()).isEqualTo("https://scm-manager.org/");
     }
 
+    @Test
+    void shouldReturnLinksContainingTheChange() {
+      configStore.addLink("Wiki", "https://wiki.org/");
+
+      CustomLinkConfigStore.Snapshot changed = configStore.addLink("SCM-Manager", "https://scm-manager.org/");
+
+      assertThat(changed.getPosition("SCM-Manager")).isEqualTo(1);
+      assertThat(changed.getVersion()).isEqualTo(configStore.getVersion());
+      assertThat(configStore.moveLink("SCM-Manager", 0).getPosition("SCM-Manager")).isZero();
+      assertThat(configStore.removeLink("SCM-Manager").getPosition("SCM-Manager")).isNull();
+    }
+
     @Test
     void shouldRemoveLink() {
       configStore.addLink("SCM-Manager", "https://scm-manager.org/");
@@ -88,5 +164,590 @@ class CustomLinkConfigStoreTest {
       assertThat(links.stream().map(CustomLink::getUrl).collect(Collectors.toList()))
         .contains("https://community.cloudogu.com/", "https://scm-manager.org/");
     }
+
+    @Test
+    void shouldReadLinksOnlyOnceFromStore() {
+      storeFactory.withType(CustomLink.class).withName(XmlCustomLinkStorage.STORE_NAME).build()
+        .put("SCM-Manager", new CustomLink("SCM-Manager", "https://scm-manager.org/"));
+
+      Collection<CustomLink> first = configStore.getAllLinks();
+      Collection<CustomLink> second = configStore.getAllLinks();
+
+      assertThat(first).hasSize(1).isSameAs(second);
+    }
+
+    @Test
+    void shouldChangeRevisionOnEveryWrite() {
+      long initial = configStore.getRevision();
+
+      configStore.addLink("SCM-Manager", "https://scm-manager.org/");
+      long afterAdd = configStore.getRevision();
+      configStore.removeLink("SCM-Manager");
+
+      assertThat(afterAdd).isGreaterThan(initial);
+      assertThat(configStore.getRevision()).isGreaterThan(afterAdd);
+    }
+
+    @Test
+    void shouldApplyBatch() {
+      configStore.addLink("SCM-Manager", "https://scm-manager.org/");
+      configStore.addLink("Old", "https://old.org/");
+      long revision = configStore.getRevision();
+
+      configStore.applyBatch(
+        false,
+        ImmutableList.of(new CustomLink("SCM-Manager", "https://scm-manager.org/docs/"), new CustomLink("New", "https://new.org/")),
+        ImmutableList.of("Old")
+      );
+
+      assertThat(configStore.getAllLinks())
+        .extracting(CustomLink::getName, CustomLink::getUrl)
+        .containsExactly(
+          tuple("SCM-Manager", "https://scm-manager.org/docs/"),
+          tuple("New", "https://new.org/")
+        );
+      assertThat(configStore.getRevision()).isEqualTo(revision + 1);
+    }
+
+    @Test
+    void shouldReplaceAllLinksWithBatch() {
+      configStore.addLink("SCM-Manager", "https://scm-manager.org/");
+      configStore.addLink("Old", "https://old.org/");
+
+      configStore.applyBatch(true, ImmutableList.of(new CustomLink("New", "https://new.org/")), ImmutableList.of());
+
+      assertThat(configStore.getAllLinks())
+        .extracting(CustomLink::getName)
+        .containsExactly("New");
+    }
+
+    @Test
+    void shouldNotChangeRevisionForBatchWithoutChanges() {
+      configStore.addLink("SCM-Manager", "https://scm-manager.org/");
+      long revision = configStore.getRevision();
+
+      configStore.applyBatch(false, ImmutableList.of(new CustomLink("SCM-Manager", "https://scm-manager.org/")), ImmutableList.of("Unknown"));
+
+      assertThat(configStore.getRevision()).isEqualTo(revision);
+    }
+
+    @Test
+    void shouldRecordStoreMetrics() {
+      configStore.addLink("SCM-Manager", "https://scm-manager.org/");
+      configStore.addLink("SCM-Manager Community", "https://community.cloudogu.com/");
+
+      assertThat(meterRegistry.get("scm.customlinks.store").tag("operation", "read").timer().count()).isEqualTo(1);
+      assertThat(meterRegistry.get("scm.customlinks.store").tag("operation", "write").timer().count()).isEqualTo(2);
+      assertThat(meterRegistry.get("scm.customlinks.links").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldReportInitialLoadTime() {
+      assertThat(meterRegistry.get("scm.customlinks.store.initialload").timeGauge().value()).isNaN();
+
+      configStore.warmUp();
+      configStore.getAllLinks();
+
+      assertThat(meterRegistry.get("scm.customlinks.store.initialload").timeGauge().value()).isNotNaN();
+      assertThat(meterRegistry.get("scm.customlinks.store").tag("operation", "read").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldPostEventWithNewRevision() {
+      configStore.addLink("SCM-Manager", "https://scm-manager.org/");
+
+      ArgumentCaptor<CustomLinksChangedEvent> captor = ArgumentCaptor.forClass(CustomLinksChangedEvent.class);
+      verify(eventBus).post(captor.capture());
+      assertThat(captor.getValue().getRevision()).isEqualTo(configStore.getRevision());
+    }
+
+    @Test
+    void shouldNotPostEventForBatchWithoutChanges() {
+      configStore.applyBatch(false, ImmutableList.of(), ImmutableList.of("Unknown"));
+
+      verify(eventBus, never()).post(any());
+    }
+
+    @Test
+    void shouldKeepLinksInOrderOfCreation() {
+      configStore.addLink("b", "https://b.org/");
+      configStore.addLink("C", "https://c.org/");
+      configStore.addLink("a", "https://a.org/");
+
+      assertThat(configStore.getAllLinks())
+        .extracting(CustomLink::getName)
+        .containsExactly("b", "C", "a");
+    }
+
+    @Test
+    void shouldKeepPositionIfUrlIsChanged() {
+      configStore.addLink("a", "https://a.org/");
+      configStore.addLink("b", "https://b.org/");
+
+      configStore.addLink("a", "https://a.com/");
+
+      assertThat(configStore.getAllLinks())
+        .extracting(CustomLink::getName, CustomLink::getUrl)
+        .containsExactly(tuple("a", "https://a.com/"), tuple("b", "https://b.org/"));
+    }
+
+    @Test
+    void shouldMoveLink() {
+      configStore.addLink("a", "https://a.org/");
+      configStore.addLink("b", "https://b.org/");
+      configStore.addLink("c", "https://c.org/");
+
+      configStore.moveLink("c", 0);
+      assertThat(configStore.getAllLinks()).extracting(CustomLink::getName).containsExactly("c", "a", "b");
+
+      configStore.moveLink("c", 1);
+      assertThat(configStore.getAllLinks()).extracting(CustomLink::getName).containsExactly("a", "c", "b");
+    }
+
+    @Test
+    void shouldMoveLinkToEndForPositionAfterLastLink() {
+      configStore.addLink("a", "https://a.org/");
+      configStore.addLink("b", "https://b.org/");
+
+      configStore.moveLink("a", 42);
+
+      assertThat(configStore.getAllLinks()).extracting(CustomLink::getName).containsExactly("b", "a");
+    }
+
+    @Test
+    void shouldNotChangeRevisionIfLinkIsMovedToItsPosition() {
+      configStore.addLink("a", "https://a.org/");
+      long revision = configStore.getRevision();
+
+      configStore.moveLink("a", 0);
+
+      assertThat(configStore.getRevision()).isEqualTo(revision);
+    }
+
+    @Test
+    void shouldFailToMoveUnknownLink() {
+      assertThrows(NotFoundException.class, () -> configStore.moveLink("a", 0));
+    }
+
+    @Test
+    void shouldPersistOrder() {
+      configStore.addLink("a", "https://a.org/");
+      configStore.addLink("b", "https://b.org/");
+      configStore.moveLink("b", 0);
+
+      assertThat(createStore(new Properties()).getAllLinks())
+        .extracting(CustomLink::getName)
+        .containsExactly("b", "a");
+    }
+
+    @Test
+    void shouldAppendLinksStoredAsEntriesWithoutPositionSortedByName() {
+      ConfigurationEntryStore<CustomLink> store = storeFactory.withType(CustomLink.class).withName(XmlCustomLinkStorage.STORE_NAME).build();
+      store.put("z", new CustomLink("z", "https://z.org/"));
+      store.put("b", new CustomLink("b", "https://b.org/"));
+      store.put("A", new CustomLink("A", "https://a.org/"));
+      revisionStoreFactory.withType(CustomLinksOrder.class).withName(XmlCustomLinkStorage.ORDER_STORE_NAME).build()
+        .set(new CustomLinksOrder(ImmutableList.of("z")));
+
+      assertThat(configStore.getAllLinks())
+        .extracting(CustomLink::getName)
+        .containsExactly("z", "A", "b");
+    }
+
+    @Test
+    void shouldWriteAllLinksOfBatchAtOnce() {
+      ConfigurationEntryStore<CustomLink> entryStore = storeFactory.withType(CustomLink.class).withName(XmlCustomLinkStorage.STORE_NAME).build();
+      entryStore.put("old", new CustomLink("old", "https://old.org/"));
+      List<CustomLink> batch = new ArrayList<>();
+      for (int i = 0; i < 300; i++) {
+        batch.add(new CustomLink("link-" + i, "https://scm-manager.org/" + i));
+      }
+
+      configStore.applyBatch(false, batch, ImmutableList.of());
+
+      // the entries are only read, all links are written as a single object
+      assertThat(entryStore.getAll()).containsOnlyKeys("old");
+      CustomLinkList stored = revisionStoreFactory.withType(CustomLinkList.class).withName(XmlCustomLinkStorage.LIST_STORE_NAME).build().get();
+      assertThat(stored.getLinks()).hasSize(301);
+      assertThat(createStore(new Properties()).getAllLinks()).hasSize(301);
+    }
+
+    @Test
+    void shouldOrderLinksLikeReplacingBatch() {
+      configStore.addLink("a", "https://a.org/");
+      configStore.addLink("b", "https://b.org/");
+      long revision = configStore.getRevision();
+
+      configStore.applyBatch(true, ImmutableList.of(new CustomLink("b", "https://b.org/"), new CustomLink("a", "https://a.org/")), ImmutableList.of());
+
+      assertThat(configStore.getAllLinks()).extracting(CustomLink::getName).containsExactly("b", "a");
+      assertThat(configStore.getRevision()).isEqualTo(revision + 1);
+    }
+
+    @Test
+    void shouldSortLinksFoundByPrefixByNameIgnoringCase() {
+      configStore.addLink("b", "https://b.org/");
+      configStore.addLink("C", "https://c.org/");
+      configStore.addLink("a", "https://a.org/");
+
+      assertThat(configStore.findLinksByNamePrefix(""))
+        .extracting(CustomLink::getName)
+        .containsExactly("a", "b", "C");
+    }
+
+    @Test
+    void shouldFindLinksByNamePrefix() {
+      configStore.addLink("SCM-Manager", "https://scm-manager.org/");
+      configStore.addLink("scm community", "https://community.cloudogu.com/");
+      configStore.addLink("SC", "https://sc.org/");
+      configStore.addLink("Jenkins", "https://jenkins.io/");
+
+      assertThat(configStore.findLinksByNamePrefix("Scm"))
+        .extracting(CustomLink::getName)
+        .containsExactly("scm community", "SCM-Manager");
+      assertThat(configStore.findLinksByNamePrefix("x")).isEmpty();
+      assertThat(configStore.findLinksByNamePrefix("")).hasSize(4);
+    }
+
+    @Test
+    void shouldReturnUnmodifiableLinks() {
+      configStore.addLink("SCM-Manager", "https://scm-manager.org/");
+
+      Collection<CustomLink> links = configStore.getAllLinks();
+      CustomLink link = new CustomLink("other", "https://other.org/");
+
+      assertThrows(UnsupportedOperationException.class, () -> links.add(link));
+    }
+
+    @Test
+    void shouldWriteAllChangesOfConcurrentWriters() throws InterruptedException {
+      int writerCount = 16;
+      int linksPerWriter = 50;
+      long initialRevision = configStore.getRevision();
+      CountDownLatch start = new CountDownLatch(1);
+      List<Throwable> failures = new CopyOnWriteArrayList<>();
+      List<Thread> writers = new ArrayList<>();
+
+      for (int i = 0; i < writerCount; i++) {
+        int writer = i;
+        // threads inherit the subject of the test
+        Thread thread = new Thread(() -> {
+          try {
+            start.await();
+            for (int j = 0; j < linksPerWriter; j++) {
+              configStore.addLink("link-" + writer + "-" + j, "https://scm-manager.org/" + j);
+            }
+          } catch (Throwable e) {
+            failures.add(e);
+          }
+        });
+        writers.add(thread);
+        thread.start();
+      }
+      start.countDown();
+      for (Thread writer : writers) {
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+      }
+
+      assertThat(failures).isEmpty();
+      int linkCount = writerCount * linksPerWriter;
+      assertThat(configStore.getAllLinks()).hasSize(linkCount);
+      assertThat(createStore(new Properties()).getAllLinks()).hasSize(linkCount);
+      double writes = meterRegistry.get("scm.customlinks.store").tag("operation", "write").timer().count();
+      assertThat(writes).isLessThanOrEqualTo(linkCount);
+      assertThat(configStore.getRevision() - initialRevision).isEqualTo((long) writes);
+      assertThat(meterRegistry.get("scm.customlinks.store.changes").counter().count()).isEqualTo(linkCount);
+    }
+
+    @Test
+    void shouldCompleteInterruptedWrite() {
+      configStore.addLink("a", "https://a.org/");
+      long revision = configStore.getRevision();
+      // the journal entry has been appended, but the storage has not been changed
+      new CustomLinkJournal(blobStoreFactory).append(revision + 1, ImmutableList.of(
+        new CustomLink("a", "https://a.org/"),
+        new CustomLink("b", "https://b.org/")
+      ));
+
+      CustomLinkConfigStore restarted = createStore(new Properties());
+
+      assertThat(restarted.getAllLinks()).extracting(CustomLink::getName).containsExactly("a", "b");
+      assertThat(restarted.getRevision()).isEqualTo(revision + 1);
+      assertThat(createStore(new Properties()).getAllLinks()).extracting(CustomLink::getName).containsExactly("a", "b");
+    }
+
+    @Test
+    void shouldCompleteInterruptedWriteWithoutReadingStorage() {
+      configStore.addLink("a", "https://a.org/");
+      long revision = configStore.getRevision();
+      new CustomLinkJournal(blobStoreFactory).append(revision + 1, ImmutableList.of(new CustomLink("b", "https://b.org/")));
+      FailingStorage storage = new FailingStorage();
+      // e.g. a blob, which has been left half written
+      storage.failReads = true;
+
+      CustomLinkConfigStore restarted = createStore(new Properties(), storage);
+
+      assertThat(restarted.getAllLinks()).extracting(CustomLink::getName).containsExactly("b");
+      assertThat(createStore(new Properties()).getAllLinks()).extracting(CustomLink::getName).containsExactly("b");
+    }
+
+    @Test
+    void shouldNeitherReplayNorBlockFailedWrite() {
+      FailingStorage storage = new FailingStorage();
+      CustomLinkConfigStore store = createStore(new Properties(), storage);
+      store.addLink("a", "https://a.org/");
+      long revision = store.getRevision();
+
+      storage.failWrites = true;
+      assertThrows(StoreException.class, () -> store.addLink("b", "https://b.org/"));
+      storage.failWrites = false;
+
+      assertThat(store.getAllLinks()).extracting(CustomLink::getName).containsExactly("a");
+      assertThat(store.getRevision()).isEqualTo(revision);
+      assertThat(createStore(new Properties()).getAllLinks()).extracting(CustomLink::getName).containsExactly("a");
+
+      store.addLink("c", "https://c.org/");
+
+      assertThat(store.getAllLinks()).extracting(CustomLink::getName).containsExactly("a", "c");
+      assertThat(store.getRevision()).isEqualTo(revision + 1);
+      assertThat(createStore(new Properties()).getAllLinks()).extracting(CustomLink::getName).containsExactly("a", "c");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldCompleteWriteOfLinksWithoutRevisionOnNextAccess() {
+      ConfigurationStore<CustomLinksRevision> revisions = revisionStoreFactory.withType(CustomLinksRevision.class)
+        .withName(CustomLinkConfigStore.REVISION_STORE_NAME)
+        .build();
+      ConfigurationStore<CustomLinksRevision> failingRevisions = mock(ConfigurationStore.class, delegatesTo(revisions));
+      ConfigurationStoreFactory failingRevisionStoreFactory = mock(ConfigurationStoreFactory.class, RETURNS_DEEP_STUBS);
+      when(failingRevisionStoreFactory.withType(CustomLinksRevision.class)
+        .withName(CustomLinkConfigStore.REVISION_STORE_NAME)
+        .build()).thenReturn(failingRevisions);
+      CustomLinkConfigStore store = new CustomLinkConfigStore(
+        new XmlCustomLinkStorage(storeFactory, revisionStoreFactory),
+        new CustomLinkJournal(blobStoreFactory),
+        failingRevisionStoreFactory,
+        new CustomLinksMetrics(meterRegistry),
+        eventBus,
+        new CustomLinksSettings(new Properties())
+      );
+      store.addLink("a", "https://a.org/");
+      long revision = store.getRevision();
+
+      doThrow(new StoreException("failed to write revision", new IOException("disk full")))
+        .when(failingRevisions).set(any());
+      assertThrows(StoreException.class, () -> store.addLink("b", "https://b.org/"));
+      doAnswer(delegatesTo(revisions)).when(failingRevisions).set(any());
+
+      assertThat(store.getAllLinks()).extracting(CustomLink::getName).containsExactly("a", "b");
+      assertThat(store.getRevision()).isEqualTo(revision + 1);
+      assertThat(createStore(new Properties()).getAllLinks()).extracting(CustomLink::getName).containsExactly("a", "b");
+    }
+
+    @Test
+    void shouldIgnoreJournalOfCompletedWrites() {
+      configStore.addLink("a", "https://a.org/");
+      configStore.removeLink("a");
+
+      assertThat(createStore(new Properties()).getAllLinks()).isEmpty();
+    }
+
+    @Test
+    void shouldKeepOnlyLatestJournalEntries() {
+      for (int i = 0; i < CustomLinkJournal.RETAINED_ENTRIES + 5; i++) {
+        configStore.addLink("link-" + i, "https://scm-manager.org/" + i);
+      }
+
+      assertThat(blobStoreFactory.withName(CustomLinkJournal.STORE_NAME).build().getAll())
+        .hasSize(CustomLinkJournal.RETAINED_ENTRIES);
+    }
+
+    @Test
+    void shouldNeverExposeHalfAppliedWrites() throws InterruptedException {
+      int linkCount = 500;
+      AtomicBoolean writing = new AtomicBoolean(true);
+      CountDownLatch readersStarted = new CountDownLatch(4);
+      List<String> violations = new CopyOnWriteArrayList<>();
+      List<Thread> readers = new ArrayList<>();
+
+      for (int i = 0; i < 4; i++) {
+        Thread reader = new Thread(() -> {
+          readersStarted.countDown();
+          int lastSize = 0;
+          while (writing.get()) {
+            Collection<CustomLink> links = configStore.getAllLinks();
+            List<String> names = links.stream().map(CustomLink::getName).collect(Collectors.toList());
+            if (names.size() < lastSize) {
+              violations.add("snapshot shrunk from " + lastSize + " to " + names.size());
+            }
+            for (int j = 0; j < names.size(); j++) {
+              if (!names.contains("link-" + j)) {
+                violations.add("snapshot of size " + names.size() + " misses link-" + j);
+              }
+            }
+            lastSize = names.size();
+          }
+        });
+        readers.add(reader);
+        reader.start();
+      }
+
+      assertThat(readersStarted.await(5, TimeUnit.SECONDS)).isTrue();
+      for (int i = 0; i < linkCount; i++) {
+        configStore.addLink("link-" + i, "https://scm-manager.org/" + i);
+      }
+      writing.set(false);
+      for (Thread reader : readers) {
+        reader.join(TimeUnit.SECONDS.toMillis(10));
+      }
+
+      assertThat(violations).isEmpty();
+      assertThat(configStore.getAllLinks()).hasSize(linkCount);
+    }
+  }
+
+  @SubjectAware(value = "trillian", permissions = "configuration:manageCustomLinks")
+  @Nested
+  class WithSharedStorage {
+
+    private CustomLinkConfigStore otherNode;
+
+    @BeforeEach
+    void createOtherNode() {
+      Properties properties = new Properties();
+      properties.setProperty(CustomLinksSettings.REVISION_CHECK_INTERVAL, "0");
+      configStore = createStore(properties);
+      otherNode = createStore(properties);
+    }
+
+    @Test
+    void shouldUsePersistedRevisionOnAllNodes() {
+      assertThat(otherNode.getRevision()).isEqualTo(configStore.getRevision());
+    }
+
+    @Test
+    void shouldSeeChangesOfOtherNode() {
+      assertThat(otherNode.getAllLinks()).isEmpty();
+
+      configStore.addLink("SCM-Manager", "https://scm-manager.org/");
+
+      assertThat(otherNode.getAllLinks())
+        .extracting(CustomLink::getName)
+        .containsExactly("SCM-Manager");
+      assertThat(otherNode.getRevision()).isEqualTo(configStore.getRevision());
+    }
+
+    @Test
+    void shouldContinueWithRevisionOfOtherNode() {
+      otherNode.getAllLinks();
+      configStore.addLink("SCM-Manager", "https://scm-manager.org/");
+      long revision = configStore.getRevision();
+
+      otherNode.removeLink("SCM-Manager");
+
+      assertThat(otherNode.getRevision()).isGreaterThan(revision);
+      assertThat(configStore.getAllLinks()).isEmpty();
+      assertThat(configStore.getRevision()).isEqualTo(otherNode.getRevision());
+    }
+
+    @Test
+    void shouldApplyChangeAgainIfOtherNodeWritesInBetween() {
+      long revision = configStore.getRevision();
+      AtomicBoolean racing = new AtomicBoolean(true);
+      List<CustomLink> batch = new ArrayList<>(ImmutableList.of(new CustomLink("a", "https://a.org/"))) {
+        @Override
+        public void forEach(Consumer<? super CustomLink> action) {
+          // the other node writes after the links of this node have been read for the batch
+          if (racing.compareAndSet(true, false)) {
+            otherNode.addLink("b", "https://b.org/");
+          }
+          super.forEach(action);
+        }
+      };
+
+      configStore.applyBatch(false, batch, ImmutableList.of());
+
+      assertThat(configStore.getAllLinks()).extracting(CustomLink::getName).containsExactly("b", "a");
+      assertThat(otherNode.getAllLinks()).extracting(CustomLink::getName).containsExactly("b", "a");
+      assertThat(configStore.getRevision()).isEqualTo(revision + 2).isEqualTo(otherNode.getRevision());
+    }
+
+    @Test
+    void shouldDetectOtherWriteWithSameRevision() {
+      configStore.getAllLinks();
+      long revision = configStore.getRevision();
+      String version = configStore.getVersion();
+      // another node has written the same revision, e.g. after a race, which could not be detected before the write
+      revisionStoreFactory.withType(CustomLinksRevision.class).withName(CustomLinkConfigStore.REVISION_STORE_NAME).build()
+        .set(new CustomLinksRevision(revision, "other-write"));
+      storeFactory.withType(CustomLink.class).withName(XmlCustomLinkStorage.STORE_NAME).build()
+        .put("other", new CustomLink("other", "https://other.org/"));
+
+      assertThat(configStore.getAllLinks()).extracting(CustomLink::getName).containsExactly("other");
+      // caches and entity tags of the links of this node must not be used for the links of the other node
+      assertThat(configStore.getRevision()).isEqualTo(revision);
+      assertThat(configStore.getVersion()).isNotEqualTo(version).isEqualTo(revision + "-other-write");
+    }
+
+    @Test
+    void shouldPublishChangesOfOtherNodeOnCheck() {
+      configStore.getAllLinks();
+      otherNode.addLink("SCM-Manager", "https://scm-manager.org/");
+
+      configStore.checkForChanges();
+
+      ArgumentCaptor<CustomLinksChangedEvent> captor = ArgumentCaptor.forClass(CustomLinksChangedEvent.class);
+      // once for the write of the other node and once for the change detected by this node
+      verify(eventBus, times(2)).post(captor.capture());
+      assertThat(captor.getAllValues())
+        .extracting(CustomLinksChangedEvent::getRevision)
+        .containsOnly(otherNode.getRevision());
+    }
+
+    @Test
+    void shouldNotPublishAnythingOnCheckWithoutChanges() {
+      configStore.getAllLinks();
+
+      configStore.checkForChanges();
+
+      verify(eventBus, never()).post(any());
+    }
+
+    @Test
+    void shouldNotCheckRevisionBeforeIntervalHasPassed() {
+      CustomLinkConfigStore slowNode = createStore(new Properties());
+      assertThat(slowNode.getAllLinks()).isEmpty();
+
+      configStore.addLink("SCM-Manager", "https://scm-manager.org/");
+
+      assertThat(slowNode.getAllLinks()).isEmpty();
+    }
+  }
+
+  /**
+   * Delegates to the xml storage, but fails to read or to write on demand.
+   */
+  private class FailingStorage implements CustomLinkStorage {
+
+    private final CustomLinkStorage delegate = new XmlCustomLinkStorage(storeFactory, revisionStoreFactory);
+    private boolean failReads;
+    private boolean failWrites;
+
+    @Override
+    public List<CustomLink> read() {
+      if (failReads) {
+        throw new StoreException("failed to read custom links", new IOException("broken"));
+      }
+      return delegate.read();
+    }
+
+    @Override
+    public void write(List<CustomLink> links) {
+      if (failWrites) {
+        throw new StoreException("failed to write custom links", new IOException("disk full"));
+      }
+      delegate.write(links);
+    }
   }
 }
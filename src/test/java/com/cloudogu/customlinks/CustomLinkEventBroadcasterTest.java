@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+package com.cloudogu.customlinks;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import jakarta.ws.rs.sse.OutboundSseEvent;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseBroadcaster;
+import jakarta.ws.rs.sse.SseEventSink;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CustomLinkEventBroadcasterTest {
+
+  @Mock
+  private CustomLinkConfigStore configStore;
+  @Mock
+  private Sse sse;
+  @Mock
+  private SseBroadcaster sseBroadcaster;
+  @Mock
+  private SseEventSink sink;
+  @Mock
+  private OutboundSseEvent currentRevisionEvent;
+  @Mock
+  private OutboundSseEvent changeEvent;
+
+  private CustomLinkEventBroadcaster broadcaster;
+
+  @BeforeEach
+  void createBroadcaster() {
+    broadcaster = new CustomLinkEventBroadcaster(configStore);
+  }
+
+  @Test
+  void shouldIgnoreChangesWithoutSubscribers() {
+    broadcaster.handle(new CustomLinksChangedEvent(42L, "42"));
+
+    verify(sseBroadcaster, never()).broadcast(any());
+  }
+
+  @Test
+  void shouldSendCurrentRevisionOnSubscribe() {
+    when(sse.newBroadcaster()).thenReturn(sseBroadcaster);
+    when(configStore.getVersion()).thenReturn("21");
+    when(sse.newEvent(CustomLinkEventBroadcaster.CHANGE_EVENT, "21")).thenReturn(currentRevisionEvent);
+
+    broadcaster.register(sse, sink);
+
+    verify(sseBroadcaster).register(sink);
+    verify(sink).send(currentRevisionEvent);
+  }
+
+  @Test
+  void shouldBroadcastNewRevision() {
+    when(sse.newBroadcaster()).thenReturn(sseBroadcaster);
+    when(configStore.getVersion()).thenReturn("21");
+    when(sse.newEvent(CustomLinkEventBroadcaster.CHANGE_EVENT, "21")).thenReturn(currentRevisionEvent);
+    when(sse.newEvent(CustomLinkEventBroadcaster.CHANGE_EVENT, "42")).thenReturn(changeEvent);
+    broadcaster.register(sse, sink);
+
+    broadcaster.handle(new CustomLinksChangedEvent(42L, "42"));
+
+    verify(sseBroadcaster).broadcast(changeEvent);
+  }
+}
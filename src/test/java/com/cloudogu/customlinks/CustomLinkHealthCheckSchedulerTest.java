@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.customlinks;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Properties;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class CustomLinkHealthCheckSchedulerTest {
+
+  @Mock
+  private CustomLinkHealthChecker healthChecker;
+
+  @Test
+  void shouldCheckLinksPeriodically() throws InterruptedException {
+    Properties properties = new Properties();
+    properties.setProperty(CustomLinksSettings.HEALTH_CHECK_ENABLED, "true");
+    properties.setProperty(CustomLinksSettings.HEALTH_CHECK_INTERVAL, "10");
+    CustomLinkHealthCheckScheduler scheduler = new CustomLinkHealthCheckScheduler(healthChecker, new CustomLinksSettings(properties));
+
+    scheduler.contextInitialized(null);
+
+    verify(healthChecker, timeout(5000).atLeast(2)).check();
+    scheduler.contextDestroyed(null);
+    verify(healthChecker).close();
+  }
+
+  @Test
+  void shouldNotCheckLinksIfDisabled() throws InterruptedException {
+    Properties properties = new Properties();
+    properties.setProperty(CustomLinksSettings.HEALTH_CHECK_ENABLED, "true");
+    properties.setProperty(CustomLinksSettings.HEALTH_CHECK_INTERVAL, "0");
+    CustomLinkHealthCheckScheduler scheduler = new CustomLinkHealthCheckScheduler(healthChecker, new CustomLinksSettings(properties));
+
+    scheduler.contextInitialized(null);
+    scheduler.contextDestroyed(null);
+
+    verify(healthChecker, never()).check();
+  }
+
+  @Test
+  void shouldNotCheckLinksByDefault() throws InterruptedException {
+    CustomLinkHealthCheckScheduler scheduler = new CustomLinkHealthCheckScheduler(healthChecker, new CustomLinksSettings(new Properties()));
+
+    scheduler.contextInitialized(null);
+    scheduler.contextDestroyed(null);
+
+    verify(healthChecker, never()).check();
+  }
+}
@@ -0,0 +1,374 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.customlinks;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.net.ahc.AdvancedHttpClient;
+import sonia.scm.net.ahc.AdvancedHttpRequest;
+import sonia.scm.net.ahc.AdvancedHttpResponse;
+import sonia.scm.net.ahc.BaseHttpRequest;
+import sonia.scm.net.ahc.ContentTransformer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Probes a stubbed http client, which answers with the status code taken from the path, and a local stub server.
+ */
+@ExtendWith(MockitoExtension.class)
+class CustomLinkHealthCheckerTest {
+
+  private static final String BASE_URL = "https://hitchhiker.com";
+
+  @Mock
+  private CustomLinkConfigStore configStore;
+  @Mock
+  private AdvancedHttpClient httpClient;
+
+  private final CustomLinkHealth health = new CustomLinkHealth();
+  private final AtomicInteger concurrentRequests = new AtomicInteger();
+  private final AtomicInteger maxConcurrentRequests = new AtomicInteger();
+
+  private CustomLinkHealthChecker healthChecker;
+
+  private Properties properties;
+
+  @BeforeEach
+  void initHealthChecker() {
+    lenient().when(httpClient.head(anyString())).thenAnswer(invocation -> request(invocation.getArgument(0), "HEAD"));
+    lenient().when(httpClient.get(anyString())).thenAnswer(invocation -> request(invocation.getArgument(0), "GET"));
+
+    properties = new Properties();
+    properties.setProperty(CustomLinksSettings.HEALTH_CHECK_TIMEOUT, "500");
+    properties.setProperty(CustomLinksSettings.HEALTH_CHECK_HOST_INTERVAL, "0");
+    healthChecker = new CustomLinkHealthChecker(configStore, health, httpClient, new CustomLinksSettings(properties));
+  }
+
+  @AfterEach
+  void closeHealthChecker() {
+    healthChecker.close();
+  }
+
+  @Test
+  void shouldDetectHealthyAndBrokenLinks() throws InterruptedException {
+    when(configStore.getAllLinks()).thenReturn(ImmutableList.of(
+      new CustomLink("ok", BASE_URL + "/status/200"),
+      new CustomLink("redirect", BASE_URL + "/status/304"),
+      new CustomLink("missing", BASE_URL + "/status/404"),
+      new CustomLink("failing", BASE_URL + "/status/500")
+    ));
+
+    healthChecker.check();
+
+    assertThat(health.getStatus(BASE_URL + "/status/200")).isEqualTo(CustomLinkHealth.Status.OK);
+    assertThat(health.getStatus(BASE_URL + "/status/304")).isEqualTo(CustomLinkHealth.Status.OK);
+    assertThat(health.getStatus(BASE_URL + "/status/404")).isEqualTo(CustomLinkHealth.Status.BROKEN);
+    assertThat(health.getStatus(BASE_URL + "/status/500")).isEqualTo(CustomLinkHealth.Status.BROKEN);
+  }
+
+  @Test
+  void shouldUseHttpClientOfServer() throws InterruptedException {
+    when(configStore.getAllLinks()).thenReturn(ImmutableList.of(new CustomLink("ok", BASE_URL + "/status/200")));
+
+    healthChecker.check();
+
+    verify(httpClient).head(BASE_URL + "/status/200");
+  }
+
+  @Test
+  void shouldFallBackToGetIfHeadIsNotAllowed() throws InterruptedException {
+    when(configStore.getAllLinks()).thenReturn(ImmutableList.of(new CustomLink("get", BASE_URL + "/get-only")));
+
+    healthChecker.check();
+
+    assertThat(health.getStatus(BASE_URL + "/get-only")).isEqualTo(CustomLinkHealth.Status.OK);
+  }
+
+  @Test
+  void shouldMarkSlowLinksAsUnreachable() throws InterruptedException {
+    when(configStore.getAllLinks()).thenReturn(ImmutableList.of(new CustomLink("slow", BASE_URL + "/slow")));
+
+    healthChecker.check();
+
+    assertThat(health.getStatus(BASE_URL + "/slow")).isEqualTo(CustomLinkHealth.Status.UNREACHABLE);
+  }
+
+  @Test
+  void shouldSkipLinksWhileTooManyRequestsWaitForResponse() throws InterruptedException {
+    properties.setProperty(CustomLinksSettings.HEALTH_CHECK_CONCURRENCY, "1");
+    CustomLinkHealthChecker singleHostChecker = new CustomLinkHealthChecker(
+      configStore, health, httpClient, new CustomLinksSettings(properties)
+    );
+    // the request threads of the first two links are still waiting, when the third link is checked
+    when(configStore.getAllLinks()).thenReturn(ImmutableList.of(
+      new CustomLink("first", "https://first.hitchhiker.com/hanging"),
+      new CustomLink("second", "https://second.hitchhiker.com/hanging"),
+      new CustomLink("third", "https://third.hitchhiker.com/hanging")
+    ));
+
+    try {
+      singleHostChecker.check();
+    } finally {
+      singleHostChecker.close();
+    }
+
+    assertThat(health.getStatus("https://first.hitchhiker.com/hanging")).isEqualTo(CustomLinkHealth.Status.UNREACHABLE);
+    assertThat(health.getStatus("https://second.hitchhiker.com/hanging")).isEqualTo(CustomLinkHealth.Status.UNREACHABLE);
+    assertThat(health.getStatus("https://third.hitchhiker.com/hanging")).isNull();
+  }
+
+  @Test
+  void shouldCloseWithoutAnyCheck() {
+    new CustomLinkHealthChecker(configStore, health, httpClient, new CustomLinksSettings(properties)).close();
+  }
+
+  @Test
+  void shouldMarkRefusedConnectionsAsUnreachable() throws InterruptedException {
+    when(configStore.getAllLinks()).thenReturn(ImmutableList.of(new CustomLink("down", BASE_URL + "/down")));
+
+    healthChecker.check();
+
+    assertThat(health.getStatus(BASE_URL + "/down")).isEqualTo(CustomLinkHealth.Status.UNREACHABLE);
+  }
+
+  @Test
+  void shouldNotCheckRelativeLinks() throws InterruptedException {
+    when(configStore.getAllLinks()).thenReturn(ImmutableList.of(
+      new CustomLink("relative", "/scm/repos"),
+      new CustomLink("mail", "mailto:trillian@hitchhiker.com")
+    ));
+
+    healthChecker.check();
+
+    assertThat(health.getStatus("/scm/repos")).isNull();
+    assertThat(health.getStatus("mailto:trillian@hitchhiker.com")).isNull();
+    assertThat(health.getGeneration()).isZero();
+  }
+
+  @Test
+  void shouldProbeOnlyOneUrlOfTheSameHostAtATime() throws InterruptedException {
+    ImmutableList.Builder<CustomLink> links = ImmutableList.builder();
+    for (int i = 0; i < 8; i++) {
+      links.add(new CustomLink("link-" + i, BASE_URL + "/status/200?delay=50&i=" + i));
+    }
+    when(configStore.getAllLinks()).thenReturn(links.build());
+
+    healthChecker.check();
+
+    assertThat(maxConcurrentRequests.get()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldForgetRemovedLinks() throws InterruptedException {
+    when(configStore.getAllLinks())
+      .thenReturn(ImmutableList.of(new CustomLink("missing", BASE_URL + "/status/404")))
+      .thenReturn(ImmutableList.of());
+
+    healthChecker.check();
+    healthChecker.check();
+
+    assertThat(health.getStatus(BASE_URL + "/status/404")).isNull();
+  }
+
+  private AdvancedHttpRequest request(String url, String method) throws IOException {
+    AdvancedHttpRequest request = mock(AdvancedHttpRequest.class, RETURNS_SELF);
+    when(request.request()).thenAnswer(invocation -> respond(URI.create(url), method));
+    return request;
+  }
+
+  private AdvancedHttpResponse respond(URI uri, String method) throws IOException, InterruptedException {
+    String path = uri.getPath();
+    if (path.equals("/down")) {
+      throw new ConnectException("Connection refused");
+    }
+    if (path.equals("/slow")) {
+      Thread.sleep(2000);
+      return response(200);
+    }
+    if (path.equals("/hanging")) {
+      // like a blocking read of a socket, which is not interrupted by the cancellation of the request
+      Uninterruptibles.sleepUninterruptibly(2, TimeUnit.SECONDS);
+      return response(200);
+    }
+    if (path.equals("/get-only")) {
+      return response("GET".equals(method) ? 200 : 405);
+    }
+    maxConcurrentRequests.accumulateAndGet(concurrentRequests.incrementAndGet(), Math::max);
+    try {
+      String query = uri.getQuery();
+      if (query != null && query.startsWith("delay=")) {
+        Thread.sleep(Long.parseLong(query.substring("delay=".length(), query.indexOf('&'))));
+      }
+      return response(Integer.parseInt(path.substring(path.lastIndexOf('/') + 1)));
+    } finally {
+      concurrentRequests.decrementAndGet();
+    }
+  }
+
+  private static AdvancedHttpResponse response(int status) {
+    AdvancedHttpResponse response = mock(AdvancedHttpResponse.class);
+    when(response.getStatus()).thenReturn(status);
+    return response;
+  }
+
+  @Nested
+  class WithStubServer {
+
+    private ExecutorService serverExecutor;
+    private HttpServer server;
+    private String baseUrl;
+    private CustomLinkHealthChecker stubChecker;
+
+    @BeforeEach
+    void startServer() throws IOException {
+      server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+      server.createContext("/status", exchange -> {
+        String path = exchange.getRequestURI().getPath();
+        respond(exchange, Integer.parseInt(path.substring(path.lastIndexOf('/') + 1)));
+      });
+      server.createContext("/get-only", exchange -> respond(exchange, "GET".equals(exchange.getRequestMethod()) ? 200 : 405));
+      server.createContext("/slow", exchange -> {
+        Uninterruptibles.sleepUninterruptibly(2, TimeUnit.SECONDS);
+        respond(exchange, 200);
+      });
+      serverExecutor = Executors.newCachedThreadPool();
+      server.setExecutor(serverExecutor);
+      server.start();
+      baseUrl = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+
+      stubChecker = new CustomLinkHealthChecker(
+        configStore, health, new UrlConnectionHttpClient(), new CustomLinksSettings(properties)
+      );
+    }
+
+    @AfterEach
+    void stopServer() {
+      stubChecker.close();
+      server.stop(0);
+      serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void shouldDetectHealthyAndBrokenLinks() throws InterruptedException {
+      when(configStore.getAllLinks()).thenReturn(ImmutableList.of(
+        new CustomLink("ok", baseUrl + "/status/200"),
+        new CustomLink("missing", baseUrl + "/status/404"),
+        new CustomLink("failing", baseUrl + "/status/500"),
+        new CustomLink("get", baseUrl + "/get-only")
+      ));
+
+      stubChecker.check();
+
+      assertThat(health.getStatus(baseUrl + "/status/200")).isEqualTo(CustomLinkHealth.Status.OK);
+      assertThat(health.getStatus(baseUrl + "/status/404")).isEqualTo(CustomLinkHealth.Status.BROKEN);
+      assertThat(health.getStatus(baseUrl + "/status/500")).isEqualTo(CustomLinkHealth.Status.BROKEN);
+      assertThat(health.getStatus(baseUrl + "/get-only")).isEqualTo(CustomLinkHealth.Status.OK);
+    }
+
+    @Test
+    void shouldMarkSlowLinksAsUnreachable() throws InterruptedException {
+      when(configStore.getAllLinks()).thenReturn(ImmutableList.of(new CustomLink("slow", baseUrl + "/slow")));
+
+      long start = System.nanoTime();
+      stubChecker.check();
+
+      assertThat(health.getStatus(baseUrl + "/slow")).isEqualTo(CustomLinkHealth.Status.UNREACHABLE);
+      // the check does not wait for the response
+      assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(2000);
+    }
+
+    @Test
+    void shouldMarkClosedPortsAsUnreachable() throws InterruptedException, IOException {
+      int closedPort;
+      try (ServerSocket socket = new ServerSocket(0, 0, InetAddress.getLoopbackAddress())) {
+        closedPort = socket.getLocalPort();
+      }
+      String url = "http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + closedPort + "/";
+      when(configStore.getAllLinks()).thenReturn(ImmutableList.of(new CustomLink("down", url)));
+
+      stubChecker.check();
+
+      assertThat(health.getStatus(url)).isEqualTo(CustomLinkHealth.Status.UNREACHABLE);
+    }
+
+    private void respond(HttpExchange exchange, int status) throws IOException {
+      byte[] body = "stub".getBytes(StandardCharsets.UTF_8);
+      if ("HEAD".equals(exchange.getRequestMethod())) {
+        exchange.sendResponseHeaders(status, -1);
+      } else {
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+          output.write(body);
+        }
+      }
+      exchange.close();
+    }
+  }
+
+  /**
+   * Sends the requests without any timeout, like the http client of the server with its default settings.
+   */
+  private static class UrlConnectionHttpClient extends AdvancedHttpClient {
+
+    @Override
+    protected ContentTransformer createTransformer(Class<?> type, String contentType) {
+      throw new UnsupportedOperationException("the health check reads no content");
+    }
+
+    @Override
+    protected AdvancedHttpResponse request(BaseHttpRequest<?> request) throws IOException {
+      HttpURLConnection connection = (HttpURLConnection) new URL(request.getUrl()).openConnection();
+      try {
+        connection.setRequestMethod(request.getMethod());
+        return response(connection.getResponseCode());
+      } finally {
+        connection.disconnect();
+      }
+    }
+  }
+}
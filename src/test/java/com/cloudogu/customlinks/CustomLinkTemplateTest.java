@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.customlinks;
+
+import org.github.sdorra.jse.ShiroExtension;
+import org.github.sdorra.jse.SubjectAware;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(ShiroExtension.class)
+class CustomLinkTemplateTest {
+
+  private final CustomLinkTemplate.Values values = CustomLinkTemplate.Values.of("trillian", "hitchhiker", "heart-of-gold");
+
+  @Test
+  void shouldReturnUrlWithoutPlaceholders() {
+    String url = "https://scm-manager.org/";
+    CustomLinkTemplate template = CustomLinkTemplate.compile(url);
+
+    assertThat(template.isStatic()).isTrue();
+    assertThat(template.expand(values)).isSameAs(url);
+  }
+
+  @Test
+  void shouldReplaceAllPlaceholders() {
+    CustomLinkTemplate template = CustomLinkTemplate.compile("https://ci/{namespace}/{repository}?user={username}");
+
+    assertThat(template.isStatic()).isFalse();
+    assertThat(template.expand(values)).isEqualTo("https://ci/hitchhiker/heart-of-gold?user=trillian");
+  }
+
+  @Test
+  void shouldReplacePlaceholderAtStartAndEnd() {
+    CustomLinkTemplate template = CustomLinkTemplate.compile("{username}/{username}");
+
+    assertThat(template.expand(values)).isEqualTo("trillian/trillian");
+  }
+
+  @Test
+  void shouldEncodeValues() {
+    CustomLinkTemplate template = CustomLinkTemplate.compile("https://wiki/{username}");
+
+    assertThat(template.expand(CustomLinkTemplate.Values.of("Arthur Dent/42", null, null)))
+      .isEqualTo("https://wiki/Arthur%20Dent%2F42");
+  }
+
+  @Test
+  void shouldKeepPlaceholdersWithoutValue() {
+    CustomLinkTemplate template = CustomLinkTemplate.compile("https://ci/{namespace}/{repository}?user={username}");
+
+    assertThat(template.expand(CustomLinkTemplate.Values.of("trillian", null, null)))
+      .isEqualTo("https://ci/{namespace}/{repository}?user=trillian");
+  }
+
+  @Test
+  void shouldKeepUnknownPlaceholdersAndBraces() {
+    CustomLinkTemplate template = CustomLinkTemplate.compile("https://wiki/{page}/{{username}}/{username");
+
+    assertThat(template.contains(CustomLinkTemplate.Placeholder.USERNAME)).isTrue();
+    assertThat(template.expand(values)).isEqualTo("https://wiki/{page}/{trillian}/{username");
+  }
+
+  @Test
+  void shouldCompileUrlOfLink() {
+    CustomLink link = new CustomLink("Wiki", "https://wiki/{username}");
+
+    assertThat(link.getTemplate().contains(CustomLinkTemplate.Placeholder.USERNAME)).isTrue();
+
+    link.setUrl("https://wiki/{namespace}");
+
+    assertThat(link.getTemplate().contains(CustomLinkTemplate.Placeholder.USERNAME)).isFalse();
+    assertThat(link.getTemplate().getUrl()).isEqualTo("https://wiki/{namespace}");
+  }
+
+  @Test
+  @SubjectAware("trillian")
+  void shouldUseCurrentUser() {
+    CustomLinkTemplate template = CustomLinkTemplate.compile("https://wiki/{username}");
+
+    assertThat(template.expand(CustomLinkTemplate.Values.forCurrentUser())).isEqualTo("https://wiki/trillian");
+  }
+}
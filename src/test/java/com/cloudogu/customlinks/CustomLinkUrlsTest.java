@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.customlinks;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomLinkUrlsTest {
+
+  private static final URI BASE_URI = URI.create("https://scm.hitchhiker.com/scm/api/");
+
+  private final CustomLinkUrls urls = new CustomLinkUrls();
+
+  @Test
+  void shouldCreateCollectionUrl() {
+    assertThat(urls.collection(BASE_URI)).isEqualTo("https://scm.hitchhiker.com/scm/api/v2/custom-links");
+  }
+
+  @Test
+  void shouldReuseCollectionUrlForSameBaseUri() {
+    String first = urls.collection(BASE_URI);
+    String second = urls.collection(URI.create("https://scm.hitchhiker.com/scm/api/"));
+
+    assertThat(second).isSameAs(first);
+  }
+
+  @Test
+  void shouldCreateSameLinkUrlsAsLinkBuilder() {
+    for (String name : new String[]{"SCM-Manager", "SCM Manager", "Docs & Help", "100%", "Ümlaut"}) {
+      String expected = new RestAPI(BASE_URI).customLinks().deleteCustomLink(name).asString();
+
+      assertThat(urls.link(BASE_URI, new CustomLink(name, "https://scm-manager.org/"))).isEqualTo(expected);
+    }
+  }
+
+  @Test
+  void shouldCreatePageUrlWithEncodedPrefix() {
+    assertThat(urls.page(BASE_URI, 2, 10, "Docs & Help"))
+      .isEqualTo("https://scm.hitchhiker.com/scm/api/v2/custom-links?page=2&pageSize=10&q=Docs+%26+Help");
+  }
+
+  @Test
+  void shouldCreatePageUrlWithoutPrefix() {
+    assertThat(urls.page(BASE_URI, 0, 50, null))
+      .isEqualTo("https://scm.hitchhiker.com/scm/api/v2/custom-links?page=0&pageSize=50");
+  }
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.customlinks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.authz.AuthorizationInfo;
+import org.apache.shiro.authz.SimpleAuthorizationInfo;
+import org.apache.shiro.mgt.DefaultSecurityManager;
+import org.apache.shiro.realm.AuthorizingRealm;
+import org.apache.shiro.subject.PrincipalCollection;
+import org.apache.shiro.subject.SimplePrincipalCollection;
+import org.apache.shiro.subject.Subject;
+import org.jboss.resteasy.mock.MockHttpRequest;
+import org.jboss.resteasy.mock.MockHttpResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.event.ScmEventBus;
+import sonia.scm.store.ConfigurationEntryStore;
+import sonia.scm.store.ConfigurationEntryStoreFactory;
+import sonia.scm.store.ConfigurationStoreFactory;
+import sonia.scm.store.InMemoryBlobStoreFactory;
+import sonia.scm.store.InMemoryConfigurationEntryStoreFactory;
+import sonia.scm.store.InMemoryConfigurationStoreFactory;
+import sonia.scm.web.RestDispatcher;
+
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Fires concurrent reads of anonymous users and of users, who may manage the links, mixed with writes against the
+ * resource and checks the latency and the throughput against a budget. The test is not part of the regular build,
+ * it runs with {@code gradle loadTest}. The load and the budget can be changed with project properties, e.g.
+ * {@code -PcustomLinks.loadTest.maxP99=50}.
+ */
+@Tag("load")
+class CustomLinksResourceLoadTest {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CustomLinksResourceLoadTest.class);
+
+  private static final String PROPERTY_PREFIX = "customLinks.loadTest.";
+  private static final String PATH = "/" + CustomLinksResource.CUSTOM_LINKS_CONFIG_PATH;
+
+  private final int threads = intProperty("threads", 8);
+  private final int requestsPerThread = intProperty("requests", 2000);
+  private final int linkCount = intProperty("links", 1000);
+  private final long maxP99Millis = intProperty("maxP99", 250);
+  private final long minThroughput = intProperty("minThroughput", 200);
+
+  private enum Operation {
+    ANONYMOUS_READ, MANAGER_READ, WRITE
+  }
+
+  private CustomLinkConfigStore configStore;
+  private RestDispatcher dispatcher;
+  private Subject anonymous;
+  private Subject manager;
+
+  @BeforeEach
+  void initResource() {
+    DefaultSecurityManager securityManager = new DefaultSecurityManager(new LoadTestRealm());
+    anonymous = createSubject(securityManager, "_anonymous");
+    manager = createSubject(securityManager, "manager");
+
+    ConfigurationEntryStoreFactory storeFactory = new InMemoryConfigurationEntryStoreFactory();
+    ConfigurationStoreFactory configurationStoreFactory = new InMemoryConfigurationStoreFactory();
+    ConfigurationEntryStore<CustomLink> store = storeFactory.withType(CustomLink.class)
+      .withName(XmlCustomLinkStorage.STORE_NAME)
+      .build();
+    for (int i = 0; i < linkCount; i++) {
+      store.put("link-" + i, new CustomLink("link-" + i, "https://scm-manager.org/" + i));
+    }
+
+    CustomLinksMetrics metrics = new CustomLinksMetrics(new SimpleMeterRegistry());
+    CustomLinksSettings settings = new CustomLinksSettings(new Properties());
+    configStore = new CustomLinkConfigStore(
+      new XmlCustomLinkStorage(storeFactory, configurationStoreFactory),
+      new CustomLinkJournal(new InMemoryBlobStoreFactory()),
+      configurationStoreFactory,
+      metrics,
+      mock(ScmEventBus.class),
+      settings
+    );
+    CustomLinkClickCounter clickCounter = new CustomLinkClickCounter(
+      new InMemoryBlobStoreFactory(), configurationStoreFactory, configStore, settings
+    );
+    CustomLinkCollectionMapper collectionMapper = new CustomLinkCollectionMapper(
+      new CustomLinkUrls(), new CustomLinkHealth(), clickCounter
+    );
+    CustomLinksResource resource = new CustomLinksResource(
+      configStore,
+      new CustomLinkCollectionRenderer(collectionMapper, new ObjectMapper()),
+      collectionMapper,
+      metrics,
+      new CustomLinkEventBroadcaster(configStore),
+      settings,
+      clickCounter
+    );
+
+    dispatcher = new RestDispatcher();
+    dispatcher.addSingletonResource(resource);
+  }
+
+  @Test
+  void shouldStayWithinBudgetUnderConcurrentReadsAndWrites() throws Exception {
+    // lets the jit compile the hot paths, before we measure
+    run(Math.max(1, requestsPerThread / 10));
+
+    long start = System.nanoTime();
+    List<Samples> samples = run(requestsPerThread);
+    double seconds = (System.nanoTime() - start) / 1_000_000_000d;
+
+    Map<Operation, long[]> latencies = merge(samples);
+    long total = latencies.values().stream().mapToLong(values -> values.length).sum();
+    long throughput = Math.round(total / seconds);
+    long errors = samples.stream().mapToLong(sample -> sample.errors).sum();
+
+    LOG.info("{} requests from {} threads in {} ms, {} requests/s", total, threads, Math.round(seconds * 1000), throughput);
+    latencies.forEach((operation, values) -> LOG.info(
+      "{}: {} requests, p50 {} ms, p99 {} ms",
+      operation, values.length, millis(percentile(values, 0.5)), millis(percentile(values, 0.99))
+    ));
+
+    assertThat(errors).as("failed requests").isZero();
+    assertThat(throughput).as("requests per second").isGreaterThanOrEqualTo(minThroughput);
+    latencies.forEach((operation, values) ->
+      assertThat(millis(percentile(values, 0.99))).as("p99 of %s in ms", operation).isLessThanOrEqualTo(maxP99Millis)
+    );
+    // every added link has been deleted again by the same thread
+    assertThat(configStore.getAllLinks()).hasSize(linkCount);
+  }
+
+  private List<Samples> run(int requests) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    try {
+      List<Future<Samples>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        int thread = i;
+        futures.add(executor.submit(() -> {
+          start.await();
+          return sendRequests(thread, requests);
+        }));
+      }
+      start.countDown();
+      List<Samples> samples = new ArrayList<>();
+      for (Future<Samples> future : futures) {
+        samples.add(future.get(5, TimeUnit.MINUTES));
+      }
+      return samples;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private Samples sendRequests(int thread, int requests) throws URISyntaxException {
+    Samples samples = new Samples(requests);
+    // writes come in pairs of add and delete, so that the number of links stays the same
+    int writes = requests / 10 / 2 * 2;
+    for (int i = 0; i < requests; i++) {
+      int slot = i % 10;
+      Operation operation;
+      MockHttpRequest request;
+      if (slot == 0 && i / 10 < writes) {
+        operation = Operation.WRITE;
+        request = createWrite(thread, i / 10);
+      } else if (slot <= 2) {
+        operation = Operation.MANAGER_READ;
+        request = MockHttpRequest.get(PATH + "?page=" + (i % 5) + "&pageSize=50");
+      } else {
+        operation = Operation.ANONYMOUS_READ;
+        request = MockHttpRequest.get(PATH);
+      }
+      Subject subject = operation == Operation.ANONYMOUS_READ ? anonymous : manager;
+      MockHttpResponse response = new MockHttpResponse();
+
+      long requestStart = System.nanoTime();
+      subject.execute(() -> dispatcher.invoke(request, response));
+      samples.add(operation, System.nanoTime() - requestStart);
+
+      if (response.getStatus() >= 300) {
+        samples.errors++;
+      }
+    }
+    return samples;
+  }
+
+  private MockHttpRequest createWrite(int thread, int write) throws URISyntaxException {
+    String name = "load-" + thread + "-" + (write / 2);
+    if (write % 2 == 0) {
+      return MockHttpRequest.post(PATH)
+        .contentType(CustomLinksResource.CUSTOM_LINKS_MEDIA_TYPE)
+        .content(("{\"name\":\"" + name + "\",\"url\":\"https://scm-manager.org/" + name + "\"}").getBytes(StandardCharsets.UTF_8));
+    }
+    return MockHttpRequest.delete(PATH + "/" + name);
+  }
+
+  private static Map<Operation, long[]> merge(List<Samples> samples) {
+    Map<Operation, long[]> merged = new EnumMap<>(Operation.class);
+    for (Operation operation : Operation.values()) {
+      long[] values = samples.stream()
+        .flatMapToLong(sample -> Arrays.stream(sample.latencies.get(operation), 0, sample.counts.get(operation)))
+        .sorted()
+        .toArray();
+      if (values.length > 0) {
+        merged.put(operation, values);
+      }
+    }
+    return merged;
+  }
+
+  private static long percentile(long[] sortedValues, double percentile) {
+    int index = (int) Math.ceil(percentile * sortedValues.length) - 1;
+    return sortedValues[Math.max(0, index)];
+  }
+
+  private static long millis(long nanos) {
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+
+  private static int intProperty(String name, int defaultValue) {
+    return Integer.parseInt(System.getProperty(PROPERTY_PREFIX + name, String.valueOf(defaultValue)));
+  }
+
+  private static Subject createSubject(DefaultSecurityManager securityManager, String name) {
+    return new Subject.Builder(securityManager)
+      .principals(new SimplePrincipalCollection(name, "load"))
+      .authenticated(true)
+      .buildSubject();
+  }
+
+  private static final class Samples {
+    private final Map<Operation, long[]> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, Integer> counts = new EnumMap<>(Operation.class);
+    private long errors;
+
+    private Samples(int requests) {
+      for (Operation operation : Operation.values()) {
+        latencies.put(operation, new long[requests]);
+        counts.put(operation, 0);
+      }
+    }
+
+    private void add(Operation operation, long nanos) {
+      int count = counts.get(operation);
+      latencies.get(operation)[count] = nanos;
+      counts.put(operation, count + 1);
+    }
+  }
+
+  private static class LoadTestRealm extends AuthorizingRealm {
+
+    @Override
+    protected AuthorizationInfo doGetAuthorizationInfo(PrincipalCollection principals) {
+      SimpleAuthorizationInfo info = new SimpleAuthorizationInfo();
+      if ("manager".equals(principals.getPrimaryPrincipal())) {
+        info.addStringPermission("configuration:manageCustomLinks");
+      }
+      return info;
+    }
+
+    @Override
+    protected AuthenticationInfo doGetAuthenticationInfo(AuthenticationToken token) {
+      return null;
+    }
+  }
+}
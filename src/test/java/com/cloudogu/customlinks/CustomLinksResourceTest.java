@@ -17,21 +17,36 @@
 package com.cloudogu.customlinks;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.github.sdorra.jse.ShiroExtension;
 import org.github.sdorra.jse.SubjectAware;
 import org.jboss.resteasy.mock.MockHttpRequest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import sonia.scm.web.JsonMockHttpResponse;
 import sonia.scm.web.RestDispatcher;
 
+import jakarta.ws.rs.core.HttpHeaders;
 import java.net.URISyntaxException;
+import java.util.Collection;
+import java.util.Properties;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -41,21 +56,45 @@ class CustomLinksResourceTest {
 
   @Mock
   private CustomLinkConfigStore configStore;
+  @Mock
+  private CustomLinkEventBroadcaster eventBroadcaster;
+  @Mock
+  private CustomLinkClickCounter clickCounter;
 
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final CustomLinkHealth health = new CustomLinkHealth();
   private RestDispatcher dispatcher;
   private final JsonMockHttpResponse response = new JsonMockHttpResponse();
 
   @BeforeEach
   void initResource() {
-    CustomLinksResource resource = new CustomLinksResource(configStore);
+    initResource(new Properties());
+    lenient().when(configStore.getSnapshot()).thenReturn(new CustomLinkConfigStore.Snapshot(ImmutableList.of(), 0L));
+  }
+
+  private void initResource(Properties properties) {
+    CustomLinkCollectionMapper collectionMapper = new CustomLinkCollectionMapper(new CustomLinkUrls(), health, clickCounter);
+    CustomLinksResource resource = new CustomLinksResource(
+      configStore,
+      new CustomLinkCollectionRenderer(collectionMapper, new ObjectMapper()),
+      collectionMapper,
+      new CustomLinksMetrics(meterRegistry),
+      eventBroadcaster,
+      new CustomLinksSettings(properties),
+      clickCounter
+    );
 
     dispatcher = new RestDispatcher();
     dispatcher.addSingletonResource(resource);
   }
 
+  private void givenLinks(long revision, CustomLink... links) {
+    when(configStore.getSnapshot()).thenReturn(new CustomLinkConfigStore.Snapshot(ImmutableList.copyOf(links), revision));
+  }
+
   @Test
   void shouldGetAllLinksWithoutManagePermission() throws URISyntaxException {
-    when(configStore.getAllLinks()).thenReturn(ImmutableList.of(new CustomLink("SCM-Manager", "https://scm-manager.org")));
+    givenLinks(1L, new CustomLink("SCM-Manager", "https://scm-manager.org"));
 
     MockHttpRequest request = MockHttpRequest.get("/" + CustomLinksResource.CUSTOM_LINKS_CONFIG_PATH);
 
@@ -65,6 +104,7 @@ class CustomLinksResourceTest {
     JsonNode mainNode = response.getContentAsJson();
     assertThat(mainNode.path("_links").path("self").path("href").textValue()).isEqualTo("/v2/custom-links");
     assertThat(mainNode.path("_links").path("addLink").isEmpty()).isTrue();
+    assertThat(mainNode.path("_links").path("events").path("href").textValue()).isEqualTo("/v2/custom-links/events");
     assertThat(mainNode.path("_embedded").path("customLinks").get(0).path("name").textValue()).isEqualTo("SCM-Manager");
     assertThat(mainNode.path("_embedded").path("customLinks").get(0).path("url").textValue()).isEqualTo("https://scm-manager.org");
     assertThat(mainNode.path("_embedded").path("customLinks").get(0).path("_links").path("delete").isEmpty()).isTrue();
@@ -73,7 +113,7 @@ class CustomLinksResourceTest {
   @Test
   @SubjectAware(permissions = "configuration:manageCustomLinks")
   void shouldGetAllLinksWithManageLinks() throws URISyntaxException {
-    when(configStore.getAllLinks()).thenReturn(ImmutableList.of(new CustomLink("SCM-Manager", "https://scm-manager.org")));
+    givenLinks(1L, new CustomLink("SCM-Manager", "https://scm-manager.org"));
 
     MockHttpRequest request = MockHttpRequest.get("/" + CustomLinksResource.CUSTOM_LINKS_CONFIG_PATH);
 
@@ -86,10 +126,254 @@ class CustomLinksResourceTest {
     assertThat(mainNode.path("_embedded").path("customLinks").get(0).path("name").textValue()).isEqualTo("SCM-Manager");
     assertThat(mainNode.path("_embedded").path("customLinks").get(0).path("url").textValue()).isEqualTo("https://scm-manager.org");
     assertThat(mainNode.path("_embedded").path("customLinks").get(0).path("_links").path("delete").path("href").textValue()).isEqualTo("/v2/custom-links/SCM-Manager");
+    assertThat(mainNode.path("_embedded").path("customLinks").get(0).path("_links").path("move").path("href").textValue()).isEqualTo("/v2/custom-links/SCM-Manager/move");
+  }
+
+  @Test
+  void shouldGetPageOfLinks() throws URISyntaxException {
+    givenLinks(
+      1L,
+      new CustomLink("a", "https://a.org"),
+      new CustomLink("b", "https://b.org"),
+      new CustomLink("c", "https://c.org")
+    );
+
+    MockHttpRequest request = MockHttpRequest.get("/" + CustomLinksResource.CUSTOM_LINKS_CONFIG_PATH + "?page=1&pageSize=2");
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(200);
+    JsonNode mainNode = response.getContentAsJson();
+    assertThat(mainNode.path("page").intValue()).isEqualTo(1);
+    assertThat(mainNode.path("pageTotal").intValue()).isEqualTo(2);
+    assertThat(mainNode.path("_links").path("self").path("href").textValue()).isEqualTo("/v2/custom-links?page=1&pageSize=2");
+    assertThat(mainNode.path("_links").path("prev").path("href").textValue()).isEqualTo("/v2/custom-links?page=0&pageSize=2");
+    assertThat(mainNode.path("_links").has("next")).isFalse();
+    assertThat(mainNode.path("_embedded").path("customLinks")).hasSize(1);
+    assertThat(mainNode.path("_embedded").path("customLinks").get(0).path("name").textValue()).isEqualTo("c");
+  }
+
+  @Test
+  void shouldFilterLinksByNamePrefix() throws URISyntaxException {
+    givenLinks(1L, new CustomLink("SCM-Manager", "https://scm-manager.org"), new CustomLink("Wiki", "https://wiki"));
+
+    MockHttpRequest request = MockHttpRequest.get("/" + CustomLinksResource.CUSTOM_LINKS_CONFIG_PATH + "?q=scm");
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(200);
+    JsonNode mainNode = response.getContentAsJson();
+    assertThat(mainNode.path("page").intValue()).isZero();
+    assertThat(mainNode.path("_links").path("self").path("href").textValue()).isEqualTo("/v2/custom-links?page=0&pageSize=50&q=scm");
+    assertThat(mainNode.path("_embedded").path("customLinks")).hasSize(1);
+    assertThat(mainNode.path("_embedded").path("customLinks").get(0).path("name").textValue()).isEqualTo("SCM-Manager");
+  }
+
+  @Test
+  void shouldRejectInvalidPageSize() throws URISyntaxException {
+    MockHttpRequest request = MockHttpRequest.get("/" + CustomLinksResource.CUSTOM_LINKS_CONFIG_PATH + "?page=0&pageSize=0");
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(400);
+  }
+
+  @Test
+  void shouldReturnEntityTagDerivedFromRevision() throws URISyntaxException {
+    givenLinks(42L);
+
+    MockHttpRequest request = MockHttpRequest.get("/" + CustomLinksResource.CUSTOM_LINKS_CONFIG_PATH);
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(String.valueOf(response.getOutputHeaders().getFirst(HttpHeaders.ETAG))).contains("42-read-en");
+  }
+
+  @Test
+  void shouldReturnOtherEntityTagForConcurrentWriteOfSameRevision() throws URISyntaxException {
+    when(configStore.getSnapshot()).thenReturn(new CustomLinkConfigStore.Snapshot(ImmutableList.of(), 42L, "winner"));
+
+    MockHttpRequest request = MockHttpRequest.get("/" + CustomLinksResource.CUSTOM_LINKS_CONFIG_PATH)
+      .header(HttpHeaders.IF_NONE_MATCH, "\"42-loser-read-en\"");
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(String.valueOf(response.getOutputHeaders().getFirst(HttpHeaders.ETAG))).contains("42-winner-read-en");
+  }
+
+  @Test
+  void shouldTakeEntityTagAndLinksFromSameSnapshot() throws URISyntaxException {
+    givenLinks(42L, new CustomLink("SCM-Manager", "https://scm-manager.org"));
+
+    MockHttpRequest request = MockHttpRequest.get("/" + CustomLinksResource.CUSTOM_LINKS_CONFIG_PATH);
+
+    dispatcher.invoke(request, response);
+
+    assertThat(String.valueOf(response.getOutputHeaders().getFirst(HttpHeaders.ETAG))).contains("42-read-en");
+    assertThat(response.getContentAsJson().path("_embedded").path("customLinks").get(0).path("name").textValue()).isEqualTo("SCM-Manager");
+    verify(configStore).getSnapshot();
+    verify(configStore, never()).getRevision();
+    verify(configStore, never()).getAllLinks();
+  }
+
+  @Test
+  void shouldReturnDisplayNamesOfAcceptedLanguage() throws URISyntaxException {
+    givenLinks(42L, new CustomLink("Docs", "/docs", ImmutableMap.of("de", "Doku")));
+
+    MockHttpRequest request = MockHttpRequest.get("/" + CustomLinksResource.CUSTOM_LINKS_CONFIG_PATH)
+      .header(HttpHeaders.ACCEPT_LANGUAGE, "fr;q=1.0, de-DE;q=0.8, en;q=0.5");
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(String.valueOf(response.getOutputHeaders().getFirst(HttpHeaders.ETAG))).contains("42-read-de");
+    JsonNode link = response.getContentAsJson().path("_embedded").path("customLinks").get(0);
+    assertThat(link.path("displayName").textValue()).isEqualTo("Doku");
+    assertThat(link.path("displayNames").isObject()).isFalse();
+  }
+
+  @Test
+  void shouldReturnNotModifiedForMatchingEntityTag() throws URISyntaxException {
+    givenLinks(42L);
+
+    MockHttpRequest request = MockHttpRequest.get("/" + CustomLinksResource.CUSTOM_LINKS_CONFIG_PATH)
+      .header(HttpHeaders.IF_NONE_MATCH, "\"42-read-en\"");
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(304);
+    assertThat(response.getContentAsString()).isEmpty();
+    assertThat(meterRegistry.get("scm.customlinks.requests.notmodified").counter().count()).isEqualTo(1);
+  }
+
+  @Test
+  @SubjectAware(permissions = "configuration:manageCustomLinks")
+  void shouldNotReturnNotModifiedForEntityTagOfOtherView() throws URISyntaxException {
+    givenLinks(42L);
+
+    MockHttpRequest request = MockHttpRequest.get("/" + CustomLinksResource.CUSTOM_LINKS_CONFIG_PATH)
+      .header(HttpHeaders.IF_NONE_MATCH, "\"42-read-en\"");
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(String.valueOf(response.getOutputHeaders().getFirst(HttpHeaders.ETAG))).contains("42-0-manage");
+  }
+
+  @Test
+  @SubjectAware(permissions = "configuration:manageCustomLinks")
+  void shouldReturnHealthOfLinksToManagers() throws URISyntaxException {
+    givenLinks(42L, new CustomLink("SCM-Manager", "https://scm-manager.org"));
+    health.update("https://scm-manager.org", CustomLinkHealth.Status.UNREACHABLE);
+
+    MockHttpRequest request = MockHttpRequest.get("/" + CustomLinksResource.CUSTOM_LINKS_CONFIG_PATH)
+      .header(HttpHeaders.IF_NONE_MATCH, "\"42-0-manage\"");
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(String.valueOf(response.getOutputHeaders().getFirst(HttpHeaders.ETAG))).contains("42-1-manage");
+    JsonNode mainNode = response.getContentAsJson();
+    assertThat(mainNode.path("_embedded").path("customLinks").get(0).path("status").textValue()).isEqualTo("UNREACHABLE");
+  }
+
+  @Test
+  void shouldNotCacheLinksByDefault() throws URISyntaxException {
+    MockHttpRequest request = MockHttpRequest.get("/" + CustomLinksResource.CUSTOM_LINKS_CONFIG_PATH);
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getOutputHeaders().getFirst(HttpHeaders.CACHE_CONTROL)).isEqualTo("no-cache");
+    assertThat(response.getOutputHeaders().getFirst(HttpHeaders.VARY)).isEqualTo("Authorization, Cookie, Accept-Language");
+  }
+
+  @Test
+  void shouldAllowSharedCachesForReadOnlyLinks() throws URISyntaxException {
+    Properties properties = new Properties();
+    properties.setProperty(CustomLinksSettings.CACHE_MAX_AGE, "60");
+    initResource(properties);
+
+    MockHttpRequest request = MockHttpRequest.get("/" + CustomLinksResource.CUSTOM_LINKS_CONFIG_PATH);
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getOutputHeaders().getFirst(HttpHeaders.CACHE_CONTROL)).isEqualTo("public, max-age=60");
+  }
+
+  @Test
+  @SubjectAware(permissions = "configuration:manageCustomLinks")
+  void shouldKeepLinksForManagersPrivate() throws URISyntaxException {
+    Properties properties = new Properties();
+    properties.setProperty(CustomLinksSettings.CACHE_MAX_AGE, "60");
+    initResource(properties);
+    givenLinks(42L);
+
+    MockHttpRequest request = MockHttpRequest.get("/" + CustomLinksResource.CUSTOM_LINKS_CONFIG_PATH + "?revision=42");
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getOutputHeaders().getFirst(HttpHeaders.CACHE_CONTROL)).isEqualTo("private, no-cache");
+  }
+
+  @Test
+  void shouldCacheCurrentRevisionForever() throws URISyntaxException {
+    givenLinks(42L);
+
+    MockHttpRequest request = MockHttpRequest.get("/" + CustomLinksResource.CUSTOM_LINKS_CONFIG_PATH + "?revision=42");
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(response.getOutputHeaders().getFirst(HttpHeaders.CACHE_CONTROL)).isEqualTo("public, max-age=31536000, immutable");
+  }
+
+  @Test
+  void shouldExpandUsernameAndCacheOnlyPrivately() throws URISyntaxException {
+    givenLinks(42L, new CustomLink("Wiki", "https://wiki/{username}"));
+
+    MockHttpRequest request = MockHttpRequest.get("/" + CustomLinksResource.CUSTOM_LINKS_CONFIG_PATH + "?revision=42");
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(response.getOutputHeaders().getFirst(HttpHeaders.CACHE_CONTROL)).isEqualTo("private, max-age=31536000, immutable");
+    assertThat(String.valueOf(response.getOutputHeaders().getFirst(HttpHeaders.ETAG))).contains("42-read-");
+    assertThat(response.getContentAsJson().path("_embedded").path("customLinks").get(0).path("url").textValue())
+      .isEqualTo("https://wiki/trillian");
+  }
+
+  @Test
+  void shouldNotCacheOutdatedRevisionForever() throws URISyntaxException {
+    givenLinks(43L);
+
+    MockHttpRequest request = MockHttpRequest.get("/" + CustomLinksResource.CUSTOM_LINKS_CONFIG_PATH + "?revision=42");
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(response.getOutputHeaders().getFirst(HttpHeaders.CACHE_CONTROL)).isEqualTo("no-cache");
+  }
+
+  @Test
+  void shouldNotCacheConcurrentWriteOfSameRevisionForever() throws URISyntaxException {
+    when(configStore.getSnapshot()).thenReturn(new CustomLinkConfigStore.Snapshot(ImmutableList.of(), 42L, "winner"));
+
+    MockHttpRequest request = MockHttpRequest.get("/" + CustomLinksResource.CUSTOM_LINKS_CONFIG_PATH + "?revision=42-loser");
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(response.getOutputHeaders().getFirst(HttpHeaders.CACHE_CONTROL)).isEqualTo("no-cache");
   }
 
   @Test
   void shouldAddLink() throws URISyntaxException {
+    when(configStore.addLink("SCM-Manager", "https://scm-manager.org/", null)).thenReturn(new CustomLinkConfigStore.Snapshot(
+      ImmutableList.of(new CustomLink("Wiki", "https://wiki.org/"), new CustomLink("SCM-Manager", "https://scm-manager.org/")),
+      43L, "added"
+    ));
     byte[] contentJson = ("{\"name\" : \"SCM-Manager\", \"url\" : \"https://scm-manager.org/\"}").getBytes();
 
     MockHttpRequest request = MockHttpRequest.post("/" + CustomLinksResource.CUSTOM_LINKS_CONFIG_PATH)
@@ -98,18 +382,218 @@ class CustomLinksResourceTest {
 
     dispatcher.invoke(request, response);
 
+    assertThat(response.getStatus()).isEqualTo(200);
+    JsonNode change = response.getContentAsJson();
+    assertThat(change.path("version").textValue()).isEqualTo("43-added");
+    assertThat(change.path("position").intValue()).isEqualTo(1);
+    assertThat(change.path("customLink").path("name").textValue()).isEqualTo("SCM-Manager");
+    assertThat(change.path("customLink").path("_links").path("move").path("href").textValue())
+      .isEqualTo("/v2/custom-links/SCM-Manager/move");
+    assertThat(meterRegistry.get("scm.customlinks.requests").tag("operation", "add").timer().count()).isEqualTo(1);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void shouldApplyBatch() throws URISyntaxException {
+    byte[] contentJson = ("{\"replace\": true, \"add\": [{\"name\" : \"SCM-Manager\", \"url\" : \"https://scm-manager.org/\"}], \"remove\": [\"Old\"]}").getBytes();
+
+    MockHttpRequest request = MockHttpRequest.create("PATCH", "/" + CustomLinksResource.CUSTOM_LINKS_CONFIG_PATH)
+      .contentType(CustomLinksResource.CUSTOM_LINKS_BATCH_MEDIA_TYPE)
+      .content(contentJson);
+
+    dispatcher.invoke(request, response);
+
     assertThat(response.getStatus()).isEqualTo(204);
-    verify(configStore).addLink("SCM-Manager", "https://scm-manager.org/");
+    ArgumentCaptor<Collection<CustomLink>> captor = ArgumentCaptor.forClass(Collection.class);
+    verify(configStore).applyBatch(eq(true), captor.capture(), eq(ImmutableList.of("Old")));
+    assertThat(captor.getValue())
+      .extracting(CustomLink::getName, CustomLink::getUrl)
+      .containsExactly(tuple("SCM-Manager", "https://scm-manager.org/"));
+  }
+
+  @Test
+  void shouldNotAddLinkWithDisplayNameOfUnsupportedLanguage() throws URISyntaxException {
+    byte[] contentJson = ("{\"name\" : \"Docs\", \"url\" : \"/docs\", \"displayNames\" : {\"fr\" : \"Documentation\"}}").getBytes();
+
+    MockHttpRequest request = MockHttpRequest.post("/" + CustomLinksResource.CUSTOM_LINKS_CONFIG_PATH)
+      .contentType(CustomLinksResource.CUSTOM_LINKS_MEDIA_TYPE)
+      .content(contentJson);
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(400);
+    verify(configStore, never()).addLink(any(), any(), any());
+  }
+
+  @Test
+  void shouldNotAddLinkWithTooLongDisplayName() throws URISyntaxException {
+    String displayName = "a".repeat(SupportedDisplayNamesValidator.MAX_LENGTH + 1);
+    byte[] contentJson = ("{\"name\" : \"Docs\", \"url\" : \"/docs\", \"displayNames\" : {\"de\" : \"" + displayName + "\"}}").getBytes();
+
+    MockHttpRequest request = MockHttpRequest.post("/" + CustomLinksResource.CUSTOM_LINKS_CONFIG_PATH)
+      .contentType(CustomLinksResource.CUSTOM_LINKS_MEDIA_TYPE)
+      .content(contentJson);
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(400);
+    verify(configStore, never()).addLink(any(), any(), any());
+  }
+
+  @Test
+  void shouldNotApplyBatchWithInvalidLink() throws URISyntaxException {
+    byte[] contentJson = ("{\"add\": [{\"name\" : \"SCM-Manager\", \"url\" : \"https://scm-manager.org/\"}, {\"name\" : \"\", \"url\" : \"https://scm-manager.org/\"}]}").getBytes();
+
+    MockHttpRequest request = MockHttpRequest.create("PATCH", "/" + CustomLinksResource.CUSTOM_LINKS_CONFIG_PATH)
+      .contentType(CustomLinksResource.CUSTOM_LINKS_BATCH_MEDIA_TYPE)
+      .content(contentJson);
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(400);
+    verify(configStore, never()).applyBatch(anyBoolean(), any(), any());
+  }
+
+  @Test
+  @SubjectAware(permissions = "configuration:manageCustomLinks")
+  void shouldExportLinksAsNdjson() throws URISyntaxException {
+    when(configStore.getAllLinks()).thenReturn(ImmutableList.of(
+      new CustomLink("SCM-Manager", "https://scm-manager.org/"),
+      new CustomLink("Wiki", "https://wiki/{username}")
+    ));
+
+    MockHttpRequest request = MockHttpRequest.get("/" + CustomLinksResource.CUSTOM_LINKS_CONFIG_PATH + "/export");
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(response.getContentAsString()).isEqualTo(
+      "{\"name\":\"SCM-Manager\",\"url\":\"https://scm-manager.org/\"}\n" +
+        "{\"name\":\"Wiki\",\"url\":\"https://wiki/{username}\"}\n"
+    );
+    assertThat(meterRegistry.get("scm.customlinks.requests").tag("operation", "export").timer().count()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldNotExportLinksWithoutManagePermission() throws URISyntaxException {
+    MockHttpRequest request = MockHttpRequest.get("/" + CustomLinksResource.CUSTOM_LINKS_CONFIG_PATH + "/export");
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(403);
+    verify(configStore, never()).getAllLinks();
+  }
+
+  @Test
+  @SubjectAware(permissions = "configuration:manageCustomLinks")
+  @SuppressWarnings("unchecked")
+  void shouldImportLinksFromNdjson() throws URISyntaxException {
+    byte[] content = ("{\"name\":\"SCM-Manager\",\"url\":\"https://scm-manager.org/\"}\n" +
+      "\n" +
+      "{\"name\":\"Wiki\",\"url\":\"https://wiki/\"}").getBytes();
+
+    MockHttpRequest request = MockHttpRequest.post("/" + CustomLinksResource.CUSTOM_LINKS_CONFIG_PATH + "/import?replace=true")
+      .contentType(NdjsonCustomLinkFormat.MEDIA_TYPE)
+      .content(content);
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(response.getContentAsJson().path("imported").intValue()).isEqualTo(2);
+    ArgumentCaptor<Collection<CustomLink>> captor = ArgumentCaptor.forClass(Collection.class);
+    verify(configStore).applyBatch(eq(true), captor.capture(), eq(ImmutableList.of()));
+    assertThat(captor.getValue())
+      .extracting(CustomLink::getName, CustomLink::getUrl)
+      .containsExactly(tuple("SCM-Manager", "https://scm-manager.org/"), tuple("Wiki", "https://wiki/"));
+  }
+
+  @Test
+  @SubjectAware(permissions = "configuration:manageCustomLinks")
+  void shouldReportInvalidLinesOfImport() throws URISyntaxException {
+    byte[] content = ("{\"name\":\"SCM-Manager\",\"url\":\"https://scm-manager.org/\"}\n" +
+      "{\"name\":\"Wiki\"}\n" +
+      "{\"name\":\"Broken\n").getBytes();
+
+    MockHttpRequest request = MockHttpRequest.post("/" + CustomLinksResource.CUSTOM_LINKS_CONFIG_PATH + "/import")
+      .contentType(NdjsonCustomLinkFormat.MEDIA_TYPE)
+      .content(content);
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(400);
+    JsonNode result = response.getContentAsJson();
+    assertThat(result.path("applied").booleanValue()).isFalse();
+    assertThat(result.path("errorCount").intValue()).isEqualTo(2);
+    assertThat(result.path("errors").get(0).path("line").intValue()).isEqualTo(2);
+    assertThat(result.path("errors").get(0).path("message").textValue()).isEqualTo("missing url");
+    assertThat(result.path("errors").get(1).path("line").intValue()).isEqualTo(3);
+    verify(configStore, never()).applyBatch(anyBoolean(), any(), any());
   }
 
   @Test
   void shouldRemoveLink() throws URISyntaxException {
+    when(configStore.removeLink("SCM-Manager")).thenReturn(new CustomLinkConfigStore.Snapshot(ImmutableList.of(), 43L, "removed"));
     MockHttpRequest request = MockHttpRequest.delete("/" + CustomLinksResource.CUSTOM_LINKS_CONFIG_PATH + "/SCM-Manager")
       .contentType(CustomLinksResource.CUSTOM_LINKS_MEDIA_TYPE);
 
     dispatcher.invoke(request, response);
 
+    assertThat(response.getStatus()).isEqualTo(200);
+    JsonNode change = response.getContentAsJson();
+    assertThat(change.path("version").textValue()).isEqualTo("43-removed");
+    assertThat(change.path("customLink").isObject()).isFalse();
+  }
+
+  @Test
+  void shouldMoveLink() throws URISyntaxException {
+    when(configStore.moveLink("SCM-Manager", 2)).thenReturn(new CustomLinkConfigStore.Snapshot(
+      ImmutableList.of(new CustomLink("a", "/a"), new CustomLink("b", "/b"), new CustomLink("SCM-Manager", "https://scm-manager.org/")),
+      43L, "moved"
+    ));
+    MockHttpRequest request = MockHttpRequest.post("/" + CustomLinksResource.CUSTOM_LINKS_CONFIG_PATH + "/SCM-Manager/move")
+      .contentType(CustomLinksResource.CUSTOM_LINK_MOVE_MEDIA_TYPE)
+      .content("{\"position\": 2}".getBytes());
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(200);
+    JsonNode change = response.getContentAsJson();
+    assertThat(change.path("version").textValue()).isEqualTo("43-moved");
+    assertThat(change.path("position").intValue()).isEqualTo(2);
+    assertThat(change.path("customLink").path("name").textValue()).isEqualTo("SCM-Manager");
+    assertThat(meterRegistry.get("scm.customlinks.requests").tag("operation", "move").timer().count()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldRejectNegativePosition() throws URISyntaxException {
+    MockHttpRequest request = MockHttpRequest.post("/" + CustomLinksResource.CUSTOM_LINKS_CONFIG_PATH + "/SCM-Manager/move")
+      .contentType(CustomLinksResource.CUSTOM_LINK_MOVE_MEDIA_TYPE)
+      .content("{\"position\": -1}".getBytes());
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(400);
+    verify(configStore, never()).moveLink(any(), anyInt());
+  }
+
+  @Test
+  void shouldCountClick() throws URISyntaxException {
+    when(clickCounter.click("SCM-Manager")).thenReturn(true);
+
+    MockHttpRequest request = MockHttpRequest.post("/" + CustomLinksResource.CUSTOM_LINKS_CONFIG_PATH + "/SCM-Manager/click");
+
+    dispatcher.invoke(request, response);
+
     assertThat(response.getStatus()).isEqualTo(204);
-    verify(configStore).removeLink("SCM-Manager");
+    verify(clickCounter).click("SCM-Manager");
+  }
+
+  @Test
+  void shouldReturnNotFoundForClickOnUnknownLink() throws URISyntaxException {
+    MockHttpRequest request = MockHttpRequest.post("/" + CustomLinksResource.CUSTOM_LINKS_CONFIG_PATH + "/unknown/click");
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(404);
   }
 }
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.customlinks;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Properties;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class CustomLinksRevisionCheckSchedulerTest {
+
+  @Mock
+  private CustomLinkConfigStore configStore;
+
+  @Test
+  void shouldCheckForChangesPeriodically() {
+    Properties properties = new Properties();
+    properties.setProperty(CustomLinksSettings.REVISION_CHECK_INTERVAL, "10");
+    CustomLinksRevisionCheckScheduler scheduler = new CustomLinksRevisionCheckScheduler(configStore, new CustomLinksSettings(properties));
+
+    scheduler.contextInitialized(null);
+
+    verify(configStore, timeout(5000).atLeast(2)).checkForChanges();
+    scheduler.contextDestroyed(null);
+  }
+
+  @Test
+  void shouldNotScheduleChecksWithoutInterval() {
+    Properties properties = new Properties();
+    properties.setProperty(CustomLinksSettings.REVISION_CHECK_INTERVAL, "0");
+    CustomLinksRevisionCheckScheduler scheduler = new CustomLinksRevisionCheckScheduler(configStore, new CustomLinksSettings(properties));
+
+    scheduler.contextInitialized(null);
+    scheduler.contextDestroyed(null);
+
+    verify(configStore, never()).checkForChanges();
+  }
+}
@@ -16,11 +16,15 @@
 
 package com.cloudogu.customlinks;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import de.otto.edison.hal.HalRepresentation;
 import org.github.sdorra.jse.ShiroExtension;
 import org.github.sdorra.jse.SubjectAware;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import sonia.scm.api.v2.resources.HalAppender;
@@ -29,11 +33,21 @@ import sonia.scm.api.v2.resources.ScmPathInfoStore;
 import sonia.scm.web.MockScmPathInfoStore;
 
 import jakarta.inject.Provider;
+import jakarta.servlet.http.HttpServletRequest;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @ExtendWith({MockitoExtension.class, ShiroExtension.class})
 @SubjectAware(value = "trillian")
@@ -42,21 +56,45 @@ class IndexLinkEnricherTest {
   private final Provider<ScmPathInfoStore> scmPathInfoStore = MockScmPathInfoStore.forUri("/");
   @Mock
   private HalAppender appender;
+  @Mock
+  private HttpServletRequest request;
+  @Mock
+  private CustomLinkConfigStore configStore;
 
   private IndexLinkEnricher enricher;
 
   @BeforeEach
   void createEnricher() {
-    enricher = new IndexLinkEnricher(scmPathInfoStore);
+    lenient().when(request.getLocales()).thenReturn(Collections.enumeration(ImmutableList.of(Locale.ENGLISH)));
+    lenient().when(configStore.getSnapshot()).thenReturn(new CustomLinkConfigStore.Snapshot(ImmutableList.of(), 0L));
+    enricher = createEnricher(new Properties());
+  }
+
+  private void givenLinks(long revision, CustomLink... links) {
+    when(configStore.getSnapshot()).thenReturn(new CustomLinkConfigStore.Snapshot(ImmutableList.copyOf(links), revision));
+  }
+
+  private IndexLinkEnricher createEnricher(Properties properties) {
+    return new IndexLinkEnricher(
+      scmPathInfoStore,
+      () -> request,
+      configStore,
+      new CustomLinkCollectionMapper(new CustomLinkUrls(), new CustomLinkHealth(), mock(CustomLinkClickCounter.class)),
+      new CustomLinkUrls(),
+      new CustomLinksSettings(properties)
+    );
   }
 
   @Test
   void shouldAppendCustomLinksLink() {
+    givenLinks(42L);
     HalEnricherContext context = HalEnricherContext.of();
 
     enricher.enrich(context, appender);
 
-    verify(appender).appendLink("customLinks", "/v2/custom-links");
+    verify(appender).appendLink("customLinks", "/v2/custom-links?revision=42");
+    verify(appender).appendLink("customLinksEvents", "/v2/custom-links/events");
+    verify(appender).appendLink("customLinksClick", "/v2/custom-links/{linkName}/click");
     verify(appender, never()).appendLink(eq("customLinksConfig"), any());
   }
 
@@ -67,7 +105,50 @@ class IndexLinkEnricherTest {
 
     enricher.enrich(context, appender);
 
-    verify(appender).appendLink("customLinks", "/v2/custom-links");
+    verify(appender).appendLink("customLinks", "/v2/custom-links?revision=0");
     verify(appender).appendLink("customLinksConfig", "/v2/custom-links");
   }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void shouldEmbedCustomLinks() {
+    givenLinks(42L, new CustomLink("SCM-Manager", "https://scm-manager.org"));
+    HalEnricherContext context = HalEnricherContext.of();
+
+    enricher.enrich(context, appender);
+
+    verify(appender).appendLink("customLinks", "/v2/custom-links?revision=42");
+    verify(configStore).getSnapshot();
+    verify(configStore, never()).getAllLinks();
+    ArgumentCaptor<List<HalRepresentation>> captor = ArgumentCaptor.forClass(List.class);
+    verify(appender).appendEmbedded(eq("customLinks"), captor.capture());
+    CustomLinkDto embedded = (CustomLinkDto) captor.getValue().get(0);
+    assertThat(embedded.getName()).isEqualTo("SCM-Manager");
+    assertThat(embedded.getUrl()).isEqualTo("https://scm-manager.org");
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void shouldEmbedDisplayNamesOfRequestedLanguage() {
+    when(request.getLocales()).thenReturn(Collections.enumeration(ImmutableList.of(Locale.FRENCH, Locale.GERMANY)));
+    givenLinks(42L, new CustomLink("Docs", "/docs", ImmutableMap.of("de", "Doku")));
+    HalEnricherContext context = HalEnricherContext.of();
+
+    enricher.enrich(context, appender);
+
+    ArgumentCaptor<List<HalRepresentation>> captor = ArgumentCaptor.forClass(List.class);
+    verify(appender).appendEmbedded(eq("customLinks"), captor.capture());
+    assertThat(((CustomLinkDetailsDto) captor.getValue().get(0)).getDisplayName()).isEqualTo("Doku");
+  }
+
+  @Test
+  void shouldNotEmbedCustomLinksIfDisabled() {
+    Properties properties = new Properties();
+    properties.setProperty(CustomLinksSettings.EMBED_IN_INDEX, "false");
+    HalEnricherContext context = HalEnricherContext.of();
+
+    createEnricher(properties).enrich(context, appender);
+
+    verify(appender, never()).appendEmbedded(eq("customLinks"), anyList());
+  }
 }
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.customlinks;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class NdjsonCustomLinkFormatTest {
+
+  @Test
+  void shouldReadWrittenLinksInOrder() throws IOException {
+    List<CustomLink> links = ImmutableList.of(
+      new CustomLink("SCM-Manager", "https://scm-manager.org/"),
+      new CustomLink("Cloudogu \"Community\"\n", "https://community.cloudogu.com/?a=1&b=ä")
+    );
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    NdjsonCustomLinkFormat.write(output, links);
+    NdjsonCustomLinkFormat.Import result = NdjsonCustomLinkFormat.read(new ByteArrayInputStream(output.toByteArray()), 10);
+
+    assertThat(output.toString(StandardCharsets.UTF_8)).hasLineCount(2);
+    assertThat(result.getErrorCount()).isZero();
+    assertThat(result.getLinks())
+      .extracting(CustomLink::getName, CustomLink::getUrl)
+      .containsExactly(
+        tuple("SCM-Manager", "https://scm-manager.org/"),
+        tuple("Cloudogu \"Community\"\n", "https://community.cloudogu.com/?a=1&b=ä")
+      );
+  }
+
+  @Test
+  void shouldReadWrittenDisplayNames() throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    NdjsonCustomLinkFormat.write(output, ImmutableList.of(new CustomLink("Docs", "/docs", ImmutableMap.of("de", "Doku"))));
+
+    assertThat(output.toString(StandardCharsets.UTF_8))
+      .isEqualTo("{\"name\":\"Docs\",\"url\":\"/docs\",\"displayNames\":{\"de\":\"Doku\"}}\n");
+    assertThat(read(output.toString(StandardCharsets.UTF_8)).getLinks())
+      .extracting(CustomLink::getDisplayNames)
+      .containsExactly(ImmutableMap.of("de", "Doku"));
+  }
+
+  @Test
+  void shouldIgnoreUnknownFields() throws IOException {
+    NdjsonCustomLinkFormat.Import result = read("{\"name\":\"a\",\"clicks\":42,\"tags\":[\"x\"],\"url\":\"https://a/\"}");
+
+    assertThat(result.getErrorCount()).isZero();
+    assertThat(result.getLinks()).extracting(CustomLink::getName).containsExactly("a");
+  }
+
+  @Test
+  void shouldReportEveryInvalidLine() throws IOException {
+    NdjsonCustomLinkFormat.Import result = read(
+      "[\"a\", \"https://a/\"]\n" +
+        "{\"name\":\"\",\"url\":\"https://b/\"}\n" +
+        "{\"name\":42,\"url\":\"https://c/\"}\n" +
+        "{\"name\":\"d\",\"url\":\"https://d/\"} {}\n" +
+        "{\"name\":\"e\",\"url\":\"https://e/\"}\n" +
+        "{\"name\":\"f\""
+    );
+
+    assertThat(result.getErrors())
+      .extracting(CustomLinkImportResultDto.LineError::getLine, CustomLinkImportResultDto.LineError::getMessage)
+      .startsWith(
+        tuple(1, "expected an object with name and url"),
+        tuple(2, "missing name"),
+        tuple(3, "name must be a string"),
+        tuple(4, "unexpected content after the link")
+      );
+    assertThat(result.getErrors().get(4).getLine()).isEqualTo(6);
+    assertThat(result.getLinks()).extracting(CustomLink::getName).containsExactly("e");
+  }
+
+  @Test
+  void shouldReportInvalidDisplayNames() throws IOException {
+    NdjsonCustomLinkFormat.Import result = read(
+      "{\"name\":\"a\",\"url\":\"https://a/\",\"displayNames\":{\"fr\":\"A\"}}\n" +
+        "{\"name\":\"b\",\"url\":\"https://b/\",\"displayNames\":{\"de\":\"\"}}\n" +
+        "{\"name\":\"c\",\"url\":\"https://c/\",\"displayNames\":{\"de\":\"C\"}}"
+    );
+
+    assertThat(result.getErrors())
+      .extracting(CustomLinkImportResultDto.LineError::getLine, CustomLinkImportResultDto.LineError::getMessage)
+      .containsExactly(
+        tuple(1, "unsupported language for display name: fr"),
+        tuple(2, "empty display name for language de")
+      );
+    assertThat(result.getLinks()).extracting(CustomLink::getName).containsExactly("c");
+  }
+
+  @Test
+  void shouldReportTooLongLinesAndContinueWithNextLine() throws IOException {
+    String longName = "a".repeat(NdjsonCustomLinkFormat.MAX_LINE_LENGTH);
+    NdjsonCustomLinkFormat.Import result = read(
+      "{\"name\":\"" + longName + "\",\"url\":\"https://a/\"}\n" +
+        "{\"name\":\"b\",\"url\":\"https://b/\"}\r\n" +
+        "\n" +
+        "{\"name\":\"c\",\"url\":\"https://c/\"}\n" +
+        "x".repeat(NdjsonCustomLinkFormat.MAX_LINE_LENGTH + 1)
+    );
+
+    assertThat(result.getErrors())
+      .extracting(CustomLinkImportResultDto.LineError::getLine, CustomLinkImportResultDto.LineError::getMessage)
+      .containsExactly(
+        tuple(1, "line is longer than " + NdjsonCustomLinkFormat.MAX_LINE_LENGTH + " characters"),
+        tuple(5, "line is longer than " + NdjsonCustomLinkFormat.MAX_LINE_LENGTH + " characters")
+      );
+    assertThat(result.getLinks()).extracting(CustomLink::getName).containsExactly("b", "c");
+  }
+
+  @Test
+  void shouldOnlyKeepFirstErrors() throws IOException {
+    NdjsonCustomLinkFormat.Import result = NdjsonCustomLinkFormat.read(
+      new ByteArrayInputStream("x\nx\nx\n".getBytes(StandardCharsets.UTF_8)), 2
+    );
+
+    assertThat(result.getErrorCount()).isEqualTo(3);
+    assertThat(result.getErrors()).hasSize(2);
+  }
+
+  private NdjsonCustomLinkFormat.Import read(String content) throws IOException {
+    return NdjsonCustomLinkFormat.read(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), 10);
+  }
+}
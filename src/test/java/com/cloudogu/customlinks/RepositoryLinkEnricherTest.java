@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+package com.cloudogu.customlinks;
+
+import com.google.common.collect.ImmutableList;
+import de.otto.edison.hal.HalRepresentation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.api.v2.resources.HalAppender;
+import sonia.scm.api.v2.resources.HalEnricherContext;
+import sonia.scm.api.v2.resources.ScmPathInfoStore;
+import sonia.scm.repository.Repository;
+import sonia.scm.web.MockScmPathInfoStore;
+
+import jakarta.inject.Provider;
+import jakarta.servlet.http.HttpServletRequest;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RepositoryLinkEnricherTest {
+
+  private final Provider<ScmPathInfoStore> scmPathInfoStore = MockScmPathInfoStore.forUri("/");
+  private final Repository heartOfGold = new Repository("42", "git", "hitchhiker", "HeartOfGold");
+
+  @Mock
+  private HalAppender appender;
+  @Mock
+  private HttpServletRequest request;
+  @Mock
+  private ScopedCustomLinkStore store;
+
+  private RepositoryLinkEnricher enricher;
+
+  @BeforeEach
+  void createEnricher() {
+    enricher = new RepositoryLinkEnricher(
+      scmPathInfoStore,
+      () -> request,
+      store,
+      new CustomLinkCollectionMapper(new CustomLinkUrls(), new CustomLinkHealth(), mock(CustomLinkClickCounter.class)),
+      new CustomLinkUrls()
+    );
+  }
+
+  @Test
+  void shouldAppendCustomLinksLinkWithoutEmbeddedLinks() {
+    when(store.getScopedLinks(heartOfGold)).thenReturn(ImmutableList.of());
+
+    enricher.enrich(HalEnricherContext.of(heartOfGold), appender);
+
+    verify(appender).appendLink("customLinks", "/v2/scoped-custom-links/repository/hitchhiker/HeartOfGold");
+    verify(appender, never()).appendEmbedded(eq("customLinks"), anyList());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void shouldEmbedScopedLinks() {
+    when(store.getScopedLinks(heartOfGold)).thenReturn(ImmutableList.of(new CustomLink("CI", "https://ci.org/")));
+    when(request.getLocales()).thenReturn(Collections.enumeration(ImmutableList.of(Locale.ENGLISH)));
+
+    enricher.enrich(HalEnricherContext.of(heartOfGold), appender);
+
+    ArgumentCaptor<List<HalRepresentation>> captor = ArgumentCaptor.forClass(List.class);
+    verify(appender).appendEmbedded(eq("customLinks"), captor.capture());
+    CustomLinkDto embedded = (CustomLinkDto) captor.getValue().get(0);
+    assertThat(embedded.getName()).isEqualTo("CI");
+    assertThat(embedded.getUrl()).isEqualTo("https://ci.org/");
+  }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+package com.cloudogu.customlinks;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.shiro.authz.AuthorizationException;
+import org.github.sdorra.jse.ShiroExtension;
+import org.github.sdorra.jse.SubjectAware;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.HandlerEventType;
+import sonia.scm.repository.Namespace;
+import sonia.scm.repository.NamespaceManager;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryEvent;
+import sonia.scm.store.BlobStoreFactory;
+import sonia.scm.store.ConfigurationStoreFactory;
+import sonia.scm.store.InMemoryBlobStoreFactory;
+import sonia.scm.store.InMemoryConfigurationStoreFactory;
+
+import java.util.Optional;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith({MockitoExtension.class, ShiroExtension.class})
+class ScopedCustomLinkStoreTest {
+
+  private final Repository heartOfGold = new Repository("42", "git", "hitchhiker", "HeartOfGold");
+  private final Repository puzzle = new Repository("43", "git", "hitchhiker", "puzzle42");
+  private final Repository spaceship = new Repository("44", "git", "spaceships", "RestaurantAtTheEnd");
+
+  @Mock
+  private CustomLinkConfigStore globalLinks;
+  @Mock
+  private NamespaceManager namespaceManager;
+
+  private BlobStoreFactory blobStoreFactory;
+  private ConfigurationStoreFactory revisionStoreFactory;
+  private ScopedCustomLinkStore store;
+
+  @BeforeEach
+  void initStore() {
+    blobStoreFactory = new InMemoryBlobStoreFactory();
+    revisionStoreFactory = new InMemoryConfigurationStoreFactory();
+    store = createStore(new Properties());
+    lenient().when(globalLinks.getAllLinks()).thenReturn(ImmutableList.of(new CustomLink("Global", "https://scm-manager.org/")));
+  }
+
+  private ScopedCustomLinkStore createStore(Properties properties) {
+    return new ScopedCustomLinkStore(blobStoreFactory, revisionStoreFactory, globalLinks, namespaceManager, new CustomLinksSettings(properties));
+  }
+
+  @Test
+  void shouldThrowAuthorizationExceptionIfNotPermitted() {
+    assertThrows(AuthorizationException.class, () -> store.addNamespaceLink("hitchhiker", "Wiki", "https://wiki.org/"));
+    assertThrows(AuthorizationException.class, () -> store.removeNamespaceLink("hitchhiker", "Wiki"));
+    assertThrows(AuthorizationException.class, () -> store.addRepositoryLink(heartOfGold, "CI", "https://ci.org/"));
+    assertThrows(AuthorizationException.class, () -> store.removeRepositoryLink(heartOfGold, "CI"));
+  }
+
+  @Test
+  void shouldResolveOnlyGlobalLinksWithoutScopedLinks() {
+    assertThat(store.resolve(heartOfGold))
+      .extracting("name")
+      .containsExactly("Global");
+    assertThat(store.getScopedLinks(heartOfGold)).isEmpty();
+  }
+
+  @Nested
+  @SubjectAware(value = "trillian", permissions = "configuration:manageCustomLinks")
+  class WithManagePermission {
+
+    @Test
+    void shouldResolveGlobalNamespaceAndRepositoryLinksInOrder() {
+      store.addRepositoryLink(heartOfGold, "CI", "https://ci.org/heart-of-gold");
+      store.addNamespaceLink("hitchhiker", "Wiki", "https://wiki.org/hitchhiker");
+
+      assertThat(store.resolve(heartOfGold))
+        .extracting("name", "url")
+        .containsExactly(
+          tuple("Global", "https://scm-manager.org/"),
+          tuple("Wiki", "https://wiki.org/hitchhiker"),
+          tuple("CI", "https://ci.org/heart-of-gold")
+        );
+    }
+
+    @Test
+    void shouldNotMixUpScopes() {
+      store.addNamespaceLink("hitchhiker", "Wiki", "https://wiki.org/hitchhiker");
+      store.addRepositoryLink(heartOfGold, "CI", "https://ci.org/heart-of-gold");
+
+      assertThat(store.getScopedLinks(puzzle)).extracting("name").containsExactly("Wiki");
+      assertThat(store.getScopedLinks(spaceship)).isEmpty();
+    }
+
+    @Test
+    void shouldReplaceUrlOfExistingLinkInPlace() {
+      store.addNamespaceLink("hitchhiker", "Wiki", "https://wiki.org/");
+      store.addNamespaceLink("hitchhiker", "Issues", "https://issues.org/");
+      store.addNamespaceLink("hitchhiker", "Wiki", "https://wiki.org/hitchhiker");
+
+      assertThat(store.getNamespaceLinks("hitchhiker"))
+        .extracting("name", "url")
+        .containsExactly(
+          tuple("Wiki", "https://wiki.org/hitchhiker"),
+          tuple("Issues", "https://issues.org/")
+        );
+    }
+
+    @Test
+    void shouldRemoveLinks() {
+      store.addNamespaceLink("hitchhiker", "Wiki", "https://wiki.org/");
+      store.addRepositoryLink(heartOfGold, "CI", "https://ci.org/");
+
+      store.removeNamespaceLink("hitchhiker", "Wiki");
+      store.removeRepositoryLink(heartOfGold, "CI");
+
+      assertThat(store.getScopedLinks(heartOfGold)).isEmpty();
+      assertThat(blobStoreFactory.withName(ScopedCustomLinkStore.STORE_NAME).build().getAll()).isEmpty();
+    }
+
+    @Test
+    void shouldLoadPersistedLinks() {
+      store.addNamespaceLink("hitchhiker", "Wiki", "https://wiki.org/");
+      store.addRepositoryLink(heartOfGold, "CI", "https://ci.org/");
+
+      ScopedCustomLinkStore reloaded = createStore(new Properties());
+
+      assertThat(reloaded.getScopedLinks(heartOfGold))
+        .extracting("name")
+        .containsExactly("Wiki", "CI");
+    }
+
+    @Test
+    void shouldStoreEveryScopeOnItsOwn() {
+      store.addNamespaceLink("hitchhiker", "Wiki", "https://wiki.org/");
+      store.addRepositoryLink(heartOfGold, "CI", "https://ci.org/");
+
+      assertThat(blobStoreFactory.withName(ScopedCustomLinkStore.STORE_NAME).build().getAll())
+        .extracting("id")
+        .containsExactlyInAnyOrder("namespace-hitchhiker", "repository-42");
+    }
+
+    @Test
+    void shouldReadChangesOfOtherNode() {
+      Properties properties = new Properties();
+      properties.setProperty(CustomLinksSettings.REVISION_CHECK_INTERVAL, "0");
+      ScopedCustomLinkStore node = createStore(properties);
+      ScopedCustomLinkStore otherNode = createStore(properties);
+      assertThat(node.getScopedLinks(heartOfGold)).isEmpty();
+
+      otherNode.addNamespaceLink("hitchhiker", "Wiki", "https://wiki.org/");
+
+      assertThat(node.getScopedLinks(heartOfGold)).extracting("name").containsExactly("Wiki");
+    }
+
+    @Test
+    void shouldNotOverwriteChangesOfOtherNode() {
+      ScopedCustomLinkStore otherNode = createStore(new Properties());
+      store.addNamespaceLink("hitchhiker", "Wiki", "https://wiki.org/");
+      assertThat(otherNode.getNamespaceLinks("hitchhiker")).extracting("name").containsExactly("Wiki");
+
+      store.addNamespaceLink("hitchhiker", "Issues", "https://issues.org/");
+      otherNode.addNamespaceLink("hitchhiker", "CI", "https://ci.org/");
+
+      assertThat(otherNode.getNamespaceLinks("hitchhiker")).extracting("name").containsExactly("Wiki", "Issues", "CI");
+      assertThat(createStore(new Properties()).getNamespaceLinks("hitchhiker"))
+        .extracting("name")
+        .containsExactly("Wiki", "Issues", "CI");
+    }
+
+    @Test
+    void shouldRemoveLinksOfDeletedRepository() {
+      store.addRepositoryLink(heartOfGold, "CI", "https://ci.org/");
+
+      store.handle(new RepositoryEvent(HandlerEventType.DELETE, heartOfGold));
+
+      assertThat(store.getRepositoryLinks(heartOfGold)).isEmpty();
+    }
+
+    @Test
+    void shouldRemoveLinksOfNamespaceWithItsLastRepository() {
+      store.addNamespaceLink("hitchhiker", "Wiki", "https://wiki.org/");
+
+      store.handle(new RepositoryEvent(HandlerEventType.DELETE, heartOfGold));
+
+      assertThat(store.getNamespaceLinks("hitchhiker")).isEmpty();
+      assertThat(blobStoreFactory.withName(ScopedCustomLinkStore.STORE_NAME).build().getAll()).isEmpty();
+    }
+
+    @Test
+    void shouldKeepLinksOfNamespaceWithOtherRepositories() {
+      when(namespaceManager.get("hitchhiker")).thenReturn(Optional.of(new Namespace("hitchhiker")));
+      store.addNamespaceLink("hitchhiker", "Wiki", "https://wiki.org/");
+
+      store.handle(new RepositoryEvent(HandlerEventType.DELETE, heartOfGold));
+
+      assertThat(store.getNamespaceLinks("hitchhiker")).extracting("name").containsExactly("Wiki");
+    }
+
+    @Test
+    void shouldMoveLinksOfRenamedNamespace() {
+      store.addNamespaceLink("hitchhiker", "Wiki", "https://wiki.org/");
+      Repository moved = new Repository("42", "git", "guide", "HeartOfGold");
+
+      store.handle(new RepositoryEvent(HandlerEventType.MODIFY, moved, heartOfGold));
+
+      assertThat(store.getNamespaceLinks("hitchhiker")).isEmpty();
+      assertThat(store.getNamespaceLinks("guide")).extracting("name").containsExactly("Wiki");
+    }
+
+    @Test
+    void shouldNotOverwriteLinksOfTargetNamespace() {
+      store.addNamespaceLink("hitchhiker", "Wiki", "https://wiki.org/");
+      store.addNamespaceLink("spaceships", "Docs", "https://docs.org/");
+
+      store.handle(new RepositoryEvent(HandlerEventType.MODIFY, new Repository("42", "git", "spaceships", "HeartOfGold"), heartOfGold));
+
+      assertThat(store.getNamespaceLinks("hitchhiker")).isEmpty();
+      assertThat(store.getNamespaceLinks("spaceships")).extracting("name").containsExactly("Docs");
+    }
+
+    @Test
+    void shouldKeepLinksOfModifiedRepository() {
+      store.addRepositoryLink(heartOfGold, "CI", "https://ci.org/");
+
+      store.handle(new RepositoryEvent(HandlerEventType.MODIFY, heartOfGold));
+
+      assertThat(store.getRepositoryLinks(heartOfGold)).extracting("name").containsExactly("CI");
+    }
+  }
+
+  @Nested
+  @SubjectAware(value = "trillian", permissions = "repository:modify:42")
+  class WithRepositoryPermission {
+
+    @Test
+    void shouldManageLinksOfRepository() {
+      store.addRepositoryLink(heartOfGold, "CI", "https://ci.org/");
+
+      assertThat(store.getRepositoryLinks(heartOfGold)).extracting("name").containsExactly("CI");
+    }
+
+    @Test
+    void shouldNotManageLinksOfOtherRepositories() {
+      assertThrows(AuthorizationException.class, () -> store.addRepositoryLink(puzzle, "CI", "https://ci.org/"));
+    }
+
+    @Test
+    void shouldNotManageLinksOfNamespace() {
+      assertThrows(AuthorizationException.class, () -> store.addNamespaceLink("hitchhiker", "Wiki", "https://wiki.org/"));
+    }
+  }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+package com.cloudogu.customlinks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.collect.ImmutableList;
+import org.github.sdorra.jse.ShiroExtension;
+import org.github.sdorra.jse.SubjectAware;
+import org.jboss.resteasy.mock.MockHttpRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.repository.Namespace;
+import sonia.scm.repository.NamespaceAndName;
+import sonia.scm.repository.NamespaceManager;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryManager;
+import sonia.scm.web.JsonMockHttpResponse;
+import sonia.scm.web.RestDispatcher;
+
+import java.net.URISyntaxException;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith({MockitoExtension.class, ShiroExtension.class})
+@SubjectAware(value = "trillian")
+class ScopedCustomLinksResourceTest {
+
+  private final Repository heartOfGold = new Repository("42", "git", "hitchhiker", "HeartOfGold");
+
+  @Mock
+  private ScopedCustomLinkStore store;
+  @Mock
+  private RepositoryManager repositoryManager;
+  @Mock
+  private NamespaceManager namespaceManager;
+
+  private RestDispatcher dispatcher;
+  private final JsonMockHttpResponse response = new JsonMockHttpResponse();
+
+  @BeforeEach
+  void initResource() {
+    CustomLinkUrls urls = new CustomLinkUrls();
+    ScopedCustomLinksResource resource = new ScopedCustomLinksResource(
+      store, new CustomLinkCollectionMapper(urls, new CustomLinkHealth(), mock(CustomLinkClickCounter.class)), urls, repositoryManager, namespaceManager
+    );
+
+    dispatcher = new RestDispatcher();
+    dispatcher.addSingletonResource(resource);
+  }
+
+  @Test
+  void shouldGetResolvedLinksOfRepository() throws URISyntaxException {
+    when(repositoryManager.get(new NamespaceAndName("hitchhiker", "HeartOfGold"))).thenReturn(heartOfGold);
+    when(store.getRepositoryLinks(heartOfGold)).thenReturn(ImmutableList.of(new CustomLink("CI", "https://ci.org/")));
+    when(store.resolve(heartOfGold)).thenReturn(ImmutableList.of(
+      new CustomLink("Global", "https://scm-manager.org/"),
+      new CustomLink("CI", "https://ci.org/")
+    ));
+
+    MockHttpRequest request = MockHttpRequest.get("/" + ScopedCustomLinksResource.SCOPED_CUSTOM_LINKS_PATH + "/repository/hitchhiker/HeartOfGold");
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(200);
+    JsonNode mainNode = response.getContentAsJson();
+    assertThat(mainNode.path("_links").path("self").path("href").textValue())
+      .isEqualTo("/v2/scoped-custom-links/repository/hitchhiker/HeartOfGold");
+    assertThat(mainNode.path("_links").path("addLink").isMissingNode()).isTrue();
+    assertThat(mainNode.path("_embedded").path("customLinks").get(0).path("name").textValue()).isEqualTo("CI");
+    assertThat(mainNode.path("_embedded").path("customLinks").get(0).path("_links").path("delete").isMissingNode()).isTrue();
+    assertThat(mainNode.path("_embedded").path("resolvedLinks").get(0).path("name").textValue()).isEqualTo("Global");
+    assertThat(mainNode.path("_embedded").path("resolvedLinks").get(1).path("name").textValue()).isEqualTo("CI");
+  }
+
+  @Test
+  @SubjectAware(permissions = "repository:modify:42")
+  void shouldGetManageLinksForRepositoryWithModifyPermission() throws URISyntaxException {
+    when(repositoryManager.get(new NamespaceAndName("hitchhiker", "HeartOfGold"))).thenReturn(heartOfGold);
+    when(store.getRepositoryLinks(heartOfGold)).thenReturn(ImmutableList.of(new CustomLink("CI", "https://ci.org/")));
+
+    MockHttpRequest request = MockHttpRequest.get("/" + ScopedCustomLinksResource.SCOPED_CUSTOM_LINKS_PATH + "/repository/hitchhiker/HeartOfGold");
+
+    dispatcher.invoke(request, response);
+
+    JsonNode mainNode = response.getContentAsJson();
+    assertThat(mainNode.path("_links").path("addLink").path("href").textValue())
+      .isEqualTo("/v2/scoped-custom-links/repository/hitchhiker/HeartOfGold");
+    assertThat(mainNode.path("_embedded").path("customLinks").get(0).path("_links").path("delete").path("href").textValue())
+      .isEqualTo("/v2/scoped-custom-links/repository/hitchhiker/HeartOfGold/CI");
+  }
+
+  @Test
+  void shouldReturnNotFoundForUnknownRepository() throws URISyntaxException {
+    MockHttpRequest request = MockHttpRequest.get("/" + ScopedCustomLinksResource.SCOPED_CUSTOM_LINKS_PATH + "/repository/hitchhiker/Unknown");
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(404);
+  }
+
+  @Test
+  @SubjectAware(permissions = "configuration:manageCustomLinks")
+  void shouldGetNamespaceLinksWithManageLinks() throws URISyntaxException {
+    when(namespaceManager.get("hitchhiker")).thenReturn(Optional.of(new Namespace("hitchhiker")));
+    when(store.getNamespaceLinks("hitchhiker")).thenReturn(ImmutableList.of(new CustomLink("Wiki", "https://wiki.org/")));
+
+    MockHttpRequest request = MockHttpRequest.get("/" + ScopedCustomLinksResource.SCOPED_CUSTOM_LINKS_PATH + "/namespace/hitchhiker");
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(200);
+    JsonNode mainNode = response.getContentAsJson();
+    assertThat(mainNode.path("_embedded").path("customLinks").get(0).path("_links").path("delete").path("href").textValue())
+      .isEqualTo("/v2/scoped-custom-links/namespace/hitchhiker/Wiki");
+    assertThat(mainNode.path("_embedded").path("resolvedLinks").isMissingNode()).isTrue();
+  }
+
+  @Test
+  void shouldGetNamespaceLinksIfRepositoryOfNamespaceMayBeRead() throws URISyntaxException {
+    when(namespaceManager.get("hitchhiker")).thenReturn(Optional.of(new Namespace("hitchhiker")));
+    when(repositoryManager.getAll(any(), any())).thenReturn(ImmutableList.of(heartOfGold));
+    when(store.getNamespaceLinks("hitchhiker")).thenReturn(ImmutableList.of(new CustomLink("Wiki", "https://wiki.org/")));
+
+    MockHttpRequest request = MockHttpRequest.get("/" + ScopedCustomLinksResource.SCOPED_CUSTOM_LINKS_PATH + "/namespace/hitchhiker");
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(response.getContentAsJson().path("_embedded").path("customLinks").get(0).path("name").textValue())
+      .isEqualTo("Wiki");
+  }
+
+  @Test
+  void shouldNotGetNamespaceLinksWithoutReadableRepository() throws URISyntaxException {
+    when(namespaceManager.get("hitchhiker")).thenReturn(Optional.of(new Namespace("hitchhiker")));
+    when(repositoryManager.getAll(any(), any())).thenReturn(ImmutableList.of());
+
+    MockHttpRequest request = MockHttpRequest.get("/" + ScopedCustomLinksResource.SCOPED_CUSTOM_LINKS_PATH + "/namespace/hitchhiker");
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(403);
+    verify(store, never()).getNamespaceLinks(anyString());
+  }
+
+  @Test
+  @SubjectAware(permissions = "configuration:manageCustomLinks")
+  void shouldReturnNotFoundForUnknownNamespace() throws URISyntaxException {
+    MockHttpRequest request = MockHttpRequest.get("/" + ScopedCustomLinksResource.SCOPED_CUSTOM_LINKS_PATH + "/namespace/unknown");
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(404);
+    verify(store, never()).getNamespaceLinks(anyString());
+  }
+
+  @Test
+  @SubjectAware(permissions = "configuration:manageCustomLinks")
+  void shouldNotAddLinkToUnknownNamespace() throws URISyntaxException {
+    byte[] contentJson = ("{\"name\" : \"Wiki\", \"url\" : \"https://wiki.org/\"}").getBytes();
+
+    MockHttpRequest request = MockHttpRequest.post("/" + ScopedCustomLinksResource.SCOPED_CUSTOM_LINKS_PATH + "/namespace/unknown")
+      .contentType(CustomLinksResource.CUSTOM_LINKS_MEDIA_TYPE)
+      .content(contentJson);
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(404);
+    verify(store, never()).addNamespaceLink(anyString(), anyString(), anyString(), any());
+  }
+
+  @Test
+  void shouldAddRepositoryLink() throws URISyntaxException {
+    when(repositoryManager.get(new NamespaceAndName("hitchhiker", "HeartOfGold"))).thenReturn(heartOfGold);
+    byte[] contentJson = ("{\"name\" : \"CI\", \"url\" : \"https://ci.org/\"}").getBytes();
+
+    MockHttpRequest request = MockHttpRequest.post("/" + ScopedCustomLinksResource.SCOPED_CUSTOM_LINKS_PATH + "/repository/hitchhiker/HeartOfGold")
+      .contentType(CustomLinksResource.CUSTOM_LINKS_MEDIA_TYPE)
+      .content(contentJson);
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(204);
+    verify(store).addRepositoryLink(heartOfGold, "CI", "https://ci.org/", null);
+  }
+
+  @Test
+  void shouldDeleteNamespaceLink() throws URISyntaxException {
+    when(namespaceManager.get("hitchhiker")).thenReturn(Optional.of(new Namespace("hitchhiker")));
+    MockHttpRequest request = MockHttpRequest.delete("/" + ScopedCustomLinksResource.SCOPED_CUSTOM_LINKS_PATH + "/namespace/hitchhiker/Wiki");
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(204);
+    verify(store).removeNamespaceLink("hitchhiker", "Wiki");
+  }
+}